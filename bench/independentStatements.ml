@@ -0,0 +1,9 @@
+# Statements that don't depend on each other and may be evaluated concurrently
+# BENCH: n = 100000 400000
+
+var n = 100000
+var a = reduce(map({1, n}, x -> x * 2), 0, x y -> x + y)
+var b = reduce(map({1, n}, x -> x * 3), 0, x y -> x + y)
+var c = reduce(map({1, n}, x -> x * 4), 0, x y -> x + y)
+var d = reduce(map({1, n}, x -> x * 5), 0, x y -> x + y)
+out a + b + c + d
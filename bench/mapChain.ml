@@ -0,0 +1,8 @@
+# A chain of maps over integers that is reduced to a single number
+# BENCH: n = 100000 1000000
+
+var n = 100000
+var squares = map({1, n}, x -> x * x)
+var shifted = map(squares, x -> x - 1)
+var halves = map(shifted, x -> x / 2)
+out reduce(halves, 0, a b -> a + b)
@@ -0,0 +1,8 @@
+# Approximate pi using the Leibniz series
+# BENCH: n = 10000 1000000
+
+var n = 10000
+var sequence = map({0, n}, i -> (-1)^i / (2 * i + 1))
+var pi = 4 * reduce(sequence, 0, x y -> x + y)
+print "pi = "
+out pi
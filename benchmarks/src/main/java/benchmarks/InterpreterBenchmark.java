@@ -0,0 +1,79 @@
+package benchmarks;
+
+import backend.AST.BinaryOperatorExpr;
+import backend.AST.RangeExpr;
+import backend.errorHandling.Diagnostics;
+import backend.interpreter.Interpreter;
+import backend.interpreter.Value;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the interpreter's hot paths for single expressions: binary operators for every
+ * combination of integer and floating point operands and the creation of ranges
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InterpreterBenchmark {
+
+    @State(Scope.Thread)
+    public static class BinaryOperatorState {
+        @Param({"+", "-", "*", "/", "^"})
+        public String operator;
+
+        /** The types of the left and the right operand */
+        @Param({"int-int", "int-float", "float-int", "float-float"})
+        public String operands;
+
+        Interpreter interpreter;
+        BinaryOperatorExpr expr;
+
+        @Setup
+        public void setup() {
+            String[] types = operands.split("-");
+            String lhs = types[0].equals("int") ? "7" : "7.5";
+            String rhs = types[1].equals("int") ? "3" : "3.5";
+            interpreter = new Interpreter(new Diagnostics());
+            expr = (BinaryOperatorExpr)Programs.parseExpr(lhs + " " + operator + " " + rhs);
+        }
+
+        @TearDown
+        public void tearDown() {
+            interpreter.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class RangeState {
+        @Param({"10", "1000000"})
+        public long upperBound;
+
+        Interpreter interpreter;
+        RangeExpr expr;
+
+        @Setup
+        public void setup() {
+            interpreter = new Interpreter(new Diagnostics());
+            expr = (RangeExpr)Programs.parseExpr("{1, " + upperBound + "}");
+        }
+
+        @TearDown
+        public void tearDown() {
+            interpreter.close();
+        }
+    }
+
+    @Benchmark
+    public Value binaryOperator(BinaryOperatorState state) {
+        return state.interpreter.visitBinaryOperatorExpr(state.expr);
+    }
+
+    @Benchmark
+    public Value range(RangeState state) {
+        return state.interpreter.visitRangeExpr(state.expr);
+    }
+}
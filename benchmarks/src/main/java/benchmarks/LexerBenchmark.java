@@ -0,0 +1,45 @@
+package benchmarks;
+
+import backend.errorHandling.Diagnostics;
+import backend.parser.Lexer;
+import backend.parser.Token;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.CharBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how fast {@link Lexer#nextToken()} splits a generated program into tokens
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LexerBenchmark {
+
+    @Param({"1000", "100000"})
+    public int statements;
+
+    private String source;
+
+    @Setup
+    public void setup() {
+        source = Programs.generate(statements);
+    }
+
+    @Benchmark
+    public int lex(Blackhole blackhole) {
+        Lexer lexer = new Lexer(CharBuffer.wrap(source), new Diagnostics());
+        int tokens = 0;
+        Token token;
+        do {
+            token = lexer.nextToken();
+            blackhole.consume(token);
+            tokens++;
+        } while (token.getKind() != Token.Kind.EOF);
+        return tokens;
+    }
+}
@@ -0,0 +1,68 @@
+package benchmarks;
+
+import backend.AST.MapExpr;
+import backend.AST.ReduceExpr;
+import backend.errorHandling.Diagnostics;
+import backend.interpreter.Interpreter;
+import backend.interpreter.Value;
+import org.openjdk.jmh.annotations.*;
+import utils.ThreadManager;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures <code>map</code> and <code>reduce</code> over ranges of different sizes, which are
+ * evaluated in chunks on a worker pool created by {@link ThreadManager#newPool(int)}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapReduceBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public long size;
+
+    @Param({"1", "2", "4"})
+    public int threads;
+
+    private ForkJoinPool pool;
+    private Interpreter interpreter;
+    private MapExpr map;
+    private ReduceExpr reduce;
+    private ReduceExpr mapReduce;
+
+    @Setup
+    public void setup() {
+        pool = ThreadManager.newPool(threads);
+        interpreter = new Interpreter(new Diagnostics());
+        map = (MapExpr)Programs.parseExpr("map({1, " + size + "}, x -> x * x - 1)");
+        reduce = (ReduceExpr)Programs.parseExpr("reduce({1, " + size + "}, 0, a b -> a + b)");
+        mapReduce = (ReduceExpr)Programs.parseExpr(
+                "reduce(map({1, " + size + "}, x -> x / 2), 0, a b -> a + b)");
+    }
+
+    @TearDown
+    public void tearDown() {
+        interpreter.close();
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public Value map() {
+        return pool.submit(() -> interpreter.visitMapExpr(map)).join();
+    }
+
+    @Benchmark
+    public Value reduce() {
+        return pool.submit(() -> interpreter.visitReduceExpr(reduce)).join();
+    }
+
+    @Benchmark
+    public Value mapReduce() {
+        return pool.submit(() -> interpreter.visitReduceExpr(mapReduce)).join();
+    }
+}
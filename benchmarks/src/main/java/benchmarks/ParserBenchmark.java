@@ -0,0 +1,44 @@
+package benchmarks;
+
+import backend.errorHandling.Diagnostics;
+import backend.parser.Parser;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.CharBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long {@link Parser#parse()} takes to build the AST of large generated programs,
+ * sequentially and with parallel parsing
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+
+    @Param({"10000", "100000"})
+    public int statements;
+
+    /** The parallel parsing threshold in characters, 0 to parse sequentially */
+    @Param({"0", "65536"})
+    public long parallelParsingThreshold;
+
+    private String source;
+
+    @Setup
+    public void setup() {
+        source = Programs.generate(statements);
+    }
+
+    @Benchmark
+    public void parse(Blackhole blackhole) {
+        Parser parser = new Parser(CharBuffer.wrap(source), blackhole::consume, new Diagnostics(),
+                null);
+        parser.setParallelParsingThreshold(parallelParsingThreshold);
+        parser.parse();
+    }
+}
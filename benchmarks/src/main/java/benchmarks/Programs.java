@@ -0,0 +1,79 @@
+package benchmarks;
+
+import backend.AST.Expr;
+import backend.AST.OutStmt;
+import backend.AST.Stmt;
+import backend.errorHandling.Diagnostics;
+import backend.parser.Parser;
+import backend.typeChecker.TypeChecker;
+import org.jetbrains.annotations.NotNull;
+import programGenerator.ProgramGenerator;
+
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Generates the source code the benchmarks operate on and prepares ASTs for them
+ */
+final class Programs {
+
+    private Programs() {}
+
+    /**
+     * @param statements The number of statements to generate
+     * @return A program generated by {@link ProgramGenerator} with a fixed seed
+     */
+    @NotNull
+    static String generate(int statements) {
+        ProgramGenerator generator = new ProgramGenerator();
+        generator.setStatements(statements);
+        return generator.generate();
+    }
+
+    /**
+     * @param depth The number of nested lambdas
+     * @return An out statement whose lambdas are nested <code>depth</code> levels deep and use the
+     *         parameters of all enclosing lambdas
+     */
+    @NotNull
+    static String generateNestedLambdas(int depth) {
+        StringBuilder sb = new StringBuilder("out ");
+        for (int i = 0; i < depth; i++) {
+            sb.append("map({1, 2}, x").append(i).append(" -> ");
+        }
+        for (int i = 0; i < depth; i++) {
+            sb.append(i == 0 ? "x" : " + x").append(i);
+        }
+        for (int i = 0; i < depth; i++) {
+            sb.append(")");
+        }
+        return sb.append("\n").toString();
+    }
+
+    /**
+     * Parse and type check source code
+     * @param source The source code to parse
+     * @return The statements of the source code
+     */
+    @NotNull
+    static List<Stmt> parse(@NotNull String source) {
+        List<Stmt> stmts = new ArrayList<>();
+        Diagnostics diagnostics = new Diagnostics();
+        new Parser(CharBuffer.wrap(source), new TypeChecker(stmts::add, diagnostics), diagnostics,
+                null).parse();
+        if (!diagnostics.getErrors().isEmpty()) {
+            throw new IllegalArgumentException(diagnostics.getErrors().get(0).getMessage());
+        }
+        return stmts;
+    }
+
+    /**
+     * @param expression The source code of an expression
+     * @return The type checked AST of the expression
+     */
+    @NotNull
+    static Expr parseExpr(@NotNull String expression) {
+        return ((OutStmt)parse("out " + expression + "\n").get(0)).getArgument();
+    }
+}
@@ -0,0 +1,37 @@
+package benchmarks;
+
+import backend.AST.Stmt;
+import backend.errorHandling.Diagnostics;
+import backend.typeChecker.TypeChecker;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long {@link TypeChecker} takes to check lambdas that are nested deeply and
+ * reference the parameters of all enclosing lambdas
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TypeCheckerBenchmark {
+
+    @Param({"10", "100", "500"})
+    public int depth;
+
+    private Stmt stmt;
+
+    @Setup
+    public void setup() {
+        stmt = Programs.parse(Programs.generateNestedLambdas(depth)).get(0);
+    }
+
+    @Benchmark
+    public void typeCheck(Blackhole blackhole) {
+        new TypeChecker(blackhole::consume, new Diagnostics()).consumeStmt(stmt);
+    }
+}
@@ -6,23 +6,38 @@ import backend.utils.SourceLoc;
 
 public abstract class ASTNode {
 
-    @NotNull private final SourceLoc startLocation;
-    @NotNull private final SourceLoc endLocation;
+    /** The start position in the source code, packed by {@link SourceLoc#pack(int, int)} */
+    private final long startPosition;
+    /** The end position in the source code, packed by {@link SourceLoc#pack(int, int)} */
+    private final long endPosition;
+
+    protected ASTNode(long startPosition, long endPosition) {
+        this.startPosition = startPosition;
+        this.endPosition = endPosition;
+    }
 
-    protected ASTNode(@NotNull SourceLoc startLocation, @NotNull SourceLoc endLocation) {
-        this.startLocation = startLocation;
-        this.endLocation = endLocation;
+    /**
+     * @return The packed start position of this node, see {@link SourceLoc#pack(int, int)}
+     */
+    public long getStartPosition() {
+        return startPosition;
     }
 
+    /**
+     * @return The packed end position of this node, see {@link SourceLoc#pack(int, int)}
+     */
+    public long getEndPosition() {
+        return endPosition;
+    }
 
     @NotNull
     public SourceLoc getStartLocation() {
-        return startLocation;
+        return SourceLoc.unpack(startPosition);
     }
 
     @NotNull
     public SourceLoc getEndLocation() {
-        return endLocation;
+        return SourceLoc.unpack(endPosition);
     }
 
     public abstract <T> T acceptVisitor(ASTVisitor<T> visitor);
@@ -2,7 +2,6 @@ package backend.AST;
 
 import org.jetbrains.annotations.NotNull;
 import backend.utils.ASTVisitor;
-import backend.utils.SourceLoc;
 
 /**
  * <code>
@@ -15,9 +14,9 @@ public final class AssignStmt extends Stmt {
     @NotNull private final Variable lhs;
     @NotNull private final Expr rhs;
 
-    public AssignStmt(@NotNull SourceLoc startLocation, @NotNull SourceLoc endLocation,
+    public AssignStmt(long startPosition, long endPosition,
                       @NotNull Variable lhs, @NotNull Expr rhs) {
-        super(startLocation, endLocation);
+        super(startPosition, endPosition);
         this.lhs = lhs;
         this.rhs = rhs;
     }
@@ -2,7 +2,6 @@ package backend.AST;
 
 import org.jetbrains.annotations.NotNull;
 import backend.utils.ASTVisitor;
-import backend.utils.SourceLoc;
 
 /**
  * <code>
@@ -66,9 +65,9 @@ public final class BinaryOperatorExpr extends Expr {
     @NotNull private final Operator op;
     @NotNull private final Expr rhs;
 
-    public BinaryOperatorExpr(@NotNull SourceLoc startLocation, @NotNull SourceLoc endLocation,
+    public BinaryOperatorExpr(long startPosition, long endPosition,
                               @NotNull Expr lhs, @NotNull Operator op, @NotNull Expr rhs) {
-        super(startLocation, endLocation);
+        super(startPosition, endPosition);
         this.lhs = lhs;
         this.op = op;
         this.rhs = rhs;
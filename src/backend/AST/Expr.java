@@ -3,14 +3,15 @@ package backend.AST;
 import backend.AST.Type.Type;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
-import backend.utils.SourceLoc;
 
 public abstract class Expr extends ASTNode {
 
     @Nullable private Type type;
+    /** Whether this expression occurs at multiple places in the AST */
+    private boolean shared = false;
 
-    protected Expr(@NotNull SourceLoc startLocation, @NotNull SourceLoc endLocation) {
-        super(startLocation, endLocation);
+    protected Expr(long startPosition, long endPosition) {
+        super(startPosition, endPosition);
     }
 
     /**
@@ -32,4 +33,21 @@ public abstract class Expr extends ASTNode {
     public void setType(@NotNull Type type) {
         this.type = type;
     }
+
+    /**
+     * Returns whether the parser has used this expression for multiple structurally identical
+     * subtrees. Shared expressions don't reference any variables and always evaluate to the same
+     * value. Their location is that of their first occurrence
+     * @return <code>true</code> if this expression occurs at multiple places in the AST
+     */
+    public boolean isShared() {
+        return shared;
+    }
+
+    /**
+     * Mark that this expression occurs at multiple places in the AST
+     */
+    public void markShared() {
+        this.shared = true;
+    }
 }
@@ -1,8 +1,6 @@
 package backend.AST;
 
-import org.jetbrains.annotations.NotNull;
 import backend.utils.ASTVisitor;
-import backend.utils.SourceLoc;
 
 /**
  * <code>
@@ -12,9 +10,9 @@ import backend.utils.SourceLoc;
 public final class FloatLiteralExpr extends Expr {
     private final double value;
 
-    public FloatLiteralExpr(@NotNull SourceLoc startLocation, @NotNull SourceLoc endLocation,
+    public FloatLiteralExpr(long startPosition, long endPosition,
                             double value) {
-        super(startLocation, endLocation);
+        super(startPosition, endPosition);
         this.value = value;
     }
 
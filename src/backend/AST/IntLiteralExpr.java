@@ -1,8 +1,6 @@
 package backend.AST;
 
-import org.jetbrains.annotations.NotNull;
 import backend.utils.ASTVisitor;
-import backend.utils.SourceLoc;
 
 /**
  * <code>
@@ -10,15 +8,15 @@ import backend.utils.SourceLoc;
  * </code>
  */
 public class IntLiteralExpr extends Expr {
-    private final int value;
+    private final long value;
 
-    public IntLiteralExpr(@NotNull SourceLoc startLocation, @NotNull SourceLoc endLocation,
-                          int value) {
-        super(startLocation, endLocation);
+    public IntLiteralExpr(long startPosition, long endPosition,
+                          long value) {
+        super(startPosition, endPosition);
         this.value = value;
     }
 
-    public int getValue() {
+    public long getValue() {
         return value;
     }
 
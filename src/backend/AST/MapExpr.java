@@ -2,7 +2,6 @@ package backend.AST;
 
 import org.jetbrains.annotations.NotNull;
 import backend.utils.ASTVisitor;
-import backend.utils.SourceLoc;
 
 /**
  * <code>
@@ -27,15 +26,15 @@ public final class MapExpr extends Expr {
     @NotNull private final Expr lambda;
 
     /**
-     * @param startLocation The location of the map keyword in the source code
-     * @param endLocation The location of the closing parenthesis in the source code
+     * @param startPosition The position of the map keyword in the source code
+     * @param endPosition The position of the closing parenthesis in the source code
      * @param argument The sequence to transform
      * @param lambdaParam The variable that contains the value to transform in each lambda iteration
      * @param lambda The lambda to transform the sequence's values
      */
-    public MapExpr(@NotNull SourceLoc startLocation, @NotNull SourceLoc endLocation,
+    public MapExpr(long startPosition, long endPosition,
                    @NotNull Expr argument, @NotNull Variable lambdaParam, @NotNull Expr lambda) {
-        super(startLocation, endLocation);
+        super(startPosition, endPosition);
         this.argument = argument;
         this.lambdaParam = lambdaParam;
         this.lambda = lambda;
@@ -2,7 +2,6 @@ package backend.AST;
 
 import org.jetbrains.annotations.NotNull;
 import backend.utils.ASTVisitor;
-import backend.utils.SourceLoc;
 
 /**
  * <code>
@@ -15,9 +14,9 @@ public final class OutStmt extends Stmt {
     @NotNull
     private final Expr argument;
 
-    public OutStmt(@NotNull SourceLoc startLocation, @NotNull SourceLoc endLocation,
+    public OutStmt(long startPosition, long endPosition,
                    @NotNull Expr argument) {
-        super(startLocation, endLocation);
+        super(startPosition, endPosition);
         this.argument = argument;
     }
 
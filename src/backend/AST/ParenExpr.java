@@ -2,7 +2,6 @@ package backend.AST;
 
 import org.jetbrains.annotations.NotNull;
 import backend.utils.ASTVisitor;
-import backend.utils.SourceLoc;
 
 /**
  * <code>
@@ -13,9 +12,9 @@ import backend.utils.SourceLoc;
 public final class ParenExpr extends Expr {
     @NotNull private final Expr subExpr;
 
-    public ParenExpr(@NotNull SourceLoc startLocation, @NotNull SourceLoc endLocation,
+    public ParenExpr(long startPosition, long endPosition,
                      @NotNull Expr subExpr) {
-        super(startLocation, endLocation);
+        super(startPosition, endPosition);
         this.subExpr = subExpr;
     }
 
@@ -2,7 +2,6 @@ package backend.AST;
 
 import org.jetbrains.annotations.NotNull;
 import backend.utils.ASTVisitor;
-import backend.utils.SourceLoc;
 
 /**
  * <code>
@@ -20,9 +19,9 @@ public final class PrintStmt extends Stmt {
     @NotNull
     private final String argument;
 
-    public PrintStmt(@NotNull SourceLoc startLocation, @NotNull SourceLoc endLocation,
+    public PrintStmt(long startPosition, long endPosition,
                      @NotNull String argument) {
-        super(startLocation, endLocation);
+        super(startPosition, endPosition);
         this.argument = argument;
     }
 
@@ -2,7 +2,6 @@ package backend.AST;
 
 import org.jetbrains.annotations.NotNull;
 import backend.utils.ASTVisitor;
-import backend.utils.SourceLoc;
 
 /**
  * <code>
@@ -20,9 +19,9 @@ public final class RangeExpr extends Expr {
     @NotNull private final Expr lowerBound;
     @NotNull private final Expr upperBound;
 
-    public RangeExpr(@NotNull SourceLoc startLocation, @NotNull SourceLoc endLocation,
+    public RangeExpr(long startPosition, long endPosition,
                      @NotNull Expr lowerBound, @NotNull Expr upperBound) {
-        super(startLocation, endLocation);
+        super(startPosition, endPosition);
         this.lowerBound = lowerBound;
         this.upperBound = upperBound;
     }
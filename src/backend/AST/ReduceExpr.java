@@ -2,7 +2,6 @@ package backend.AST;
 
 import org.jetbrains.annotations.NotNull;
 import backend.utils.ASTVisitor;
-import backend.utils.SourceLoc;
 
 /**
  * <code>
@@ -30,10 +29,10 @@ public final class ReduceExpr extends Expr {
     @NotNull private final Variable lambdaParam2;
     @NotNull private final Expr lambda;
 
-    public ReduceExpr(@NotNull SourceLoc startLocation, @NotNull SourceLoc endLocation,
+    public ReduceExpr(long startPosition, long endPosition,
                       @NotNull Expr base, @NotNull Expr sequence, @NotNull Variable lambdaParam1,
                       @NotNull Variable lambdaParam2, @NotNull Expr lambda) {
-        super(startLocation, endLocation);
+        super(startPosition, endPosition);
         this.base = base;
         this.sequence = sequence;
         this.lambdaParam1 = lambdaParam1;
@@ -1,13 +1,35 @@
 package backend.AST;
 
 import org.jetbrains.annotations.NotNull;
-import backend.utils.SourceLoc;
+
+import java.util.Collections;
+import java.util.List;
 
 /**
  * A statement in the program that may have side-effects but does not return a value
  */
 public abstract class Stmt extends ASTNode {
-    public Stmt(@NotNull SourceLoc startLocation, @NotNull SourceLoc endLocation) {
-        super(startLocation, endLocation);
+    @NotNull private List<Variable> variablesDyingAfter = Collections.emptyList();
+
+    public Stmt(long startPosition, long endPosition) {
+        super(startPosition, endPosition);
+    }
+
+    /**
+     * Returns the variables that are no longer referenced after this statement has been executed
+     * and whose values can thus be discarded. Empty unless liveness analysis has been performed
+     * @return The variables whose last use is this statement
+     */
+    @NotNull
+    public List<Variable> getVariablesDyingAfter() {
+        return variablesDyingAfter;
+    }
+
+    /**
+     * Set the variables that are no longer referenced after this statement has been executed
+     * @param variablesDyingAfter The variables whose last use is this statement
+     */
+    public void setVariablesDyingAfter(@NotNull List<Variable> variablesDyingAfter) {
+        this.variablesDyingAfter = variablesDyingAfter;
     }
 }
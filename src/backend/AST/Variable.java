@@ -12,6 +12,8 @@ import org.jetbrains.annotations.Nullable;
 public final class Variable {
     @NotNull private final String name;
     @Nullable private Type type = null;
+    /** Whether the variable's value may be referenced by anything but the variable itself */
+    private boolean escaping = false;
 
     public Variable(@NotNull String name) {
         this.name = name;
@@ -41,6 +43,23 @@ public final class Variable {
         this.type = type;
     }
 
+    /**
+     * Returns whether the variable's value may be referenced from somewhere else than this
+     * variable, e.g. because it has been assigned to another variable, has been output or may be
+     * returned by a lambda. Only valid after liveness analysis has been performed
+     * @return <code>true</code> if the variable's value may be referenced from somewhere else
+     */
+    public boolean isEscaping() {
+        return escaping;
+    }
+
+    /**
+     * Mark that the variable's value may be referenced from somewhere else than this variable
+     */
+    public void markEscaping() {
+        this.escaping = true;
+    }
+
     @Override
     public String toString() {
         return name;
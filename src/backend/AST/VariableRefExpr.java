@@ -3,7 +3,6 @@ package backend.AST;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import backend.utils.ASTVisitor;
-import backend.utils.SourceLoc;
 
 /**
  * <code>
@@ -14,9 +13,9 @@ public final class VariableRefExpr extends Expr {
     @NotNull private final String variableName;
     @Nullable private Variable referencedVariable;
 
-    public VariableRefExpr(@NotNull SourceLoc startLocation, @NotNull SourceLoc endLocation,
+    public VariableRefExpr(long startPosition, long endPosition,
                            @NotNull String variableName) {
-        super(startLocation, endLocation);
+        super(startPosition, endPosition);
         this.variableName = variableName;
     }
 
@@ -0,0 +1,562 @@
+package backend.AST.flat;
+
+import backend.AST.BinaryOperatorExpr;
+import backend.AST.Type.NumberType;
+import backend.AST.Type.SequenceType;
+import backend.AST.Type.Type;
+import backend.utils.SourceLoc;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A compact representation of a type checked program. Instead of one object per AST node, all
+ * nodes are stored in parallel primitive arrays and referenced by their index. Children are always
+ * added before their parent, so a node's subtree is stored right in front of it.
+ *
+ * <p>
+ * Each node has a kind, up to three children, a payload whose meaning depends on the node's kind
+ * (see {@link Kind}), a start and an end position packed by {@link SourceLoc#pack(int, int)} and
+ * a type. Variables are identified by slots, i.e. indices into {@link #getVariableName(int)},
+ * such that variables with the same name in different scopes have different slots.
+ * </p>
+ *
+ * <p>
+ * Use {@link FlatASTBuilder} to create a flat AST from type checked statements and
+ * {@link #accept(int, FlatASTVisitor)} to walk it.
+ * </p>
+ */
+public final class FlatAST {
+
+    /**
+     * The kind of a node together with the layout of its children and payload
+     */
+    public enum Kind {
+        /** Children: rhs. Payload: the slot of the assigned variable */
+        ASSIGN_STMT,
+        /** Children: lhs, rhs. Payload: the ordinal of the operator */
+        BINARY_OPERATOR_EXPR,
+        /** Payload: the bits of the value, see {@link Double#doubleToRawLongBits(double)} */
+        FLOAT_LITERAL_EXPR,
+        /** Payload: the slot of the referenced variable */
+        VARIABLE_REF_EXPR,
+        /** Payload: the value */
+        INT_LITERAL_EXPR,
+        /** Children: argument, lambda. Payload: the slot of the lambda parameter */
+        MAP_EXPR,
+        /** Children: argument */
+        OUT_STMT,
+        /** Children: sub-expression */
+        PAREN_EXPR,
+        /** Payload: the index of the printed string */
+        PRINT_STMT,
+        /** Children: lower bound, upper bound */
+        RANGE_EXPR,
+        /**
+         * Children: base, sequence, lambda. Payload: the slot of the first lambda parameter in the
+         * upper and that of the second in the lower 32 bits
+         */
+        REDUCE_EXPR
+    }
+
+    private static final Kind[] KINDS = Kind.values();
+    private static final BinaryOperatorExpr.Operator[] OPERATORS =
+            BinaryOperatorExpr.Operator.values();
+    /** Marks a missing child */
+    private static final int NO_CHILD = -1;
+    /** Marks a statement that has no type */
+    private static final byte NO_TYPE = -1;
+
+    private int numberOfNodes = 0;
+    @NotNull private byte[] kinds = new byte[64];
+    @NotNull private int[] firstChildren = new int[64];
+    @NotNull private int[] secondChildren = new int[64];
+    @NotNull private int[] thirdChildren = new int[64];
+    @NotNull private long[] payloads = new long[64];
+    @NotNull private long[] startPositions = new long[64];
+    @NotNull private long[] endPositions = new long[64];
+    /**
+     * The number of sequences nested in the node's type, i.e. 0 for <code>Number</code> and 2 for
+     * <code>Sequence&lt;Sequence&lt;Number&gt;&gt;</code>, or {@link #NO_TYPE}
+     */
+    @NotNull private byte[] types = new byte[64];
+
+    /** The root nodes of all statements in source order */
+    private int numberOfStmts = 0;
+    @NotNull private int[] stmts = new int[16];
+
+    private int numberOfVariables = 0;
+    @NotNull private String[] variableNames = new String[16];
+
+    private int numberOfStrings = 0;
+    @NotNull private String[] strings = new String[4];
+
+    /**
+     * Add a node to the AST. Its children must already have been added
+     * @return The index of the new node
+     */
+    int addNode(@NotNull Kind kind, long startPosition, long endPosition, int firstChild,
+                int secondChild, int thirdChild, long payload, @Nullable Type type) {
+        if (numberOfNodes == kinds.length) {
+            int capacity = Math.max(16, numberOfNodes * 2);
+            kinds = Arrays.copyOf(kinds, capacity);
+            firstChildren = Arrays.copyOf(firstChildren, capacity);
+            secondChildren = Arrays.copyOf(secondChildren, capacity);
+            thirdChildren = Arrays.copyOf(thirdChildren, capacity);
+            payloads = Arrays.copyOf(payloads, capacity);
+            startPositions = Arrays.copyOf(startPositions, capacity);
+            endPositions = Arrays.copyOf(endPositions, capacity);
+            types = Arrays.copyOf(types, capacity);
+        }
+        int node = numberOfNodes++;
+        kinds[node] = (byte)kind.ordinal();
+        firstChildren[node] = firstChild;
+        secondChildren[node] = secondChild;
+        thirdChildren[node] = thirdChild;
+        payloads[node] = payload;
+        startPositions[node] = startPosition;
+        endPositions[node] = endPosition;
+        types[node] = type == null ? NO_TYPE : encodeType(type);
+        return node;
+    }
+
+    int addNode(@NotNull Kind kind, long startPosition, long endPosition, int firstChild,
+                int secondChild, long payload, @Nullable Type type) {
+        return addNode(kind, startPosition, endPosition, firstChild, secondChild, NO_CHILD,
+                payload, type);
+    }
+
+    int addNode(@NotNull Kind kind, long startPosition, long endPosition, int firstChild,
+                long payload, @Nullable Type type) {
+        return addNode(kind, startPosition, endPosition, firstChild, NO_CHILD, NO_CHILD, payload,
+                type);
+    }
+
+    int addNode(@NotNull Kind kind, long startPosition, long endPosition, long payload,
+                @Nullable Type type) {
+        return addNode(kind, startPosition, endPosition, NO_CHILD, NO_CHILD, NO_CHILD, payload,
+                type);
+    }
+
+    /**
+     * Mark a node as the root of the next statement
+     */
+    void addStmt(int node) {
+        if (numberOfStmts == stmts.length) {
+            stmts = Arrays.copyOf(stmts, Math.max(16, numberOfStmts * 2));
+        }
+        stmts[numberOfStmts++] = node;
+    }
+
+    /**
+     * @return The slot of the new variable
+     */
+    int addVariable(@NotNull String name) {
+        if (numberOfVariables == variableNames.length) {
+            variableNames = Arrays.copyOf(variableNames,
+                    Math.max(16, numberOfVariables * 2));
+        }
+        variableNames[numberOfVariables] = name;
+        return numberOfVariables++;
+    }
+
+    /**
+     * @return The index of the new string
+     */
+    int addString(@NotNull String string) {
+        if (numberOfStrings == strings.length) {
+            strings = Arrays.copyOf(strings, Math.max(4, numberOfStrings * 2));
+        }
+        strings[numberOfStrings] = string;
+        return numberOfStrings++;
+    }
+
+    private static byte encodeType(@NotNull Type type) {
+        byte depth = 0;
+        while (type instanceof SequenceType) {
+            type = ((SequenceType)type).getSubType();
+            depth++;
+        }
+        assert type instanceof NumberType : "Unknown type: " + type;
+        return depth;
+    }
+
+    /**
+     * Release the spare capacity of the arrays once no more nodes are going to be added, e.g.
+     * before keeping the AST around for a long time
+     */
+    public void trimToSize() {
+        kinds = Arrays.copyOf(kinds, numberOfNodes);
+        firstChildren = Arrays.copyOf(firstChildren, numberOfNodes);
+        secondChildren = Arrays.copyOf(secondChildren, numberOfNodes);
+        thirdChildren = Arrays.copyOf(thirdChildren, numberOfNodes);
+        payloads = Arrays.copyOf(payloads, numberOfNodes);
+        startPositions = Arrays.copyOf(startPositions, numberOfNodes);
+        endPositions = Arrays.copyOf(endPositions, numberOfNodes);
+        types = Arrays.copyOf(types, numberOfNodes);
+        stmts = Arrays.copyOf(stmts, numberOfStmts);
+        variableNames = Arrays.copyOf(variableNames, numberOfVariables);
+        strings = Arrays.copyOf(strings, numberOfStrings);
+    }
+
+    /**
+     * @return The number of bytes {@link #writeTo(ByteBuffer)} writes
+     */
+    public long getSerializedSize() {
+        long size = 4 + (long)numberOfNodes * (1 + 1 + 3 * 4 + 3 * 8) + 4 + numberOfStmts * 4L;
+        return size + getSerializedSize(variableNames, numberOfVariables) +
+                getSerializedSize(strings, numberOfStrings);
+    }
+
+    private static long getSerializedSize(@NotNull String[] strings, int count) {
+        long size = 4;
+        for (int i = 0; i < count; i++) {
+            size += 4 + strings[i].length() * 2L;
+        }
+        return size;
+    }
+
+    /**
+     * Write the AST to the buffer in a binary format that can be read by
+     * {@link #readFrom(ByteBuffer)}. The buffer needs to have at least
+     * {@link #getSerializedSize()} bytes remaining
+     * @param buffer The buffer to write to
+     */
+    public void writeTo(@NotNull ByteBuffer buffer) {
+        buffer.putInt(numberOfNodes);
+        buffer.put(kinds, 0, numberOfNodes);
+        buffer.put(types, 0, numberOfNodes);
+        putInts(buffer, firstChildren, numberOfNodes);
+        putInts(buffer, secondChildren, numberOfNodes);
+        putInts(buffer, thirdChildren, numberOfNodes);
+        putLongs(buffer, payloads, numberOfNodes);
+        putLongs(buffer, startPositions, numberOfNodes);
+        putLongs(buffer, endPositions, numberOfNodes);
+        buffer.putInt(numberOfStmts);
+        putInts(buffer, stmts, numberOfStmts);
+        putStrings(buffer, variableNames, numberOfVariables);
+        putStrings(buffer, strings, numberOfStrings);
+    }
+
+    private static void putInts(@NotNull ByteBuffer buffer, @NotNull int[] values, int count) {
+        buffer.asIntBuffer().put(values, 0, count);
+        buffer.position(buffer.position() + count * 4);
+    }
+
+    private static void putLongs(@NotNull ByteBuffer buffer, @NotNull long[] values, int count) {
+        buffer.asLongBuffer().put(values, 0, count);
+        buffer.position(buffer.position() + count * 8);
+    }
+
+    private static void putStrings(@NotNull ByteBuffer buffer, @NotNull String[] strings,
+                                   int count) {
+        buffer.putInt(count);
+        for (int i = 0; i < count; i++) {
+            buffer.putInt(strings[i].length());
+            buffer.asCharBuffer().put(strings[i]);
+            buffer.position(buffer.position() + strings[i].length() * 2);
+        }
+    }
+
+    /**
+     * Read an AST written by {@link #writeTo(ByteBuffer)}
+     * @param buffer The buffer to read from, e.g. a memory-mapped file
+     * @return The AST
+     * @throws IllegalArgumentException If the buffer does not contain a well-formed AST
+     */
+    @NotNull
+    public static FlatAST readFrom(@NotNull ByteBuffer buffer) {
+        try {
+            FlatAST ast = new FlatAST();
+            int numberOfNodes = getCount(buffer);
+            ast.numberOfNodes = numberOfNodes;
+            ast.kinds = new byte[numberOfNodes];
+            buffer.get(ast.kinds);
+            ast.types = new byte[numberOfNodes];
+            buffer.get(ast.types);
+            ast.firstChildren = getInts(buffer, numberOfNodes);
+            ast.secondChildren = getInts(buffer, numberOfNodes);
+            ast.thirdChildren = getInts(buffer, numberOfNodes);
+            ast.payloads = getLongs(buffer, numberOfNodes);
+            ast.startPositions = getLongs(buffer, numberOfNodes);
+            ast.endPositions = getLongs(buffer, numberOfNodes);
+            ast.numberOfStmts = getCount(buffer);
+            ast.stmts = getInts(buffer, ast.numberOfStmts);
+            ast.numberOfVariables = getCount(buffer);
+            ast.variableNames = getStrings(buffer, ast.numberOfVariables);
+            ast.numberOfStrings = getCount(buffer);
+            ast.strings = getStrings(buffer, ast.numberOfStrings);
+            ast.verify();
+            return ast;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Flat AST is truncated", e);
+        }
+    }
+
+    private static int getCount(@NotNull ByteBuffer buffer) {
+        int count = buffer.getInt();
+        if (count < 0 || count > buffer.remaining()) {
+            throw new IllegalArgumentException("Invalid count in flat AST: " + count);
+        }
+        return count;
+    }
+
+    @NotNull
+    private static int[] getInts(@NotNull ByteBuffer buffer, int count) {
+        int[] values = new int[count];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + count * 4);
+        return values;
+    }
+
+    @NotNull
+    private static long[] getLongs(@NotNull ByteBuffer buffer, int count) {
+        long[] values = new long[count];
+        buffer.asLongBuffer().get(values);
+        buffer.position(buffer.position() + count * 8);
+        return values;
+    }
+
+    @NotNull
+    private static String[] getStrings(@NotNull ByteBuffer buffer, int count) {
+        String[] strings = new String[count];
+        for (int i = 0; i < count; i++) {
+            int length = getCount(buffer);
+            char[] chars = new char[length];
+            buffer.asCharBuffer().get(chars);
+            buffer.position(buffer.position() + length * 2);
+            strings[i] = new String(chars);
+        }
+        return strings;
+    }
+
+    /**
+     * Make sure that all references between nodes, variables and strings are valid so that walking
+     * a flat AST that has been read from a file cannot fail
+     * @throws IllegalArgumentException If a reference is invalid
+     */
+    private void verify() {
+        for (int node = 0; node < numberOfNodes; node++) {
+            if (kinds[node] < 0 || kinds[node] >= KINDS.length || types[node] < NO_TYPE) {
+                throw new IllegalArgumentException("Invalid node in flat AST: " + node);
+            }
+            int numberOfChildren;
+            switch (getKind(node)) {
+                case ASSIGN_STMT:
+                case VARIABLE_REF_EXPR:
+                    numberOfChildren = getKind(node) == Kind.ASSIGN_STMT ? 1 : 0;
+                    verifyIndex(payloads[node], numberOfVariables);
+                    break;
+                case BINARY_OPERATOR_EXPR:
+                    numberOfChildren = 2;
+                    verifyIndex(payloads[node], OPERATORS.length);
+                    break;
+                case MAP_EXPR:
+                    numberOfChildren = 2;
+                    verifyIndex(payloads[node], numberOfVariables);
+                    break;
+                case OUT_STMT:
+                case PAREN_EXPR:
+                    numberOfChildren = 1;
+                    break;
+                case PRINT_STMT:
+                    numberOfChildren = 0;
+                    verifyIndex(payloads[node], numberOfStrings);
+                    break;
+                case RANGE_EXPR:
+                    numberOfChildren = 2;
+                    break;
+                case REDUCE_EXPR:
+                    numberOfChildren = 3;
+                    verifyIndex(payloads[node] >>> 32, numberOfVariables);
+                    verifyIndex(payloads[node] & 0xFFFFFFFFL, numberOfVariables);
+                    break;
+                default:
+                    numberOfChildren = 0;
+            }
+            // Children are always stored in front of their parent
+            int[][] children = {firstChildren, secondChildren, thirdChildren};
+            for (int i = 0; i < numberOfChildren; i++) {
+                verifyIndex(children[i][node], node);
+            }
+        }
+        for (int i = 0; i < numberOfStmts; i++) {
+            verifyIndex(stmts[i], numberOfNodes);
+        }
+    }
+
+    private static void verifyIndex(long index, int count) {
+        if (index < 0 || index >= count) {
+            throw new IllegalArgumentException("Invalid index in flat AST: " + index);
+        }
+    }
+
+    /**
+     * Call the visitor method matching the kind of <code>node</code>
+     * @param node The node to visit
+     * @param visitor The visitor to call
+     * @return The visitor's result
+     */
+    public <T> T accept(int node, @NotNull FlatASTVisitor<T> visitor) {
+        switch (getKind(node)) {
+            case ASSIGN_STMT:
+                return visitor.visitAssignStmt(node);
+            case BINARY_OPERATOR_EXPR:
+                return visitor.visitBinaryOperatorExpr(node);
+            case FLOAT_LITERAL_EXPR:
+                return visitor.visitFloatLiteralExpr(node);
+            case VARIABLE_REF_EXPR:
+                return visitor.visitIdentifierRefExpr(node);
+            case INT_LITERAL_EXPR:
+                return visitor.visitIntLiteralExpr(node);
+            case MAP_EXPR:
+                return visitor.visitMapExpr(node);
+            case OUT_STMT:
+                return visitor.visitOutStmt(node);
+            case PAREN_EXPR:
+                return visitor.visitParenExpr(node);
+            case PRINT_STMT:
+                return visitor.visitPrintStmt(node);
+            case RANGE_EXPR:
+                return visitor.visitRangeExpr(node);
+            case REDUCE_EXPR:
+                return visitor.visitReduceExpr(node);
+            default:
+                throw new RuntimeException("Unknown node kind: " + getKind(node));
+        }
+    }
+
+    public int getNumberOfNodes() {
+        return numberOfNodes;
+    }
+
+    public int getNumberOfStmts() {
+        return numberOfStmts;
+    }
+
+    /**
+     * @param index The index of the statement in source order
+     * @return The root node of the statement
+     */
+    public int getStmt(int index) {
+        assert index < numberOfStmts;
+        return stmts[index];
+    }
+
+    public int getNumberOfVariables() {
+        return numberOfVariables;
+    }
+
+    @NotNull
+    public String getVariableName(int slot) {
+        assert slot < numberOfVariables;
+        return variableNames[slot];
+    }
+
+    @NotNull
+    public Kind getKind(int node) {
+        return KINDS[kinds[node]];
+    }
+
+    /**
+     * @return The first child of the node, see {@link Kind} for the children of each kind
+     */
+    public int getFirstChild(int node) {
+        assert firstChildren[node] != NO_CHILD;
+        return firstChildren[node];
+    }
+
+    /**
+     * @return The second child of the node, see {@link Kind} for the children of each kind
+     */
+    public int getSecondChild(int node) {
+        assert secondChildren[node] != NO_CHILD;
+        return secondChildren[node];
+    }
+
+    /**
+     * @return The third child of the node, see {@link Kind} for the children of each kind
+     */
+    public int getThirdChild(int node) {
+        assert thirdChildren[node] != NO_CHILD;
+        return thirdChildren[node];
+    }
+
+    public long getStartPosition(int node) {
+        return startPositions[node];
+    }
+
+    public long getEndPosition(int node) {
+        return endPositions[node];
+    }
+
+    /**
+     * @return The number of sequences nested in the type of the expression, i.e. 0 for numbers
+     */
+    public int getSequenceDepth(int node) {
+        assert types[node] != NO_TYPE : "Node has no type";
+        return types[node];
+    }
+
+    /**
+     * @return The type of the expression. Creates a new object for sequence types
+     */
+    @NotNull
+    public Type getType(int node) {
+        Type type = NumberType.get();
+        for (int i = getSequenceDepth(node); i > 0; i--) {
+            type = new SequenceType(type);
+        }
+        return type;
+    }
+
+    @NotNull
+    public BinaryOperatorExpr.Operator getOperator(int node) {
+        assert getKind(node) == Kind.BINARY_OPERATOR_EXPR;
+        return OPERATORS[(int)payloads[node]];
+    }
+
+    public long getIntValue(int node) {
+        assert getKind(node) == Kind.INT_LITERAL_EXPR;
+        return payloads[node];
+    }
+
+    public double getFloatValue(int node) {
+        assert getKind(node) == Kind.FLOAT_LITERAL_EXPR;
+        return Double.longBitsToDouble(payloads[node]);
+    }
+
+    /**
+     * @return The slot of the assigned variable, the referenced variable or the map expression's
+     *         lambda parameter or the first lambda parameter of a reduce expression
+     */
+    public int getVariable(int node) {
+        switch (getKind(node)) {
+            case ASSIGN_STMT:
+            case VARIABLE_REF_EXPR:
+            case MAP_EXPR:
+                return (int)payloads[node];
+            case REDUCE_EXPR:
+                return (int)(payloads[node] >>> 32);
+            default:
+                throw new RuntimeException(getKind(node) + " does not have a variable");
+        }
+    }
+
+    /**
+     * @return The slot of the second lambda parameter of a reduce expression
+     */
+    public int getSecondVariable(int node) {
+        assert getKind(node) == Kind.REDUCE_EXPR;
+        return (int)payloads[node];
+    }
+
+    @NotNull
+    public String getString(int node) {
+        assert getKind(node) == Kind.PRINT_STMT;
+        return strings[(int)payloads[node]];
+    }
+}
@@ -0,0 +1,153 @@
+package backend.AST.flat;
+
+import backend.AST.*;
+import backend.utils.ASTConsumer;
+import backend.utils.ASTVisitor;
+import backend.utils.ExprFolder;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Appends the type checked statements it consumes to a {@link FlatAST}. The object AST of a
+ * statement is no longer referenced afterwards and can be garbage collected
+ */
+public final class FlatASTBuilder implements ASTConsumer, ASTVisitor<Integer>,
+        ExprFolder<Integer> {
+
+    @NotNull private final FlatAST ast = new FlatAST();
+    /** The slots of all variables that have been added to the flat AST */
+    @NotNull private final Map<Variable, Integer> variableSlots = new IdentityHashMap<>();
+
+    /**
+     * @return The flat AST containing all statements consumed so far
+     */
+    @NotNull
+    public FlatAST getAST() {
+        return ast;
+    }
+
+    @Override
+    public void consumeStmt(@NotNull Stmt stmt) {
+        ast.addStmt(add(stmt));
+    }
+
+    @Override
+    public void consumeEOF() {
+        ast.trimToSize();
+    }
+
+    private int add(@NotNull ASTNode node) {
+        return node.acceptVisitor(this);
+    }
+
+    private int getSlot(@NotNull Variable variable) {
+        Integer slot = variableSlots.get(variable);
+        if (slot == null) {
+            slot = ast.addVariable(variable.getName());
+            variableSlots.put(variable, slot);
+        }
+        return slot;
+    }
+
+    @Override
+    public Integer foldOperand(@NotNull Expr expr) {
+        return add(expr);
+    }
+
+    @Override
+    public Integer visitAssignStmt(AssignStmt assignStmt) {
+        int rhs = add(assignStmt.getRhs());
+        return ast.addNode(FlatAST.Kind.ASSIGN_STMT, assignStmt.getStartPosition(),
+                assignStmt.getEndPosition(), rhs, getSlot(assignStmt.getLhs()), null);
+    }
+
+    @Override
+    public Integer visitBinaryOperatorExpr(BinaryOperatorExpr binOpExpr) {
+        return ExprFolder.fold(binOpExpr, this);
+    }
+
+    @Override
+    public Integer foldBinaryOperator(@NotNull BinaryOperatorExpr binOpExpr, Integer lhs,
+                                      Integer rhs) {
+        return ast.addNode(FlatAST.Kind.BINARY_OPERATOR_EXPR, binOpExpr.getStartPosition(),
+                binOpExpr.getEndPosition(), lhs, rhs, binOpExpr.getOp().ordinal(),
+                binOpExpr.getType());
+    }
+
+    @Override
+    public Integer visitFloatLiteralExpr(FloatLiteralExpr floatLiteralExpr) {
+        return ast.addNode(FlatAST.Kind.FLOAT_LITERAL_EXPR, floatLiteralExpr.getStartPosition(),
+                floatLiteralExpr.getEndPosition(),
+                Double.doubleToRawLongBits(floatLiteralExpr.getValue()),
+                floatLiteralExpr.getType());
+    }
+
+    @Override
+    public Integer visitIdentifierRefExpr(VariableRefExpr variableRefExpr) {
+        return ast.addNode(FlatAST.Kind.VARIABLE_REF_EXPR, variableRefExpr.getStartPosition(),
+                variableRefExpr.getEndPosition(),
+                getSlot(variableRefExpr.getReferencedVariable()), variableRefExpr.getType());
+    }
+
+    @Override
+    public Integer visitIntLiteralExpr(IntLiteralExpr intLiteralExpr) {
+        return ast.addNode(FlatAST.Kind.INT_LITERAL_EXPR, intLiteralExpr.getStartPosition(),
+                intLiteralExpr.getEndPosition(), intLiteralExpr.getValue(),
+                intLiteralExpr.getType());
+    }
+
+    @Override
+    public Integer visitMapExpr(MapExpr mapExpr) {
+        int argument = add(mapExpr.getArgument());
+        int lambdaParam = getSlot(mapExpr.getLambdaParam());
+        int lambda = add(mapExpr.getLambda());
+        return ast.addNode(FlatAST.Kind.MAP_EXPR, mapExpr.getStartPosition(),
+                mapExpr.getEndPosition(), argument, lambda, lambdaParam, mapExpr.getType());
+    }
+
+    @Override
+    public Integer visitOutStmt(OutStmt outExpr) {
+        int argument = add(outExpr.getArgument());
+        return ast.addNode(FlatAST.Kind.OUT_STMT, outExpr.getStartPosition(),
+                outExpr.getEndPosition(), argument, 0, null);
+    }
+
+    @Override
+    public Integer visitParenExpr(ParenExpr parenExpr) {
+        return ExprFolder.fold(parenExpr, this);
+    }
+
+    @Override
+    public Integer foldParen(@NotNull ParenExpr parenExpr, Integer subExpr) {
+        return ast.addNode(FlatAST.Kind.PAREN_EXPR, parenExpr.getStartPosition(),
+                parenExpr.getEndPosition(), subExpr, 0, parenExpr.getType());
+    }
+
+    @Override
+    public Integer visitPrintStmt(PrintStmt printStmt) {
+        return ast.addNode(FlatAST.Kind.PRINT_STMT, printStmt.getStartPosition(),
+                printStmt.getEndPosition(), ast.addString(printStmt.getArgument()), null);
+    }
+
+    @Override
+    public Integer visitRangeExpr(RangeExpr rangeExpr) {
+        int lowerBound = add(rangeExpr.getLowerBound());
+        int upperBound = add(rangeExpr.getUpperBound());
+        return ast.addNode(FlatAST.Kind.RANGE_EXPR, rangeExpr.getStartPosition(),
+                rangeExpr.getEndPosition(), lowerBound, upperBound, 0, rangeExpr.getType());
+    }
+
+    @Override
+    public Integer visitReduceExpr(ReduceExpr reduceExpr) {
+        int base = add(reduceExpr.getBase());
+        int sequence = add(reduceExpr.getSequence());
+        long lambdaParams = ((long)getSlot(reduceExpr.getLambdaParam1()) << 32) |
+                getSlot(reduceExpr.getLambdaParam2());
+        int lambda = add(reduceExpr.getLambda());
+        return ast.addNode(FlatAST.Kind.REDUCE_EXPR, reduceExpr.getStartPosition(),
+                reduceExpr.getEndPosition(), base, sequence, lambda, lambdaParams,
+                reduceExpr.getType());
+    }
+}
@@ -0,0 +1,146 @@
+package backend.AST.flat;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * Stores the flat AST of a type checked program in a file so that later runs on the same source
+ * code can skip lexing, parsing and type checking.
+ *
+ * <p>
+ * The cache file is keyed by a hash of the source code, the options that influence the AST and
+ * {@link #VERSION}, and the flat AST is protected by a checksum. A cache file whose key or
+ * checksum does not match is ignored and overwritten once the source code has been compiled again.
+ * Cache files are replaced atomically, so concurrent runs on the same source code never see a
+ * partially written file.
+ * </p>
+ */
+public final class FlatASTCache {
+
+    /** Identifies a cache file */
+    private static final int MAGIC = 0x464C4154;
+    /**
+     * The version of the cache format and of the compiler producing the flat AST. Needs to be
+     * incremented whenever either changes in a way that affects the cached AST
+     */
+    private static final int VERSION = 1;
+    /** The length of the key in bytes, i.e. that of a SHA-256 hash */
+    private static final int KEY_LENGTH = 32;
+
+    @NotNull private final File cacheFile;
+    @NotNull private final byte[] key;
+
+    /**
+     * @param cacheFile The file the flat AST is stored in
+     * @param source The bytes of the source code
+     * @param hashConsing Whether the flat AST is built from a hash-consed AST
+     */
+    public FlatASTCache(@NotNull File cacheFile, @NotNull ByteBuffer source,
+                        boolean hashConsing) {
+        this.cacheFile = cacheFile;
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(ByteBuffer.allocate(8).putInt(VERSION).putInt(hashConsing ? 1 : 0)
+                    .array());
+            digest.update(source.duplicate());
+            this.key = digest.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Load the flat AST from the cache file by mapping it into memory
+     * @return The cached flat AST or <code>null</code> if the cache file does not exist, belongs to
+     *         a different source code or version or is malformed
+     */
+    @Nullable
+    public FlatAST load() {
+        if (!cacheFile.isFile()) {
+            return null;
+        }
+        try (RandomAccessFile file = new RandomAccessFile(cacheFile, "r");
+             FileChannel channel = file.getChannel()) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    channel.size());
+            if (buffer.remaining() < 4 + KEY_LENGTH + 4 || buffer.getInt() != MAGIC) {
+                return null;
+            }
+            byte[] cachedKey = new byte[KEY_LENGTH];
+            buffer.get(cachedKey);
+            if (!Arrays.equals(cachedKey, key)) {
+                return null;
+            }
+            int checksum = buffer.getInt();
+            if (checksum != computeChecksum(buffer)) {
+                return null;
+            }
+            return FlatAST.readFrom(buffer);
+        } catch (IOException | IllegalArgumentException e) {
+            // A cache that can't be read is no different from a missing one
+            return null;
+        }
+    }
+
+    /**
+     * Store the flat AST in the cache file. Failing to write the cache file, e.g. because its
+     * directory is not writable, is silently ignored
+     * @param ast The flat AST of the source code this cache is keyed by
+     */
+    public void store(@NotNull FlatAST ast) {
+        long size = 4 + KEY_LENGTH + 4 + ast.getSerializedSize();
+        if (size > Integer.MAX_VALUE) {
+            return;
+        }
+        File directory = cacheFile.getAbsoluteFile().getParentFile();
+        File tempFile = null;
+        try {
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                return;
+            }
+            tempFile = File.createTempFile(cacheFile.getName(), ".tmp", directory);
+            try (RandomAccessFile file = new RandomAccessFile(tempFile, "rw");
+                 FileChannel channel = file.getChannel()) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                buffer.putInt(MAGIC);
+                buffer.put(key);
+                int checksumPosition = buffer.position();
+                buffer.putInt(0);
+                ast.writeTo(buffer);
+                buffer.flip();
+                buffer.position(checksumPosition + 4);
+                buffer.putInt(checksumPosition, computeChecksum(buffer));
+            }
+            Files.move(tempFile.toPath(), cacheFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            if (tempFile != null) {
+                // Ignore failures, the cache is only an optimisation
+                tempFile.delete();
+            }
+        }
+    }
+
+    /**
+     * @param buffer The serialized flat AST between the buffer's position and limit
+     * @return A checksum that detects corrupted cache files
+     */
+    private static int computeChecksum(@NotNull ByteBuffer buffer) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.duplicate());
+        return (int)crc.getValue();
+    }
+}
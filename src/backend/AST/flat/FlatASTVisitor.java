@@ -0,0 +1,20 @@
+package backend.AST.flat;
+
+/**
+ * Visits the nodes of a {@link FlatAST}. Nodes are identified by their index, use
+ * {@link FlatAST#accept(int, FlatASTVisitor)} to visit a child
+ */
+public interface FlatASTVisitor<T> {
+
+    T visitAssignStmt(int node);
+    T visitBinaryOperatorExpr(int node);
+    T visitFloatLiteralExpr(int node);
+    T visitIdentifierRefExpr(int node);
+    T visitIntLiteralExpr(int node);
+    T visitMapExpr(int node);
+    T visitOutStmt(int node);
+    T visitParenExpr(int node);
+    T visitPrintStmt(int node);
+    T visitRangeExpr(int node);
+    T visitReduceExpr(int node);
+}
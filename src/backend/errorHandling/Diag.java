@@ -32,6 +32,7 @@ public enum Diag {
 
     // Expression
     public static final String invalid_start_of_expr = "Expected an expression but found '%s'";
+    public static final String int_literal_too_large = "Integer literal '%s' does not fit into 64 bits";
     public static final String expected_comma_in_range = "Expected ',' to separate the lower and upper bound of a range but found '%s'";
     public static final String expected_comma_in_map = "Expected ',' to separate argument and lambda in 'map' but found '%s'";
     public static final String expected_comma_in_reduce = "Expected ',' to separate argument and lambda in 'reduce' but found '%s'";
@@ -58,6 +59,7 @@ public enum Diag {
     // ==========================
 
     public static final String range_upper_bound_smaller_than_lower_bound = "Upper bound of range cannot be smaller than the lower bound";
+    public static final String range_too_large = "A range cannot contain more than " + Long.MAX_VALUE + " elements";
     public static final String lower_bound_of_range_not_int = "Lower bound of a range must be an integer and not '%s'";
     public static final String upper_bound_of_range_not_int = "Upper bound of a range must be an integer and not '%s'";
     public static final String division_by_zero = "Division by 0";
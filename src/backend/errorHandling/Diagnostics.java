@@ -14,17 +14,18 @@ public class Diagnostics {
     public static class Error {
 
         public static class FixItInsert {
-            @NotNull private final SourceLoc location;
+            /** The packed position to insert at, see {@link SourceLoc#pack(int, int)} */
+            private final long position;
             @NotNull private final String toInsert;
 
-            public FixItInsert(@NotNull SourceLoc location, @NotNull String toInsert) {
-                this.location = location;
+            public FixItInsert(long position, @NotNull String toInsert) {
+                this.position = position;
                 this.toInsert = toInsert;
             }
 
             @NotNull
             public SourceLoc getLocation() {
-                return location;
+                return SourceLoc.unpack(position);
             }
 
             @NotNull
@@ -33,26 +34,31 @@ public class Diagnostics {
             }
         }
 
-        @NotNull private final SourceLoc startLocation;
-        @NotNull private final SourceLoc endLocation;
+        /** The packed start position, see {@link SourceLoc#pack(int, int)} */
+        private final long startPosition;
+        /** The packed end position, see {@link SourceLoc#pack(int, int)} */
+        private final long endPosition;
         @NotNull private final String message;
         @Nullable private FixItInsert fixIt;
 
-        Error(@NotNull SourceLoc startLocation, @NotNull SourceLoc endLocation,
-              @NotNull String message) {
-            this.startLocation = startLocation;
-            this.endLocation = endLocation;
+        Error(long startPosition, long endPosition, @NotNull String message) {
+            this.startPosition = startPosition;
+            this.endPosition = endPosition;
             this.message = message;
         }
 
+        public long getStartPosition() {
+            return startPosition;
+        }
+
         @NotNull
         public SourceLoc getStartLocation() {
-            return startLocation;
+            return SourceLoc.unpack(startPosition);
         }
 
         @NotNull
         public SourceLoc getEndLocation() {
-            return endLocation;
+            return SourceLoc.unpack(endPosition);
         }
 
         @NotNull
@@ -60,8 +66,8 @@ public class Diagnostics {
             return message;
         }
 
-        public void fixItInsert(@NotNull SourceLoc location, @NotNull String toInsert) {
-            fixIt = new FixItInsert(location, toInsert);
+        public void fixItInsert(long position, @NotNull String toInsert) {
+            fixIt = new FixItInsert(position, toInsert);
         }
 
         @Nullable
@@ -78,12 +84,12 @@ public class Diagnostics {
                 return false;
             }
             Error error = (Error)o;
-            return startLocation.equals(error.startLocation) && message.equals(error.message);
+            return startPosition == error.startPosition && message.equals(error.message);
         }
 
         @Override
         public int hashCode() {
-            int result = startLocation.hashCode();
+            int result = Long.hashCode(startPosition * 0x9E3779B97F4A7C15L);
             result = 31 * result + message.hashCode();
             return result;
         }
@@ -92,20 +98,30 @@ public class Diagnostics {
     @NotNull private final List<Error> errors = new LinkedList<>();
 
     /**
-     * Report an new error
-     * @param startLocation The location where the error started
-     * @param endLocation The location where the error ended
+     * Report an new error. May be called concurrently while evaluating lambdas in parallel
+     * @param startPosition The packed position where the error started, see
+     *                      {@link SourceLoc#pack(int, int)}
+     * @param endPosition The packed position where the error ended
      * @param errorMessage The error message. May contain placeholders for <code>args</code>
      * @param args Objects to be inserted into the error message's placeholders
      */
-    public Error error(@NotNull SourceLoc startLocation, @NotNull SourceLoc endLocation,
-                      @NotNull String errorMessage, Object... args) {
+    public synchronized Error error(long startPosition, long endPosition,
+                                    @NotNull String errorMessage, Object... args) {
         errorMessage = String.format(errorMessage, args);
-        Error error = new Error(startLocation, endLocation, errorMessage);
+        Error error = new Error(startPosition, endPosition, errorMessage);
         errors.add(error);
         return error;
     }
 
+    /**
+     * Report an error again that has already been reported to another diagnostics engine, e.g.
+     * because the result it has been reported for is reused. May be called concurrently
+     * @param error The error to report
+     */
+    public synchronized void addError(@NotNull Error error) {
+        errors.add(error);
+    }
+
     /**
      * Report an new error
      * @param token The token at which the error occurred
@@ -113,7 +129,7 @@ public class Diagnostics {
      * @param args Objects to be inserted into the error message's placeholders
      */
     public Error error(@NotNull Token token, @NotNull String errorMessage, Object... args) {
-        return error(token.getStartLocation(), token.getEndLocation(), errorMessage, args);
+        return error(token.getStartPosition(), token.getEndPosition(), errorMessage, args);
     }
 
     /**
@@ -123,7 +139,8 @@ public class Diagnostics {
      * @param args Objects to be inserted into the error message's placeholders
      */
     public Error error(@NotNull ASTNode astNode, @NotNull String errorMessage, Object... args) {
-        return error(astNode.getStartLocation(), astNode.getEndLocation(), errorMessage, args);
+        return error(astNode.getStartPosition(), astNode.getEndPosition(), errorMessage,
+                args);
     }
 
     @NotNull
@@ -60,16 +60,27 @@ public final class ErrorsVerifier {
             String column = matcher.group(2);
             String message = matcher.group(3).trim();
 
-            int expectedErrorLine = token.getStartLocation().getLine();
+            int expectedErrorLine = SourceLoc.getLine(token.getStartPosition());
             if (line != null) {
                 expectedErrorLine += Integer.parseInt(line);
             }
             int expectedErrorColumn = Integer.parseInt(column);
 
-            SourceLoc expectedErrorLoc = new SourceLoc(expectedErrorLine, expectedErrorColumn);
+            long expectedErrorPosition = SourceLoc.pack(expectedErrorLine, expectedErrorColumn);
             // We don't care about the error's length when verifying errors
-            Diagnostics.Error expectedError = new Diagnostics.Error(expectedErrorLoc,
-                    expectedErrorLoc, message);
+            Diagnostics.Error expectedError = new Diagnostics.Error(expectedErrorPosition,
+                    expectedErrorPosition, message);
+            expectedErrors.put(expectedError, false);
+        }
+    }
+
+    /**
+     * Expect all errors that are expected by another verifier, e.g. one that has seen the comments
+     * of a different part of the source file
+     * @param other The verifier whose expected errors shall also be expected by this verifier
+     */
+    public void addExpectedErrors(@NotNull ErrorsVerifier other) {
+        for (Diagnostics.Error expectedError : other.expectedErrors.keySet()) {
             expectedErrors.put(expectedError, false);
         }
     }
@@ -0,0 +1,108 @@
+package backend.interpreter;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Keeps a sequence of numbers in byte buffers outside of the Java heap so that large sequences
+ * neither count against the heap size nor need to be traced by the garbage collector.
+ *
+ * <p>
+ * The elements are split into chunks of {@link #ELEMENTS_PER_CHUNK} elements, each of which lives
+ * in its own buffer. A chunk first contains the 8 byte payloads of all its elements, followed by a
+ * one byte tag per element that determines whether the payload is an integer or the bits of a
+ * double. Subclasses decide where the chunks' memory comes from.
+ * </p>
+ */
+abstract class ChunkedSequenceStorage extends SequenceStorage {
+
+    private static final int CHUNK_SHIFT = 16;
+    static final int ELEMENTS_PER_CHUNK = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = ELEMENTS_PER_CHUNK - 1;
+    /** The number of bytes each element occupies, 8 for the payload and 1 for the tag */
+    static final int BYTES_PER_ELEMENT = 9;
+
+    private static final byte INT_TAG = 0;
+    private static final byte FLOAT_TAG = 1;
+
+    private final long length;
+
+    ChunkedSequenceStorage(long length) {
+        this.length = length;
+    }
+
+    /**
+     * @param length The number of elements in a sequence
+     * @return The number of chunks needed to store a sequence of the given length
+     */
+    static int getNumberOfChunks(long length) {
+        return (int)((length + ELEMENTS_PER_CHUNK - 1) >>> CHUNK_SHIFT);
+    }
+
+    /**
+     * @param length The number of elements in a sequence
+     * @param chunkIndex The index of a chunk of the sequence
+     * @return The number of bytes the chunk with the given index occupies
+     */
+    static int getChunkCapacity(long length, int chunkIndex) {
+        return (int)Math.min(ELEMENTS_PER_CHUNK, length - ((long)chunkIndex << CHUNK_SHIFT)) *
+                BYTES_PER_ELEMENT;
+    }
+
+    /**
+     * @param chunk The chunk whose tags shall be located
+     * @return The byte offset in the chunk at which the element tags start
+     */
+    private static int getTagsOffset(@NotNull ByteBuffer chunk) {
+        return chunk.capacity() / BYTES_PER_ELEMENT * 8;
+    }
+
+    /**
+     * @param chunkIndex The index of the chunk to retrieve
+     * @return The buffer that holds the chunk with the given index
+     */
+    @NotNull
+    abstract ByteBuffer getChunk(int chunkIndex);
+
+    @Override
+    long getLength() {
+        return length;
+    }
+
+    @NotNull
+    @Override
+    Value get(long index) {
+        ByteBuffer chunk = getChunk((int)(index >>> CHUNK_SHIFT));
+        int indexInChunk = (int)index & CHUNK_MASK;
+        long payload = chunk.getLong(indexInChunk * 8);
+        if (chunk.get(getTagsOffset(chunk) + indexInChunk) == INT_TAG) {
+            return new IntValue(payload);
+        } else {
+            return new FloatValue(Double.longBitsToDouble(payload));
+        }
+    }
+
+    @Override
+    void set(long index, @NotNull Value value) {
+        if (value instanceof IntValue) {
+            setInt(index, ((IntValue)value).getValue());
+        } else if (value instanceof FloatValue) {
+            ByteBuffer chunk = getChunk((int)(index >>> CHUNK_SHIFT));
+            int indexInChunk = (int)index & CHUNK_MASK;
+            chunk.putLong(indexInChunk * 8,
+                    Double.doubleToRawLongBits(((FloatValue)value).getValue()));
+            chunk.put(getTagsOffset(chunk) + indexInChunk, FLOAT_TAG);
+        } else {
+            throw new RuntimeException("Only numbers can be stored outside of the heap but got " +
+                    value);
+        }
+    }
+
+    private void setInt(long index, long value) {
+        ByteBuffer chunk = getChunk((int)(index >>> CHUNK_SHIFT));
+        int indexInChunk = (int)index & CHUNK_MASK;
+        chunk.putLong(indexInChunk * 8, value);
+        chunk.put(getTagsOffset(chunk) + indexInChunk, INT_TAG);
+    }
+}
@@ -0,0 +1,232 @@
+package backend.interpreter;
+
+import backend.AST.*;
+import backend.utils.ASTVisitor;
+import backend.utils.ExprFolder;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Computes the keys under which the results of statements are stored in a {@link ResultCache}.
+ *
+ * <p>
+ * The key of a statement is a hash of its canonical form in which every referenced variable is
+ * replaced by the key of the statement that assigned it and lambda parameters are numbered by
+ * their nesting level. It thus covers the statement's transitive dependencies but neither
+ * variable names, source locations nor parentheses. Statements need to be hashed in source order
+ * so that the keys of the variables they reference are known.
+ * </p>
+ *
+ * <p>
+ * <code>reduce</code> combines the results of the chunks of a sequence, so its result may depend
+ * on the chunk size if the lambda is not associative, e.g. due to rounding of floats. The chunk
+ * size is thus part of every key.
+ * </p>
+ */
+final class DependencyHasher implements ASTVisitor<Void>, ExprFolder<Void> {
+
+    private static final byte ASSIGN = 1;
+    private static final byte OUT = 2;
+    private static final byte BINARY_OPERATOR = 3;
+    private static final byte FLOAT_LITERAL = 4;
+    private static final byte INT_LITERAL = 5;
+    private static final byte VARIABLE = 6;
+    private static final byte LAMBDA_PARAM = 7;
+    private static final byte MAP = 8;
+    private static final byte RANGE = 9;
+    private static final byte REDUCE = 10;
+    private static final byte CHUNK_SIZE = 11;
+
+    private final int chunkSize;
+    @NotNull private final MessageDigest digest;
+    @NotNull private final ByteBuffer scratch = ByteBuffer.allocate(9);
+    /** The keys of the statements that assigned the variables hashed so far */
+    @NotNull private final Map<Variable, byte[]> variableKeys = new HashMap<>();
+    /** The nesting levels of the parameters of the lambdas that are currently being hashed */
+    @NotNull private final Map<Variable, Integer> lambdaParams = new HashMap<>();
+    /** Whether the statement being hashed references a variable without a key */
+    private boolean unknownVariable;
+
+    /**
+     * @param chunkSize The number of elements of a sequence the interpreter evaluates at once
+     */
+    DependencyHasher(int chunkSize) {
+        this.chunkSize = chunkSize;
+        try {
+            this.digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Compute the key of a statement and remember it for the variable the statement assigns
+     * @param stmt The next statement in source order
+     * @return The statement's key or <code>null</code> if the statement does not produce a result
+     *         that can be cached
+     */
+    @Nullable
+    byte[] computeKey(@NotNull Stmt stmt) {
+        if (!(stmt instanceof AssignStmt) && !(stmt instanceof OutStmt)) {
+            return null;
+        }
+        unknownVariable = false;
+        update(CHUNK_SIZE, chunkSize);
+        stmt.acceptVisitor(this);
+        byte[] key = digest.digest();
+        if (unknownVariable) {
+            key = null;
+        }
+        if (stmt instanceof AssignStmt) {
+            if (key != null) {
+                variableKeys.put(((AssignStmt)stmt).getLhs(), key);
+            } else {
+                variableKeys.remove(((AssignStmt)stmt).getLhs());
+            }
+        }
+        return key;
+    }
+
+    private void visit(@NotNull ASTNode node) {
+        node.acceptVisitor(this);
+    }
+
+    private void update(byte tag) {
+        digest.update(tag);
+    }
+
+    private void update(byte tag, long payload) {
+        scratch.clear();
+        scratch.put(tag).putLong(payload);
+        digest.update(scratch.array(), 0, scratch.position());
+    }
+
+    /**
+     * Bind a lambda parameter to the next nesting level
+     */
+    private void bindLambdaParam(@NotNull Variable lambdaParam) {
+        lambdaParams.put(lambdaParam, lambdaParams.size());
+    }
+
+    @Override
+    public Void foldOperand(@NotNull Expr expr) {
+        visit(expr);
+        return null;
+    }
+
+    @Override
+    public Void enter(@NotNull Expr expr) {
+        // Hash in prefix order so that the canonical form is unambiguous. Parentheses are only
+        // syntax and don't contribute to the key
+        if (expr instanceof BinaryOperatorExpr) {
+            update(BINARY_OPERATOR, ((BinaryOperatorExpr)expr).getOp().ordinal());
+        }
+        return null;
+    }
+
+    @Override
+    public Void foldBinaryOperator(@NotNull BinaryOperatorExpr binOpExpr, Void lhs, Void rhs) {
+        return null;
+    }
+
+    @Override
+    public Void foldParen(@NotNull ParenExpr parenExpr, Void subExpr) {
+        return null;
+    }
+
+    @Override
+    public Void visitAssignStmt(AssignStmt assignStmt) {
+        update(ASSIGN);
+        visit(assignStmt.getRhs());
+        return null;
+    }
+
+    @Override
+    public Void visitBinaryOperatorExpr(BinaryOperatorExpr binOpExpr) {
+        return ExprFolder.fold(binOpExpr, this);
+    }
+
+    @Override
+    public Void visitFloatLiteralExpr(FloatLiteralExpr floatLiteralExpr) {
+        update(FLOAT_LITERAL, Double.doubleToRawLongBits(floatLiteralExpr.getValue()));
+        return null;
+    }
+
+    @Override
+    public Void visitIdentifierRefExpr(VariableRefExpr variableRefExpr) {
+        Variable variable = variableRefExpr.getReferencedVariable();
+        Integer level = lambdaParams.get(variable);
+        if (level != null) {
+            update(LAMBDA_PARAM, level);
+            return null;
+        }
+        byte[] variableKey = variableKeys.get(variable);
+        if (variableKey == null) {
+            unknownVariable = true;
+            return null;
+        }
+        update(VARIABLE);
+        digest.update(variableKey);
+        return null;
+    }
+
+    @Override
+    public Void visitIntLiteralExpr(IntLiteralExpr intLiteralExpr) {
+        update(INT_LITERAL, intLiteralExpr.getValue());
+        return null;
+    }
+
+    @Override
+    public Void visitMapExpr(MapExpr mapExpr) {
+        update(MAP);
+        visit(mapExpr.getArgument());
+        bindLambdaParam(mapExpr.getLambdaParam());
+        visit(mapExpr.getLambda());
+        lambdaParams.remove(mapExpr.getLambdaParam());
+        return null;
+    }
+
+    @Override
+    public Void visitOutStmt(OutStmt outExpr) {
+        update(OUT);
+        visit(outExpr.getArgument());
+        return null;
+    }
+
+    @Override
+    public Void visitParenExpr(ParenExpr parenExpr) {
+        return ExprFolder.fold(parenExpr, this);
+    }
+
+    @Override
+    public Void visitPrintStmt(PrintStmt printStmt) {
+        return null;
+    }
+
+    @Override
+    public Void visitRangeExpr(RangeExpr rangeExpr) {
+        update(RANGE);
+        visit(rangeExpr.getLowerBound());
+        visit(rangeExpr.getUpperBound());
+        return null;
+    }
+
+    @Override
+    public Void visitReduceExpr(ReduceExpr reduceExpr) {
+        update(REDUCE);
+        visit(reduceExpr.getBase());
+        visit(reduceExpr.getSequence());
+        bindLambdaParam(reduceExpr.getLambdaParam1());
+        bindLambdaParam(reduceExpr.getLambdaParam2());
+        visit(reduceExpr.getLambda());
+        lambdaParams.remove(reduceExpr.getLambdaParam2());
+        lambdaParams.remove(reduceExpr.getLambdaParam1());
+        return null;
+    }
+}
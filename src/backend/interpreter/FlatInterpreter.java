@@ -0,0 +1,478 @@
+package backend.interpreter;
+
+import backend.AST.BinaryOperatorExpr;
+import backend.AST.flat.FlatAST;
+import backend.AST.flat.FlatASTVisitor;
+import backend.errorHandling.Diag;
+import backend.errorHandling.Diagnostics;
+import org.jetbrains.annotations.NotNull;
+import utils.ThreadManager;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Evaluates a program stored in a {@link FlatAST}. The values of variables are kept in an array
+ * indexed by the variables' slots instead of a map.
+ *
+ * <p>
+ * In contrast to {@link Interpreter}, statements and <code>map</code> expressions are evaluated
+ * sequentially on the calling thread. <code>reduce</code> expressions are split into chunks that
+ * are reduced in parallel on the shared worker pool and combined in the same order as
+ * {@link SequencePipeline} does, so both interpreters produce the same results even for lambdas
+ * that are not associative. The interpreter needs to be closed once its output is no longer needed
+ * to release the memory of sequences that are not stored on the Java heap
+ * </p>
+ */
+public final class FlatInterpreter implements FlatASTVisitor<Value>, AutoCloseable {
+
+    /**
+     * Chains of binary operators and parenthesized expressions nested at most this deep are
+     * evaluated recursively, which is faster than maintaining an explicit stack
+     */
+    private static final int MAX_RECURSION_DEPTH = 64;
+
+    @NotNull private final FlatAST ast;
+    @NotNull private final Diagnostics diagnostics;
+    @NotNull private final SequenceAllocator sequenceAllocator;
+    /** The number of elements a <code>reduce</code> expression processes as one unit of work */
+    private final int chunkSize;
+
+    /** The current values of all variables, indexed by their slot */
+    @NotNull private final Value[] variableValues;
+    /** The output of all statements evaluated so far, keyed by the statements' nodes */
+    @NotNull private final Map<Integer, Value> output = new LinkedHashMap<>();
+
+    public FlatInterpreter(@NotNull FlatAST ast, @NotNull Diagnostics diagnostics,
+                           @NotNull InterpreterOptions options) {
+        this.ast = ast;
+        this.diagnostics = diagnostics;
+        this.sequenceAllocator = new SequenceAllocator(options);
+        this.chunkSize = options.getChunkSize();
+        this.variableValues = new Value[ast.getNumberOfVariables()];
+    }
+
+    /**
+     * Create an interpreter that reduces a chunk of a sequence on a worker thread, sharing the
+     * sequence storage of <code>parent</code>
+     * @param parent The interpreter evaluating the <code>reduce</code> expression
+     */
+    private FlatInterpreter(@NotNull FlatInterpreter parent) {
+        this.ast = parent.ast;
+        this.diagnostics = parent.diagnostics;
+        this.sequenceAllocator = parent.sequenceAllocator;
+        this.chunkSize = parent.chunkSize;
+        this.variableValues = parent.variableValues.clone();
+    }
+
+    /**
+     * Evaluate all statements of the flat AST in source order
+     */
+    public void evaluate() {
+        for (int i = 0; i < ast.getNumberOfStmts(); i++) {
+            int stmt = ast.getStmt(i);
+            Value stmtOutput = evaluate(stmt);
+            // If the statement produces output (i.e. 'print' and 'out') save it to the ouputs
+            if (stmtOutput != null) {
+                output.put(stmt, stmtOutput);
+            }
+        }
+    }
+
+    /**
+     * @return The output of all statements, keyed by the statements' nodes in source order
+     */
+    @NotNull
+    public Map<Integer, Value> getOutput() {
+        return output;
+    }
+
+    /**
+     * Release the memory of all sequences that are not stored on the Java heap. The values of this
+     * interpreter's output must no longer be accessed afterwards
+     */
+    @Override
+    public void close() {
+        sequenceAllocator.close();
+    }
+
+    private Value evaluate(int node) {
+        return ast.accept(node, this);
+    }
+
+    /**
+     * Free the storage of a sequence that has been consumed by an expression if it has just been
+     * created by a <code>map</code> or range expression and is thus not referenced from anywhere
+     * else
+     * @param node The expression that produced <code>value</code>
+     * @param value The value that is no longer needed
+     */
+    private void release(int node, @NotNull Value value) {
+        while (ast.getKind(node) == FlatAST.Kind.PAREN_EXPR) {
+            node = ast.getFirstChild(node);
+        }
+        FlatAST.Kind kind = ast.getKind(node);
+        if (value instanceof SequenceValue &&
+                (kind == FlatAST.Kind.MAP_EXPR || kind == FlatAST.Kind.RANGE_EXPR)) {
+            ((SequenceValue)value).free();
+        }
+    }
+
+    @Override
+    public Value visitAssignStmt(int node) {
+        variableValues[ast.getVariable(node)] = evaluate(ast.getFirstChild(node));
+        return null;
+    }
+
+    /**
+     * @return Whether the node is a binary operator or parenthesized expression, whose operands are
+     *         evaluated by {@link #evaluateChain(int, int)}
+     */
+    private boolean isChain(int node) {
+        FlatAST.Kind kind = ast.getKind(node);
+        return kind == FlatAST.Kind.BINARY_OPERATOR_EXPR || kind == FlatAST.Kind.PAREN_EXPR;
+    }
+
+    /**
+     * Evaluate a chain of binary operators and parenthesized expressions. Generated source code
+     * may nest them tens of thousands of levels deep, so once they are nested deeply, the nodes
+     * whose operands are being evaluated are kept on an explicit stack instead of recursing
+     * @param node A binary operator or parenthesized expression
+     * @param depth The number of chain nodes that are currently being evaluated recursively
+     * @return The value of <code>node</code>
+     */
+    private Value evaluateChain(int node, int depth) {
+        if (depth == MAX_RECURSION_DEPTH) {
+            return evaluateChainIteratively(node);
+        }
+        if (ast.getKind(node) == FlatAST.Kind.PAREN_EXPR) {
+            return evaluateOperand(ast.getFirstChild(node), depth + 1);
+        }
+        Value lhs = evaluateOperand(ast.getFirstChild(node), depth + 1);
+        Value rhs = evaluateOperand(ast.getSecondChild(node), depth + 1);
+        return evaluateBinaryOperator(node, lhs, rhs);
+    }
+
+    private Value evaluateOperand(int node, int depth) {
+        return isChain(node) ? evaluateChain(node, depth) : evaluate(node);
+    }
+
+    private Value evaluateChainIteratively(int root) {
+        // The nodes whose operands are being evaluated and the values of their left-hand sides or
+        // null while the left-hand side is being evaluated
+        int[] nodes = new int[16];
+        Value[] lhsValues = new Value[16];
+        int depth = 0;
+        int current = root;
+        while (true) {
+            // Descend along the left-hand sides
+            while (isChain(current)) {
+                if (depth == nodes.length) {
+                    nodes = Arrays.copyOf(nodes, depth * 2);
+                    lhsValues = Arrays.copyOf(lhsValues, depth * 2);
+                }
+                nodes[depth] = current;
+                depth++;
+                current = ast.getFirstChild(current);
+            }
+            Value value = evaluate(current);
+
+            // Ascend until a binary operator's right-hand side still needs to be evaluated
+            while (true) {
+                if (depth == 0) {
+                    return value;
+                }
+                int node = nodes[depth - 1];
+                boolean isBinaryOperator = ast.getKind(node) == FlatAST.Kind.BINARY_OPERATOR_EXPR;
+                if (isBinaryOperator && lhsValues[depth - 1] == null) {
+                    lhsValues[depth - 1] = value;
+                    current = ast.getSecondChild(node);
+                    break;
+                }
+                depth--;
+                if (isBinaryOperator) {
+                    value = evaluateBinaryOperator(node, lhsValues[depth], value);
+                    lhsValues[depth] = null;
+                }
+                // A parenthesized expression has the value of its sub-expression
+            }
+        }
+    }
+
+    @Override
+    public Value visitBinaryOperatorExpr(int node) {
+        return evaluateChain(node, 0);
+    }
+
+    private Value evaluateBinaryOperator(int node, @NotNull Value lhs, @NotNull Value rhs) {
+        if (lhs instanceof ErrorValue || rhs instanceof ErrorValue) {
+            return ErrorValue.get();
+        }
+        BinaryOperatorExpr.Operator op = ast.getOperator(node);
+
+        if (lhs instanceof IntValue && rhs instanceof IntValue) {
+            // If both operands are integers, the result is often also an integer
+            long lhsValue = ((IntValue)lhs).getValue();
+            long rhsValue = ((IntValue)rhs).getValue();
+            switch (op) {
+                case ADD:
+                    return new IntValue(lhsValue + rhsValue);
+                case SUB:
+                    return new IntValue(lhsValue - rhsValue);
+                case MULT:
+                    return new IntValue(lhsValue * rhsValue);
+                case DIV:
+                    if (rhsValue == 0) {
+                        diagnostics.error(ast.getStartPosition(node), ast.getEndPosition(node),
+                                Diag.division_by_zero);
+                        return ErrorValue.get();
+                    }
+                    if (lhsValue % rhsValue == 0) {
+                        return new IntValue(lhsValue / rhsValue);
+                    }
+                    return new FloatValue((double)lhsValue / rhsValue);
+                case POW:
+                    if (rhsValue >= 0) {
+                        return new IntValue((long)Math.pow(lhsValue, rhsValue));
+                    }
+                    return new FloatValue(Math.pow(lhsValue, rhsValue));
+                default:
+                    throw new RuntimeException("Unknown operator: " + op);
+            }
+        }
+
+        double lhsValue = toDouble(lhs);
+        double rhsValue = toDouble(rhs);
+        switch (op) {
+            case ADD:
+                return new FloatValue(lhsValue + rhsValue);
+            case SUB:
+                return new FloatValue(lhsValue - rhsValue);
+            case MULT:
+                return new FloatValue(lhsValue * rhsValue);
+            case DIV:
+                if (rhsValue == 0) {
+                    diagnostics.error(ast.getStartPosition(node), ast.getEndPosition(node),
+                            Diag.division_by_zero);
+                    return ErrorValue.get();
+                }
+                return new FloatValue(lhsValue / rhsValue);
+            case POW:
+                return new FloatValue(Math.pow(lhsValue, rhsValue));
+            default:
+                throw new RuntimeException("Unknown operator: " + op);
+        }
+    }
+
+    private static double toDouble(@NotNull Value value) {
+        if (value instanceof IntValue) {
+            return ((IntValue)value).getValue();
+        } else if (value instanceof FloatValue) {
+            return ((FloatValue)value).getValue();
+        } else {
+            throw new RuntimeException("Unknown argument for binary operator: " + value);
+        }
+    }
+
+    @Override
+    public Value visitFloatLiteralExpr(int node) {
+        return new FloatValue(ast.getFloatValue(node));
+    }
+
+    @Override
+    public Value visitIdentifierRefExpr(int node) {
+        Value value = variableValues[ast.getVariable(node)];
+        if (value == null) {
+            throw new RuntimeException("Variable " + ast.getVariableName(ast.getVariable(node)) +
+                    " has no value although the type checker should have enforced it");
+        }
+        return value;
+    }
+
+    @Override
+    public Value visitIntLiteralExpr(int node) {
+        return new IntValue(ast.getIntValue(node));
+    }
+
+    @Override
+    public Value visitMapExpr(int node) {
+        int argumentNode = ast.getFirstChild(node);
+        int lambda = ast.getSecondChild(node);
+        int lambdaParam = ast.getVariable(node);
+
+        Value argument = evaluate(argumentNode);
+        if (argument instanceof ErrorValue) {
+            return ErrorValue.get();
+        }
+        // The type checker guarantees that the argument is a sequence
+        SequenceValue sequence = (SequenceValue)argument;
+        SequenceStorage storage = sequenceAllocator.allocate(sequence.getLength(),
+                ast.getType(lambda));
+        for (long i = 0; i < sequence.getLength(); i++) {
+            variableValues[lambdaParam] = sequence.get(i);
+            Value transformedValue = evaluate(lambda);
+            if (transformedValue instanceof ErrorValue) {
+                storage.free();
+                storage = null;
+                break;
+            }
+            storage.set(i, transformedValue);
+        }
+        variableValues[lambdaParam] = null;
+
+        release(argumentNode, argument);
+
+        return storage != null ? new SequenceValue(storage) : ErrorValue.get();
+    }
+
+    @Override
+    public Value visitOutStmt(int node) {
+        return evaluate(ast.getFirstChild(node));
+    }
+
+    @Override
+    public Value visitParenExpr(int node) {
+        return evaluateChain(node, 0);
+    }
+
+    @Override
+    public Value visitPrintStmt(int node) {
+        return new StringValue(ast.getString(node));
+    }
+
+    @Override
+    public Value visitRangeExpr(int node) {
+        int lowerBoundNode = ast.getFirstChild(node);
+        int upperBoundNode = ast.getSecondChild(node);
+        Value lowerBoundValue = evaluate(lowerBoundNode);
+        Value upperBoundValue = evaluate(upperBoundNode);
+        if (lowerBoundValue instanceof ErrorValue || upperBoundValue instanceof ErrorValue) {
+            return ErrorValue.get();
+        }
+        if (!(lowerBoundValue instanceof IntValue)) {
+            diagnostics.error(ast.getStartPosition(lowerBoundNode),
+                    ast.getEndPosition(lowerBoundNode), Diag.lower_bound_of_range_not_int,
+                    "Float");
+            return ErrorValue.get();
+        }
+        if (!(upperBoundValue instanceof IntValue)) {
+            diagnostics.error(ast.getStartPosition(upperBoundNode),
+                    ast.getEndPosition(upperBoundNode), Diag.upper_bound_of_range_not_int,
+                    "Float");
+            return ErrorValue.get();
+        }
+        long lowerBound = ((IntValue)lowerBoundValue).getValue();
+        long upperBound = ((IntValue)upperBoundValue).getValue();
+
+        if (upperBound < lowerBound) {
+            diagnostics.error(ast.getStartPosition(node), ast.getEndPosition(node),
+                    Diag.range_upper_bound_smaller_than_lower_bound);
+            return ErrorValue.get();
+        }
+
+        long length = upperBound - lowerBound + 1;
+        if (length <= 0) {
+            // The number of elements overflowed
+            diagnostics.error(ast.getStartPosition(node), ast.getEndPosition(node),
+                    Diag.range_too_large);
+            return ErrorValue.get();
+        }
+
+        return new SequenceValue(new RangeSequenceStorage(lowerBound, length));
+    }
+
+    @Override
+    public Value visitReduceExpr(int node) {
+        Value baseValue = evaluate(ast.getFirstChild(node));
+        if (baseValue instanceof ErrorValue) {
+            return ErrorValue.get();
+        }
+        int sequenceNode = ast.getSecondChild(node);
+        Value argument = evaluate(sequenceNode);
+        if (argument instanceof ErrorValue) {
+            return ErrorValue.get();
+        }
+        int lambda = ast.getThirdChild(node);
+        int lambdaParam1 = ast.getVariable(node);
+        int lambdaParam2 = ast.getSecondVariable(node);
+
+        // The type checker guarantees this is a sequence
+        SequenceValue sequence = (SequenceValue)argument;
+        long numberOfChunks = (sequence.getLength() + chunkSize - 1) / chunkSize;
+        Value result = baseValue;
+        if (numberOfChunks == 1) {
+            // Not worth dispatching to the worker pool
+            Value chunkResult = reduceChunk(sequence, 0, lambda, lambdaParam1, lambdaParam2);
+            result = applyReduceLambda(lambda, lambdaParam1, lambdaParam2, result, chunkResult);
+        } else {
+            // Combine the chunks' results in order as soon as the oldest chunk is finished. At
+            // most twice as many chunks as there are worker threads are reduced at the same time
+            int maxChunksInFlight = 2 * ThreadManager.getNumberOfThreads();
+            Queue<ForkJoinTask<?>> chunksInFlight = new ArrayDeque<>();
+            // The results of the chunks in flight in the same order
+            Queue<Value[]> chunkResults = new ArrayDeque<>();
+            long nextChunk = 0;
+            // Stop reducing new chunks once an error occurred
+            while (!chunksInFlight.isEmpty() ||
+                    (nextChunk < numberOfChunks && !(result instanceof ErrorValue))) {
+                if (chunksInFlight.size() < maxChunksInFlight && nextChunk < numberOfChunks &&
+                        !(result instanceof ErrorValue)) {
+                    FlatInterpreter chunkInterpreter = new FlatInterpreter(this);
+                    long chunkIndex = nextChunk++;
+                    Value[] chunkResult = new Value[1];
+                    chunksInFlight.add(ThreadManager.submit(() ->
+                            chunkResult[0] = chunkInterpreter.reduceChunk(sequence, chunkIndex,
+                                    lambda, lambdaParam1, lambdaParam2)));
+                    chunkResults.add(chunkResult);
+                    continue;
+                }
+                chunksInFlight.remove().join();
+                Value chunkResult = chunkResults.remove()[0];
+                if (!(result instanceof ErrorValue)) {
+                    result = applyReduceLambda(lambda, lambdaParam1, lambdaParam2, result,
+                            chunkResult);
+                }
+            }
+        }
+        variableValues[lambdaParam1] = null;
+        variableValues[lambdaParam2] = null;
+
+        release(sequenceNode, argument);
+
+        return result;
+    }
+
+    /**
+     * Reduce the elements of one chunk of a sequence, starting with its first element
+     * @param sequence The sequence that is being reduced
+     * @param chunkIndex The index of the chunk to reduce
+     * @return The chunk's reduced value or {@link ErrorValue} if an error occurred in the lambda
+     */
+    @NotNull
+    private Value reduceChunk(@NotNull SequenceValue sequence, long chunkIndex, int lambda,
+                              int lambdaParam1, int lambdaParam2) {
+        long firstIndex = chunkIndex * chunkSize;
+        long endIndex = Math.min(firstIndex + chunkSize, sequence.getLength());
+        Value result = sequence.get(firstIndex);
+        for (long i = firstIndex + 1; i < endIndex && !(result instanceof ErrorValue); i++) {
+            result = applyReduceLambda(lambda, lambdaParam1, lambdaParam2, result,
+                    sequence.get(i));
+        }
+        return result;
+    }
+
+    @NotNull
+    private Value applyReduceLambda(int lambda, int lambdaParam1, int lambdaParam2,
+                                    @NotNull Value x, @NotNull Value y) {
+        if (x instanceof ErrorValue || y instanceof ErrorValue) {
+            return ErrorValue.get();
+        }
+        variableValues[lambdaParam1] = x;
+        variableValues[lambdaParam2] = y;
+        return evaluate(lambda);
+    }
+}
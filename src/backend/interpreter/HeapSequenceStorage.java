@@ -0,0 +1,77 @@
+package backend.interpreter;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Keeps the elements of a sequence as {@link Value} objects on the Java heap. This can store
+ * elements of any type.
+ *
+ * <p>
+ * The elements are split into arrays of at most {@link #ELEMENTS_PER_CHUNK} elements so that the
+ * sequence's length is not limited by the maximum length of a Java array
+ * </p>
+ */
+final class HeapSequenceStorage extends SequenceStorage {
+
+    /** An estimate of the heap memory each element occupies, including the reference to it */
+    static final int BYTES_PER_ELEMENT = 24;
+
+    private static final int CHUNK_SHIFT = 20;
+    private static final int ELEMENTS_PER_CHUNK = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = ELEMENTS_PER_CHUNK - 1;
+
+    /** Credits the storage's bytes back to the memory budget, <code>null</code> without a budget */
+    @Nullable private final SequenceAllocator.HeapStorageReference budgetReference;
+    private final long length;
+    private Value[][] chunks;
+
+    /**
+     * Use {@link SequenceAllocator#allocate} to create heap storages
+     */
+    HeapSequenceStorage(@NotNull SequenceAllocator allocator, long length) {
+        this.length = length;
+        this.chunks = new Value[(int)((length + ELEMENTS_PER_CHUNK - 1) >>> CHUNK_SHIFT)][];
+        for (int i = 0; i < chunks.length; i++) {
+            chunks[i] = new Value[(int)Math.min(ELEMENTS_PER_CHUNK,
+                    length - ((long)i << CHUNK_SHIFT))];
+        }
+        this.budgetReference = allocator.trackHeapStorage(this, length * BYTES_PER_ELEMENT);
+    }
+
+    @Override
+    long getLength() {
+        return length;
+    }
+
+    @NotNull
+    @Override
+    Value get(long index) {
+        return getChunks()[(int)(index >>> CHUNK_SHIFT)][(int)index & CHUNK_MASK];
+    }
+
+    @Override
+    void set(long index, @NotNull Value value) {
+        getChunks()[(int)(index >>> CHUNK_SHIFT)][(int)index & CHUNK_MASK] = value;
+    }
+
+    @NotNull
+    private Value[][] getChunks() {
+        Value[][] chunks = this.chunks;
+        if (chunks == null) {
+            throw new IllegalStateException("Accessing a freed sequence");
+        }
+        return chunks;
+    }
+
+    @Override
+    synchronized void free() {
+        if (chunks == null) {
+            return;
+        }
+        chunks = null;
+        if (budgetReference != null) {
+            budgetReference.release();
+        }
+    }
+}
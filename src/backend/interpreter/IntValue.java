@@ -1,26 +1,26 @@
 package backend.interpreter;
 
 /**
- * An integer value returned by an expression
+ * A 64 bit integer value returned by an expression
  */
 public final class IntValue extends Value {
 
-    private int value;
+    private long value;
 
-    IntValue(int value) {
+    IntValue(long value) {
         this.value = value;
     }
 
-    public int getValue() {
+    public long getValue() {
         return value;
     }
 
-    public void setValue(int value) {
+    public void setValue(long value) {
         this.value = value;
     }
 
     @Override
     public String toString() {
-        return Integer.toString(value);
+        return Long.toString(value);
     }
 }
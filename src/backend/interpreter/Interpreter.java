@@ -1,34 +1,81 @@
 package backend.interpreter;
 
 import backend.AST.*;
+import backend.AST.Type.Type;
 import backend.errorHandling.Diag;
 import backend.errorHandling.Diagnostics;
 import backend.utils.ASTConsumer;
 import backend.utils.ASTVisitor;
+import backend.utils.ExprFolder;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import utils.ThreadManager;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Interprets the statements it consumes, saving the output of each statement in a map that can be
  * retrieved using {@link #getOutput()}
+ *
+ * <p>
+ * The interpreter needs to be closed once its output is no longer needed to release the memory of
+ * sequences that are not stored on the Java heap
+ * </p>
  */
-public final class Interpreter implements ASTConsumer, ASTVisitor<Value> {
-
-    @FunctionalInterface
-    interface Function3<A, B, C, R> {
-        R apply(A a, B b, C c);
-    }
+public final class Interpreter implements ASTConsumer, ASTVisitor<Value>, ExprFolder<Value>,
+        AutoCloseable {
 
     @NotNull private final Diagnostics diagnostics;
+    /** Creates the storage of sequences. Shared between an interpreter and its sub-interpreters */
+    @NotNull private final SequenceAllocator sequenceAllocator;
+    /** The number of elements map and reduce expressions process as one unit of work */
+    private final int chunkSize;
+    /** Whether assignments are only evaluated once the variable is referenced */
+    private final boolean lazyEvaluation;
+    /** Whether statements that don't depend on each other are executed concurrently */
+    private final boolean parallelStatements;
+    /**
+     * Stores the results of statements across runs or <code>null</code> if results are not
+     * cached. Shared between an interpreter and its sub-interpreters
+     */
+    @Nullable private final ResultCache resultCache;
+    /** Computes the keys of statements in {@link #resultCache} in the order they are consumed */
+    @Nullable private final DependencyHasher dependencyHasher;
 
-    /** The current values of all variables valid in the current scope */
-    @NotNull private final Map<Variable, Value> variableValues = new HashMap<>();
+    /**
+     * The current values of all variables valid in the current scope. Written concurrently if
+     * statements are executed in parallel
+     */
+    @NotNull private final Map<Variable, Value> variableValues = new ConcurrentHashMap<>();
+    /**
+     * Variables whose sequence has been created by their assignment and is not referenced from
+     * anywhere else. Their storage can be freed once the variable dies
+     */
+    @NotNull private final Set<Variable> variablesOwningSequences =
+            Collections.newSetFromMap(new ConcurrentHashMap<>());
+    /**
+     * The values of expressions the parser has shared between multiple places, see
+     * {@link Expr#isShared()}. Shared between an interpreter and its sub-interpreters
+     */
+    @NotNull private final Map<Expr, Value> sharedExprValues;
     /** The output of all statements consumed so far */
     @NotNull private final Map<Stmt, Value> output = new LinkedHashMap<>();
 
+    /**
+     * If statements are executed in parallel, futures that complete once the statement assigning
+     * the variable has been executed
+     */
+    @NotNull private final Map<Variable, CompletableFuture<?>> variableDefinitions =
+            new HashMap<>();
+    /**
+     * If statements are executed in parallel, completes once all statements consumed so far have
+     * been executed and their output has been recorded in source order
+     */
+    @NotNull private CompletableFuture<?> consumedStmtsFinished =
+            CompletableFuture.completedFuture(null);
+
     /**
      * Constantly allocating new objects for values is inefficient as it triggers the garbage
      * collector. Thus add values that are no longer used to these Stacks from which they can be
@@ -38,23 +85,121 @@ public final class Interpreter implements ASTConsumer, ASTVisitor<Value> {
     private final Stack<FloatValue> recycledFloatValues = new Stack<>();
 
     public Interpreter(@NotNull Diagnostics diagnostics) {
-        this(diagnostics, null);
+        this(diagnostics, new InterpreterOptions());
     }
 
-    private Interpreter(@NotNull Diagnostics diagnostics,
-                        @Nullable Map<Variable, Value> variableValues) {
+    public Interpreter(@NotNull Diagnostics diagnostics, @NotNull InterpreterOptions options) {
         this.diagnostics = diagnostics;
-        if (variableValues != null) {
-            this.variableValues.putAll(variableValues);
+        this.sequenceAllocator = new SequenceAllocator(options);
+        this.chunkSize = options.getChunkSize();
+        this.lazyEvaluation = options.isLazyEvaluation();
+        this.parallelStatements = options.isParallelStatements();
+        this.sharedExprValues = new ConcurrentHashMap<>();
+        if (options.getResultCacheDirectory() != null) {
+            this.resultCache = new ResultCache(options.getResultCacheDirectory(),
+                    options.getResultCacheSize());
+            this.dependencyHasher = new DependencyHasher(chunkSize);
+        } else {
+            this.resultCache = null;
+            this.dependencyHasher = null;
+        }
+    }
+
+    /**
+     * Create a sub-interpreter to evaluate a lambda, sharing the sequence storage of
+     * <code>parent</code>
+     * @param parent The interpreter evaluating the expression that contains the lambda
+     * @param diagnostics The diagnostics engine to report errors to
+     * @param visibleVariables The variables of <code>parent</code> whose values the
+     *                         sub-interpreter sees or <code>null</code> to see all of them
+     */
+    private Interpreter(@NotNull Interpreter parent, @NotNull Diagnostics diagnostics,
+                        @Nullable Collection<Variable> visibleVariables) {
+        this.diagnostics = diagnostics;
+        this.sequenceAllocator = parent.sequenceAllocator;
+        this.chunkSize = parent.chunkSize;
+        this.lazyEvaluation = parent.lazyEvaluation;
+        this.parallelStatements = false;
+        this.sharedExprValues = parent.sharedExprValues;
+        this.resultCache = parent.resultCache;
+        this.dependencyHasher = null;
+        if (visibleVariables == null) {
+            this.variableValues.putAll(parent.variableValues);
+        } else {
+            for (Variable variable : visibleVariables) {
+                Value value = parent.variableValues.get(variable);
+                if (value != null) {
+                    this.variableValues.put(variable, value);
+                }
+            }
         }
     }
 
+    /**
+     * @return A new interpreter to evaluate lambdas with that sees all variables of this
+     *         interpreter. It must only be used by a single thread
+     */
+    @NotNull
+    Interpreter createSubInterpreter() {
+        return new Interpreter(this, diagnostics, null);
+    }
+
+    /**
+     * @param diagnostics The diagnostics engine the sub-interpreter reports its errors to
+     * @return A new interpreter to evaluate lambdas with that sees all variables of this
+     *         interpreter. It must only be used by a single thread
+     */
+    @NotNull
+    Interpreter createSubInterpreter(@NotNull Diagnostics diagnostics) {
+        return new Interpreter(this, diagnostics, null);
+    }
+
+    @NotNull
+    Diagnostics getDiagnostics() {
+        return diagnostics;
+    }
+
+    /**
+     * Set the value of a variable, e.g. to bind a lambda parameter before evaluating the lambda
+     * @param variable The variable to set
+     * @param value The variable's new value
+     */
+    void bindVariable(@NotNull Variable variable, @NotNull Value value) {
+        variableValues.put(variable, value);
+    }
+
+    /**
+     * Set the value of a variable declared using
+     * {@link backend.typeChecker.TypeChecker#declareInputVariable(Variable)}. Must be called
+     * before the first statement is consumed
+     * @param variable The input variable
+     * @param value The variable's value
+     */
+    public void bindInputVariable(@NotNull Variable variable, long value) {
+        IntValue intValue = new IntValue(value);
+        intValue.setRecyclable(false);
+        variableValues.put(variable, intValue);
+    }
+
+    /**
+     * Set the value of a variable declared using
+     * {@link backend.typeChecker.TypeChecker#declareInputVariable(Variable)}. Must be called
+     * before the first statement is consumed
+     * @param variable The input variable
+     * @param value The variable's value
+     */
+    public void bindInputVariable(@NotNull Variable variable, double value) {
+        FloatValue floatValue = new FloatValue(value);
+        floatValue.setRecyclable(false);
+        variableValues.put(variable, floatValue);
+    }
+
     /**
      * Create a new {@link IntValue} either from the recycling bag or by allocating a new object
      * @param value The payload of the {@link IntValue}
      * @return An {@link IntValue} with the given value
      */
-    private IntValue createIntValue(int value) {
+    private IntValue createIntValue(long value) {
         if (!recycledIntValues.empty()) {
             IntValue recycledValue = recycledIntValues.pop();
             recycledValue.setValue(value);
@@ -103,11 +248,130 @@ public final class Interpreter implements ASTConsumer, ASTVisitor<Value> {
 
     @Override
     public void consumeStmt(@NotNull Stmt stmt) {
+        byte[] resultKey = dependencyHasher != null ? dependencyHasher.computeKey(stmt) : null;
+        if (parallelStatements) {
+            scheduleStmt(stmt, resultKey);
+        } else {
+            finishStmt(stmt, evaluateStmt(stmt, resultKey));
+        }
+    }
+
+    /**
+     * Evaluate a statement or load its result from the result cache
+     * @param stmt The statement to evaluate
+     * @param resultKey The statement's key in the result cache or <code>null</code> if its result
+     *                  is not cached
+     * @return The statement's output
+     */
+    private Value evaluateStmt(@NotNull Stmt stmt, @Nullable byte[] resultKey) {
+        if (resultKey == null) {
+            return stmt.acceptVisitor(this);
+        }
+        assert resultCache != null;
+        Variable assignedVariable =
+                stmt instanceof AssignStmt ? ((AssignStmt)stmt).getLhs() : null;
+        Type type = assignedVariable != null ? assignedVariable.getType() :
+                ((OutStmt)stmt).getArgument().getType();
+        Value result = resultCache.load(resultKey, type, sequenceAllocator);
+        if (result != null) {
+            result.setRecyclable(false);
+            if (assignedVariable == null) {
+                return result;
+            }
+            variableValues.put(assignedVariable, result);
+            if (result instanceof SequenceValue) {
+                variablesOwningSequences.add(assignedVariable);
+            }
+            return null;
+        }
+
         Value stmtOutput = stmt.acceptVisitor(this);
+        result = assignedVariable != null ? variableValues.get(assignedVariable) : stmtOutput;
+        // Errors would not be reported again if the result was loaded from the cache and the
+        // values of lazily evaluated variables are not known yet
+        if (!(result instanceof ErrorValue) && !(result instanceof Thunk)) {
+            resultCache.store(resultKey, result);
+        }
+        return stmtOutput;
+    }
+
+    /**
+     * Wait until all consumed statements have been executed if statements are executed in parallel
+     */
+    @Override
+    public void consumeEOF() {
+        consumedStmtsFinished.join();
+    }
+
+    /**
+     * Execute the statement on the shared worker pool as soon as all statements assigning the
+     * variables it references have been executed
+     * @param stmt The statement to execute
+     */
+    private void scheduleStmt(@NotNull Stmt stmt, @Nullable byte[] resultKey) {
+        List<CompletableFuture<?>> dependencies = new ArrayList<>();
+        for (Variable variable : VariableReferenceCollector.collect(stmt)) {
+            CompletableFuture<?> definition = variableDefinitions.get(variable);
+            if (definition != null) {
+                dependencies.add(definition);
+            }
+        }
+
+        CompletableFuture<Value> execution = CompletableFuture
+                .allOf(dependencies.toArray(new CompletableFuture<?>[0]))
+                .thenApplyAsync(__ -> executeStmt(stmt, resultKey), ThreadManager::execute);
+
+        if (stmt instanceof AssignStmt) {
+            // Don't keep the statement's output alive through the definition
+            variableDefinitions.put(((AssignStmt)stmt).getLhs(),
+                    execution.thenApply(stmtOutput -> null));
+        }
+        // Record the output and discard dead variables only once all preceding statements have
+        // been executed. Those may still reference the variables that die after this statement
+        consumedStmtsFinished = consumedStmtsFinished.thenCombine(execution,
+                (__, stmtOutput) -> {
+            finishStmt(stmt, stmtOutput);
+            return null;
+        });
+    }
+
+    /**
+     * Execute a statement in a sub-interpreter and publish the value of the variable it assigns
+     * @param stmt The statement to execute
+     * @param resultKey The statement's key in the result cache or <code>null</code>
+     * @return The statement's output
+     */
+    private Value executeStmt(@NotNull Stmt stmt, @Nullable byte[] resultKey) {
+        Interpreter subInterpreter = createSubInterpreter();
+        Value stmtOutput = subInterpreter.evaluateStmt(stmt, resultKey);
+        if (stmt instanceof AssignStmt) {
+            Variable variable = ((AssignStmt)stmt).getLhs();
+            if (subInterpreter.variablesOwningSequences.contains(variable)) {
+                variablesOwningSequences.add(variable);
+            }
+            variableValues.put(variable, subInterpreter.variableValues.get(variable));
+        }
+        return stmtOutput;
+    }
+
+    /**
+     * Record the output of an executed statement and discard the variables that die after it
+     * @param stmt The statement that has been executed
+     * @param stmtOutput The statement's output or <code>null</code> if it has none
+     */
+    private void finishStmt(@NotNull Stmt stmt, Value stmtOutput) {
         // If the statement produces output (i.e. 'print' and 'out') save it to the ouputs
         if (stmtOutput != null) {
             output.put(stmt, stmtOutput);
         }
+
+        // Discard the values of variables that are no longer referenced
+        for (Variable variable : stmt.getVariablesDyingAfter()) {
+            Value value = variableValues.remove(variable);
+            if (variablesOwningSequences.remove(variable) && !variable.isEscaping()) {
+                ((SequenceValue)value).free();
+            }
+        }
     }
 
     @NotNull
@@ -115,28 +379,122 @@ public final class Interpreter implements ASTConsumer, ASTVisitor<Value> {
         return output;
     }
 
-    private Value evaluateExpr(@NotNull Expr expr) {
+    /**
+     * Release the memory of all sequences that are not stored on the Java heap. The values of this
+     * interpreter's output must no longer be accessed afterwards
+     */
+    @Override
+    public void close() {
+        // Don't free sequences that statements executing in parallel may still access
+        consumedStmtsFinished.exceptionally(e -> null).join();
+        if (resultCache != null) {
+            resultCache.save();
+        }
+        sequenceAllocator.close();
+    }
+
+    /**
+     * Free the storage of a sequence that has been consumed by an expression if it is not
+     * referenced from anywhere else. This is the case if the sequence has just been created by a
+     * <code>map</code> or range expression
+     * @param expr The expression that produced <code>value</code>
+     * @param value The value that is no longer needed
+     */
+    private void release(@NotNull Expr expr, @NotNull Value value) {
+        if (isFreshSequence(expr, value)) {
+            ((SequenceValue)value).free();
+        }
+    }
+
+    /**
+     * @param expr The expression that produced <code>value</code>
+     * @param value The value produced by <code>expr</code>
+     * @return Whether <code>value</code> is a sequence that has just been created by
+     *         <code>expr</code> and is thus not referenced from anywhere else
+     */
+    private static boolean isFreshSequence(@NotNull Expr expr, @NotNull Value value) {
+        while (expr instanceof ParenExpr) {
+            expr = ((ParenExpr)expr).getSubExpr();
+        }
+        return value instanceof SequenceValue &&
+                (expr instanceof MapExpr || expr instanceof RangeExpr);
+    }
+
+    Value evaluateExpr(@NotNull Expr expr) {
+        if (expr.isShared()) {
+            // Shared expressions don't reference variables, so their value is the same everywhere
+            Value value = sharedExprValues.get(expr);
+            if (value == null) {
+                value = cacheIfShared(expr, expr.acceptVisitor(this));
+            }
+            return value;
+        }
         return expr.acceptVisitor(this);
     }
 
+    /**
+     * Remember the value of an expression if it is shared so that it is only evaluated once
+     * @return <code>value</code>
+     */
+    @NotNull
+    private Value cacheIfShared(@NotNull Expr expr, @NotNull Value value) {
+        if (expr.isShared()) {
+            value.setRecyclable(false);
+            sharedExprValues.put(expr, value);
+        }
+        return value;
+    }
+
+    @Override
+    public Value foldOperand(@NotNull Expr expr) {
+        return evaluateExpr(expr);
+    }
+
+    @Override
+    public Value enter(@NotNull Expr expr) {
+        return expr.isShared() ? sharedExprValues.get(expr) : null;
+    }
+
     @Override
     public Value visitAssignStmt(AssignStmt assignStmt) {
+        if (lazyEvaluation) {
+            // Capture the current values of the variables referenced by the rhs since they may
+            // have died by the time the thunk is forced. Capturing only these keeps the values of
+            // all other variables from being retained by the thunk
+            Interpreter thunkInterpreter = new Interpreter(this, diagnostics,
+                    VariableReferenceCollector.collect(assignStmt.getRhs()));
+            variableValues.put(assignStmt.getLhs(),
+                    new Thunk(thunkInterpreter, assignStmt.getRhs()));
+            return null;
+        }
         Value value = evaluateExpr(assignStmt.getRhs());
         value.setRecyclable(false);
         variableValues.put(assignStmt.getLhs(), value);
+        if (isFreshSequence(assignStmt.getRhs(), value)) {
+            variablesOwningSequences.add(assignStmt.getLhs());
+        }
         return null;
     }
 
     @Override
     public Value visitBinaryOperatorExpr(BinaryOperatorExpr binOpExpr) {
-        Value lhs = evaluateExpr(binOpExpr.getLhs());
-        Value rhs = evaluateExpr(binOpExpr.getRhs());
+        return ExprFolder.fold(binOpExpr, this);
+    }
+
+    @Override
+    public Value foldBinaryOperator(@NotNull BinaryOperatorExpr binOpExpr, Value lhs,
+                                    Value rhs) {
+        return cacheIfShared(binOpExpr, evaluateBinaryOperator(binOpExpr, lhs, rhs));
+    }
 
+    @NotNull
+    private Value evaluateBinaryOperator(@NotNull BinaryOperatorExpr binOpExpr,
+                                         @NotNull Value lhs, @NotNull Value rhs) {
         if (lhs instanceof ErrorValue || rhs instanceof ErrorValue) {
             return ErrorValue.get();
         } else if (lhs instanceof IntValue && rhs instanceof IntValue) {
             // If both operands are integers, the result is often also an integer
-            int value;
+            long value;
             switch (binOpExpr.getOp()) {
                 case ADD:
                     value = ((IntValue)lhs).getValue() + ((IntValue)rhs).getValue();
@@ -149,8 +507,8 @@ public final class Interpreter implements ASTConsumer, ASTVisitor<Value> {
                     break;
                 case DIV: {
                     // Division might result in a fraction, hence return a double value
-                    int lhsValue = ((IntValue)lhs).getValue();
-                    int rhsValue = ((IntValue)rhs).getValue();
+                    long lhsValue = ((IntValue)lhs).getValue();
+                    long rhsValue = ((IntValue)rhs).getValue();
                     if (rhsValue == 0) {
                         diagnostics.error(binOpExpr, Diag.division_by_zero);
                         return ErrorValue.get();
@@ -167,11 +525,11 @@ public final class Interpreter implements ASTConsumer, ASTVisitor<Value> {
                     }
                 }
                 case POW: {
-                    int base = ((IntValue)lhs).getValue();
-                    int exponent = ((IntValue)rhs).getValue();
+                    long base = ((IntValue)lhs).getValue();
+                    long exponent = ((IntValue)rhs).getValue();
                     if (exponent >= 0) {
                         // Exponentiation results in an integer if exponent >= 0
-                        value = (int)Math.pow(base, exponent);
+                        value = (long)Math.pow(base, exponent);
                         break;
                     } else {
                         recycle((IntValue)lhs);
@@ -286,6 +644,8 @@ public final class Interpreter implements ASTConsumer, ASTVisitor<Value> {
         if (value == null) {
             throw new RuntimeException("Variable " + variableRefExpr.getReferencedVariable() +
                     " has no value although the type checker should have enforced it");
+        } else if (value instanceof Thunk) {
+            return ((Thunk)value).force();
         } else {
             return value;
         }
@@ -296,59 +656,45 @@ public final class Interpreter implements ASTConsumer, ASTVisitor<Value> {
         return createIntValue(intLiteralExpr.getValue());
     }
 
+    /**
+     * Collect the chain of <code>map</code> expressions that produce the sequence of
+     * <code>expr</code>, so that they can be evaluated as one pipeline without materializing
+     * intermediate sequences
+     * @param expr The expression that produces a sequence
+     * @param stages The list to which the map expressions are added, innermost first
+     * @return The expression that produces the sequence the innermost map expression is applied to
+     */
+    @NotNull
+    private static Expr collectMapStages(@NotNull Expr expr, @NotNull List<MapExpr> stages) {
+        while (expr instanceof ParenExpr) {
+            expr = ((ParenExpr)expr).getSubExpr();
+        }
+        if (expr instanceof MapExpr) {
+            MapExpr mapExpr = (MapExpr)expr;
+            Expr source = collectMapStages(mapExpr.getArgument(), stages);
+            stages.add(mapExpr);
+            return source;
+        }
+        return expr;
+    }
+
     @Override
     public Value visitMapExpr(MapExpr mapExpr) {
-        Value argument = evaluateExpr(mapExpr.getArgument());
+        List<MapExpr> stages = new ArrayList<>();
+        Expr sourceExpr = collectMapStages(mapExpr, stages);
+
+        Value argument = evaluateExpr(sourceExpr);
         if (argument instanceof ErrorValue) {
             return ErrorValue.get();
         }
         // The type checker guarantees that the argument is a sequence
-        SequenceValue toTransform = (SequenceValue)argument;
-
-        // Accumulate the transformed values in this list
-        Value[] transformedValues = new Value[toTransform.getValues().length];
-        boolean[] errorOccurred = new boolean[] {false};
-
-        boolean valuesRecyclable = argument.isRecyclable();
-
-        Value[] values = toTransform.getValues();
+        SequencePipeline pipeline = new SequencePipeline(this, (SequenceValue)argument, stages,
+                chunkSize);
+        Value result = pipeline.materialize(sequenceAllocator);
 
-        ThreadManager.runOnMaxNumberOfThreads(values, (value, __, i) -> {
-            Interpreter subInterpreter = new Interpreter(diagnostics, variableValues);
+        release(sourceExpr, argument);
 
-            // The value is used as a variable in the lambda and can thus not be
-            // recycled while evaluating the lambda
-            value.setRecyclable(false);
-            subInterpreter.variableValues.put(mapExpr.getLambdaParam(), value);
-            // Set the variable's value and evaluate the expression with this value
-            Value transformedValue = subInterpreter.evaluateExpr(mapExpr.getLambda());
-            if (transformedValue instanceof ErrorValue) {
-                errorOccurred[0] = true;
-                return null;
-            }
-            transformedValues[i] = transformedValue;
-
-            // Recycle the value in the subInterpreter since it tends to need the value
-            // for the next lambda execution
-            if (valuesRecyclable) {
-                value.setRecyclable(true);
-                if (value instanceof IntValue) {
-                    subInterpreter.recycle((IntValue)value);
-                } else if (value instanceof FloatValue) {
-                    subInterpreter.recycle((FloatValue)value);
-                }
-            }
-            return null;
-        });
-
-        if (errorOccurred[0]) {
-            return ErrorValue.get();
-        }
-
-        // The lambda param is no longer valid after the lambda's scope -> remove it
-        variableValues.remove(mapExpr.getLambdaParam());
-
-        return new SequenceValue(transformedValues);
+        return result;
     }
 
     @Override
@@ -358,7 +704,12 @@ public final class Interpreter implements ASTConsumer, ASTVisitor<Value> {
 
     @Override
     public Value visitParenExpr(ParenExpr parenExpr) {
-        return evaluateExpr(parenExpr.getSubExpr());
+        return ExprFolder.fold(parenExpr, this);
+    }
+
+    @Override
+    public Value foldParen(@NotNull ParenExpr parenExpr, Value subExpr) {
+        return cacheIfShared(parenExpr, subExpr);
     }
 
     @Override
@@ -383,49 +734,24 @@ public final class Interpreter implements ASTConsumer, ASTVisitor<Value> {
                     "Float");
             return ErrorValue.get();
         }
-        int lowerBound = ((IntValue)lowerBoundValue).getValue();
-        int upperBound = ((IntValue)upperBoundValue).getValue();
+        long lowerBound = ((IntValue)lowerBoundValue).getValue();
+        long upperBound = ((IntValue)upperBoundValue).getValue();
 
         if (upperBound < lowerBound) {
             diagnostics.error(rangeExpr, Diag.range_upper_bound_smaller_than_lower_bound);
             return ErrorValue.get();
         }
 
-        Value[] values = new Value[upperBound - lowerBound + 1];
-
-        final int numberOfThreads = Runtime.getRuntime().availableProcessors();
-
-        int valuesPerThread = values.length / numberOfThreads;
-
-        Thread[] threads = new Thread[numberOfThreads];
-        for (int j = 0; j < numberOfThreads; j++) {
-            final int finalJ = j;
-            threads[j] = new Thread(() -> {
-                int arrayIndex = finalJ * valuesPerThread;
-                int from = lowerBound + finalJ * valuesPerThread;
-                int to;
-                if (finalJ == numberOfThreads - 1) {
-                    to = upperBound;
-                } else {
-                    to = from + valuesPerThread - 1;
-                }
-                for (int i = from; i <= to; i++) {
-                    values[arrayIndex] = new IntValue(i);
-                    arrayIndex++;
-                }
-            });
-            threads[j].start();
-        }
-
-        for (Thread t : threads) {
-            try {
-                t.join();
-            } catch (InterruptedException e) {
-                throw new RuntimeException();
-            }
+        long length = upperBound - lowerBound + 1;
+        if (length <= 0) {
+            // The number of elements overflowed
+            diagnostics.error(rangeExpr, Diag.range_too_large);
+            return ErrorValue.get();
         }
 
-        return new SequenceValue(values);
+        // The elements of a range can be computed from their index, so there is no need to
+        // store them
+        return new SequenceValue(new RangeSequenceStorage(lowerBound, length));
     }
 
     @Override
@@ -435,49 +761,22 @@ public final class Interpreter implements ASTConsumer, ASTVisitor<Value> {
             return ErrorValue.get();
         }
 
-        Value argument = evaluateExpr(reduceExpr.getSequence());
+        // Apply the map expressions producing the sequence while reducing it instead of
+        // materializing their results
+        List<MapExpr> stages = new ArrayList<>();
+        Expr sourceExpr = collectMapStages(reduceExpr.getSequence(), stages);
+
+        Value argument = evaluateExpr(sourceExpr);
         if (argument instanceof ErrorValue) {
             return ErrorValue.get();
         }
         // The type checker guarantees this is a sequence
-        SequenceValue toTransform = (SequenceValue)argument;
-
-        final int numberOfThreads = Runtime.getRuntime().availableProcessors();
-
-        boolean[] errorOccurred = new boolean[] {false};
-
-        Function3<Interpreter, Value, Value, Value> applyLambda = (interpreter, x, y) -> {
-            interpreter.variableValues.put(reduceExpr.getLambdaParam1(), x);
-            interpreter.variableValues.put(reduceExpr.getLambdaParam2(), y);
-            return interpreter.evaluateExpr(reduceExpr.getLambda());
-        };
-
-        Value[] values = toTransform.getValues();
+        SequencePipeline pipeline = new SequencePipeline(this, (SequenceValue)argument, stages,
+                chunkSize);
+        Value result = pipeline.reduce(reduceExpr, baseValue);
 
-        List<Value> resultsOfThreads = ThreadManager.runOnMaxNumberOfThreads(values, (value, previousValue, i) -> {
-            Interpreter subInterpreter = new Interpreter(diagnostics, variableValues);
-
-            if (previousValue == null) {
-                return value;
-            }
-
-            if (previousValue instanceof ErrorValue) {
-                return previousValue;
-            }
-
-            return applyLambda.apply(subInterpreter, previousValue, value);
-        });
-
-        if (errorOccurred[0]) {
-            return ErrorValue.get();
-        }
-
-        Interpreter subInterpreter = new Interpreter(diagnostics, variableValues);
-        Value currentValue = baseValue;
-        for (Value value : resultsOfThreads) {
-            currentValue = applyLambda.apply(subInterpreter, currentValue, value);
-        }
+        release(sourceExpr, argument);
 
-        return currentValue;
+        return result;
     }
 }
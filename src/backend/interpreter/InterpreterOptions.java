@@ -0,0 +1,174 @@
+package backend.interpreter;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+
+/**
+ * Options that control how an {@link Interpreter} evaluates a program. They do not influence the
+ * output of the program, only its performance characteristics
+ */
+public final class InterpreterOptions {
+
+    /** Whether sequences of numbers shall be stored outside of the Java heap */
+    private boolean offHeapSequences = false;
+    /** The maximum number of bytes sequences may occupy in memory or 0 for no limit */
+    private long memoryBudget = 0;
+    /** The directory for sequences that exceed the memory budget or null for the default */
+    @Nullable private File spillDirectory = null;
+    /** The number of elements of a sequence that are processed as one unit of work */
+    private int chunkSize = 4096;
+    /** Whether assignments are only evaluated once the variable is needed */
+    private boolean lazyEvaluation = false;
+    /** Whether statements that don't depend on each other are executed concurrently */
+    private boolean parallelStatements = false;
+    /** The directory the results of statements are cached in or null to not cache them */
+    @Nullable private File resultCacheDirectory = null;
+    /** The maximum number of bytes the cached results may occupy */
+    private long resultCacheSize = 256L << 20;
+
+    /**
+     * @return Whether sequences of numbers are stored outside of the Java heap
+     */
+    public boolean isOffHeapSequences() {
+        return offHeapSequences;
+    }
+
+    /**
+     * Store sequences of numbers outside of the Java heap. Their memory is released as soon as it
+     * is no longer needed or when the interpreter is closed
+     * @param offHeapSequences Whether sequences of numbers shall be stored off-heap
+     */
+    public void setOffHeapSequences(boolean offHeapSequences) {
+        this.offHeapSequences = offHeapSequences;
+    }
+
+    /**
+     * @return The maximum number of bytes sequences may occupy in memory or 0 if there is no limit
+     */
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * Limit the memory occupied by sequences on the heap and off-heap. Sequences of numbers that
+     * would exceed this budget are spilled to memory-mapped temporary files
+     * @param memoryBudget The maximum number of bytes or 0 for no limit
+     */
+    public void setMemoryBudget(long memoryBudget) {
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * @return The directory in which sequences exceeding the memory budget are stored or
+     *         <code>null</code> if the system's temporary directory is used
+     */
+    @Nullable
+    public File getSpillDirectory() {
+        return spillDirectory;
+    }
+
+    /**
+     * @param spillDirectory The directory in which sequences exceeding the memory budget shall be
+     *                       stored or <code>null</code> to use the system's temporary directory
+     */
+    public void setSpillDirectory(@Nullable File spillDirectory) {
+        this.spillDirectory = spillDirectory;
+    }
+
+    /**
+     * @return The number of elements of a sequence that are processed as one unit of work
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Sequences are transformed by <code>map</code> and <code>reduce</code> in chunks of this
+     * many elements. Chunks are processed in parallel and only a bounded number of them is held in
+     * memory at the same time
+     * @param chunkSize The number of elements per chunk. Must be positive
+     */
+    public void setChunkSize(int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("The chunk size must be positive");
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * @return Whether assignments are only evaluated once the variable is needed
+     */
+    public boolean isLazyEvaluation() {
+        return lazyEvaluation;
+    }
+
+    /**
+     * Evaluate the right-hand side of an assignment only when the variable is referenced by an
+     * evaluated expression for the first time. Assignments that no <code>out</code> statement
+     * depends on are thus never evaluated and do not report runtime errors
+     * @param lazyEvaluation Whether assignments shall be evaluated lazily
+     */
+    public void setLazyEvaluation(boolean lazyEvaluation) {
+        this.lazyEvaluation = lazyEvaluation;
+    }
+
+    /**
+     * @return Whether statements that don't depend on each other are executed concurrently
+     */
+    public boolean isParallelStatements() {
+        return parallelStatements;
+    }
+
+    /**
+     * Execute each statement as soon as the statements assigning the variables it references
+     * have been executed instead of strictly in source order. The output is still recorded in
+     * source order. The interpreter's output is only complete after
+     * {@link Interpreter#consumeEOF()} has been called
+     * @param parallelStatements Whether independent statements shall be executed concurrently
+     */
+    public void setParallelStatements(boolean parallelStatements) {
+        this.parallelStatements = parallelStatements;
+    }
+
+    /**
+     * @return The directory in which the results of statements are cached across runs or
+     *         <code>null</code> if they are not cached
+     */
+    @Nullable
+    public File getResultCacheDirectory() {
+        return resultCacheDirectory;
+    }
+
+    /**
+     * Store the values of assignments and <code>out</code> statements in the given directory and
+     * reuse them instead of evaluating a statement whose transitive dependencies are unchanged.
+     * Results that reported errors are not cached
+     * @param resultCacheDirectory The directory to cache results in or <code>null</code> to not
+     *                             cache results
+     */
+    public void setResultCacheDirectory(@Nullable File resultCacheDirectory) {
+        this.resultCacheDirectory = resultCacheDirectory;
+    }
+
+    /**
+     * @return The maximum number of bytes the cached results may occupy
+     */
+    public long getResultCacheSize() {
+        return resultCacheSize;
+    }
+
+    /**
+     * @param resultCacheSize The maximum number of bytes the cached results may occupy. The least
+     *                        recently used results are evicted once it is exceeded. The cache
+     *                        file is memory-mapped as a whole, so this must not be negative and
+     *                        at most {@link Integer#MAX_VALUE}
+     */
+    public void setResultCacheSize(long resultCacheSize) {
+        if (resultCacheSize < 0 || resultCacheSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("The result cache size must be between 0 and " +
+                    Integer.MAX_VALUE);
+        }
+        this.resultCacheSize = resultCacheSize;
+    }
+}
@@ -0,0 +1,195 @@
+package backend.interpreter;
+
+import backend.AST.MapExpr;
+import backend.AST.Type.NumberType;
+import backend.errorHandling.Diagnostics;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers the results of a <code>map</code> lambda for the numbers it has been applied to so
+ * that repeated elements of a sequence only need to be transformed once.
+ *
+ * <p>
+ * Lambdas don't have side effects apart from reporting errors, so a result can be reused as long
+ * as the errors reported while computing it are reported again. The memo is adaptive: it measures
+ * its hit rate in windows of {@link #WINDOW_SIZE} lookups and turns itself off, forgetting all
+ * results, once a window's hit rate falls below {@link #MIN_HIT_RATE}. Since later elements may
+ * repeat more often than earlier ones, it turns itself on again for a sample window after
+ * {@link #WINDOWS_BETWEEN_PROBES} windows of elements have been transformed without it. At most
+ * {@link #MAX_ENTRIES} results are remembered.
+ * </p>
+ *
+ * <p>
+ * A memo is only valid for a single evaluation of its <code>map</code> expression since the lambda
+ * may reference the parameters of enclosing lambdas.
+ * </p>
+ */
+final class LambdaMemo {
+
+    /** The number of lookups after which the hit rate is checked */
+    static final int WINDOW_SIZE = 1024;
+    /** The minimum fraction of lookups that need to hit for the memo to stay enabled */
+    static final double MIN_HIT_RATE = 0.5;
+    /** The maximum number of results remembered */
+    static final int MAX_ENTRIES = 1 << 14;
+    /** The number of windows after which a disabled memo probes the hit rate again */
+    static final int WINDOWS_BETWEEN_PROBES = 16;
+
+    private static final class Entry {
+        @NotNull final Value result;
+        /** The errors reported while computing the result */
+        @NotNull final List<Diagnostics.Error> errors;
+
+        Entry(@NotNull Value result, @NotNull List<Diagnostics.Error> errors) {
+            this.result = result;
+            this.errors = errors;
+        }
+    }
+
+    /** The diagnostics engine to report remembered errors to */
+    @NotNull private final Diagnostics diagnostics;
+    /** The results for integer arguments */
+    @NotNull private final Map<Long, Entry> intResults = new ConcurrentHashMap<>();
+    /** The results for float arguments by the bits of the argument */
+    @NotNull private final Map<Long, Entry> floatResults = new ConcurrentHashMap<>();
+    private volatile boolean enabled = true;
+    /** The number of lookups and hits in the current window */
+    private int windowLookups;
+    private int windowHits;
+    /** The number of elements transformed without the memo since it has been turned off */
+    private long skippedElements;
+
+    private LambdaMemo(@NotNull Diagnostics diagnostics) {
+        this.diagnostics = diagnostics;
+    }
+
+    /**
+     * @param stage The map expression whose lambda to remember the results of
+     * @param diagnostics The diagnostics engine errors of the lambda are reported to
+     * @return A memo for the lambda or <code>null</code> if the lambda's parameter or result are
+     *         not numbers. Sequences would need to be compared by their elements and could not be
+     *         shared between the elements of the resulting sequence
+     */
+    @Nullable
+    static LambdaMemo create(@NotNull MapExpr stage, @NotNull Diagnostics diagnostics) {
+        if (!(stage.getLambdaParam().getType() instanceof NumberType) ||
+                !(stage.getLambda().getType() instanceof NumberType)) {
+            return null;
+        }
+        return new LambdaMemo(diagnostics);
+    }
+
+    /**
+     * @return Whether the memo should be consulted. If not, the transformed elements must be
+     *         reported using {@link #recordSkippedElements(int)}
+     */
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    @NotNull
+    private Map<Long, Entry> getResults(@NotNull Value argument) {
+        return argument instanceof IntValue ? intResults : floatResults;
+    }
+
+    private static long getKey(@NotNull Value argument) {
+        if (argument instanceof IntValue) {
+            return ((IntValue)argument).getValue();
+        } else {
+            return Double.doubleToRawLongBits(((FloatValue)argument).getValue());
+        }
+    }
+
+    /**
+     * Look up the lambda's result for an argument, reporting the errors that have been reported
+     * while computing it again
+     * @param argument The number the lambda is applied to
+     * @return The lambda's result or <code>null</code> if it is not known
+     */
+    @Nullable
+    Value lookup(@NotNull Value argument) {
+        Entry entry = getResults(argument).get(getKey(argument));
+        if (entry == null) {
+            return null;
+        }
+        for (Diagnostics.Error error : entry.errors) {
+            diagnostics.addError(error);
+        }
+        return entry.result;
+    }
+
+    /**
+     * Remember the lambda's result for an argument and report the errors that occurred while
+     * computing it
+     * @param argument The number the lambda has been applied to
+     * @param result The lambda's result
+     * @param recordedDiagnostics The diagnostics engine the lambda has reported its errors to.
+     *                            Its errors are cleared
+     */
+    void store(@NotNull Value argument, @NotNull Value result,
+               @NotNull Diagnostics recordedDiagnostics) {
+        List<Diagnostics.Error> errors = Collections.emptyList();
+        if (!recordedDiagnostics.getErrors().isEmpty()) {
+            errors = new ArrayList<>(recordedDiagnostics.getErrors());
+            recordedDiagnostics.getErrors().clear();
+            for (Diagnostics.Error error : errors) {
+                diagnostics.addError(error);
+            }
+        }
+        Map<Long, Entry> results = getResults(argument);
+        if (intResults.size() + floatResults.size() < MAX_ENTRIES) {
+            // The result is handed out for multiple elements and must thus never be recycled
+            result.setRecyclable(false);
+            results.putIfAbsent(getKey(argument), new Entry(result, errors));
+        }
+    }
+
+    /**
+     * Account for the lookups performed while transforming a chunk and turn the memo off if too
+     * few of them hit. Lookups recorded while the memo is turned off are ignored
+     * @param lookups The number of lookups
+     * @param hits The number of lookups that found a result
+     */
+    synchronized void recordLookups(int lookups, int hits) {
+        if (!enabled) {
+            return;
+        }
+        windowLookups += lookups;
+        windowHits += hits;
+        if (windowLookups < WINDOW_SIZE) {
+            return;
+        }
+        if (windowHits < MIN_HIT_RATE * windowLookups) {
+            enabled = false;
+            skippedElements = 0;
+            intResults.clear();
+            floatResults.clear();
+        }
+        windowLookups = 0;
+        windowHits = 0;
+    }
+
+    /**
+     * Account for the elements transformed without consulting the memo while it is turned off and
+     * turn it on again for a sample window if enough elements have been transformed
+     * @param elements The number of elements transformed without the memo
+     */
+    synchronized void recordSkippedElements(int elements) {
+        if (enabled) {
+            return;
+        }
+        skippedElements += elements;
+        if (skippedElements >= (long)WINDOWS_BETWEEN_PROBES * WINDOW_SIZE) {
+            windowLookups = 0;
+            windowHits = 0;
+            enabled = true;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package backend.interpreter;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Keeps a sequence of numbers in a temporary file that is memory-mapped chunk by chunk when the
+ * chunk is first accessed. This is used for sequences that do not fit into the memory budget of an
+ * evaluation. The operating system pages the chunks in and out as they are accessed. The file is
+ * deleted when the storage is freed, at the latest when its {@link SequenceAllocator} is closed
+ */
+final class MappedSequenceStorage extends ChunkedSequenceStorage {
+
+    @NotNull private final SequenceAllocator allocator;
+    @NotNull private final File file;
+    @NotNull private final RandomAccessFile randomAccessFile;
+    @NotNull private final AtomicReferenceArray<ByteBuffer> chunks;
+    private volatile boolean freed = false;
+
+    /**
+     * Use {@link SequenceAllocator#allocate} to create memory-mapped storages
+     * @param directory The directory in which to create the temporary file or <code>null</code> to
+     *                  use the system's default temporary directory
+     */
+    MappedSequenceStorage(@NotNull SequenceAllocator allocator, long length,
+                          @Nullable File directory) {
+        super(length);
+        this.allocator = allocator;
+        this.chunks = new AtomicReferenceArray<>(getNumberOfChunks(length));
+        try {
+            file = File.createTempFile("sequence", ".spill", directory);
+            randomAccessFile = new RandomAccessFile(file, "rw");
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @NotNull
+    @Override
+    ByteBuffer getChunk(int chunkIndex) {
+        if (freed) {
+            throw new IllegalStateException("Accessing a freed sequence");
+        }
+        ByteBuffer chunk = chunks.get(chunkIndex);
+        if (chunk == null) {
+            chunk = mapChunk(chunkIndex);
+        }
+        return chunk;
+    }
+
+    @NotNull
+    private synchronized ByteBuffer mapChunk(int chunkIndex) {
+        if (freed) {
+            throw new IllegalStateException("Accessing a freed sequence");
+        }
+        ByteBuffer chunk = chunks.get(chunkIndex);
+        if (chunk != null) {
+            // Another thread has mapped the chunk in the meantime
+            return chunk;
+        }
+        long position = (long)chunkIndex * ELEMENTS_PER_CHUNK * BYTES_PER_ELEMENT;
+        try {
+            chunk = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, position,
+                    getChunkCapacity(getLength(), chunkIndex)).order(ByteOrder.nativeOrder());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        chunks.set(chunkIndex, chunk);
+        return chunk;
+    }
+
+    @Override
+    synchronized void free() {
+        if (freed) {
+            return;
+        }
+        freed = true;
+        for (int i = 0; i < chunks.length(); i++) {
+            ByteBuffer chunk = chunks.getAndSet(i, null);
+            if (chunk != null) {
+                allocator.freeDirect(chunk);
+            }
+        }
+        try {
+            randomAccessFile.close();
+        } catch (IOException ignored) {
+        }
+        //noinspection ResultOfMethodCallIgnored
+        file.delete();
+        allocator.storageFreed(this, 0);
+    }
+}
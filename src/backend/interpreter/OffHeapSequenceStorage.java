@@ -0,0 +1,48 @@
+package backend.interpreter;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Keeps a sequence of numbers in direct buffers obtained from a {@link SequenceAllocator}
+ */
+final class OffHeapSequenceStorage extends ChunkedSequenceStorage {
+
+    @NotNull private final SequenceAllocator allocator;
+    @NotNull private final ByteBuffer[] chunks;
+    private volatile boolean freed = false;
+
+    /**
+     * Use {@link SequenceAllocator#allocate} to create off-heap storages
+     */
+    OffHeapSequenceStorage(@NotNull SequenceAllocator allocator, long length) {
+        super(length);
+        this.allocator = allocator;
+        this.chunks = new ByteBuffer[getNumberOfChunks(length)];
+        for (int i = 0; i < chunks.length; i++) {
+            chunks[i] = allocator.allocateDirect(getChunkCapacity(length, i));
+        }
+    }
+
+    @NotNull
+    @Override
+    ByteBuffer getChunk(int chunkIndex) {
+        if (freed) {
+            throw new IllegalStateException("Accessing a freed sequence");
+        }
+        return chunks[chunkIndex];
+    }
+
+    @Override
+    synchronized void free() {
+        if (freed) {
+            return;
+        }
+        freed = true;
+        for (ByteBuffer chunk : chunks) {
+            allocator.freeDirect(chunk);
+        }
+        allocator.storageFreed(this, getLength() * BYTES_PER_ELEMENT);
+    }
+}
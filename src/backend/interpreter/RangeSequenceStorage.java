@@ -0,0 +1,38 @@
+package backend.interpreter;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The elements of a range <code>{lowerBound, upperBound}</code>. Since every element can be
+ * computed from its index, no memory is needed to store them
+ */
+final class RangeSequenceStorage extends SequenceStorage {
+
+    private final long lowerBound;
+    private final long length;
+
+    RangeSequenceStorage(long lowerBound, long length) {
+        this.lowerBound = lowerBound;
+        this.length = length;
+    }
+
+    long getLowerBound() {
+        return lowerBound;
+    }
+
+    @Override
+    long getLength() {
+        return length;
+    }
+
+    @NotNull
+    @Override
+    Value get(long index) {
+        return new IntValue(lowerBound + index);
+    }
+
+    @Override
+    void set(long index, @NotNull Value value) {
+        throw new UnsupportedOperationException("Ranges are immutable");
+    }
+}
@@ -0,0 +1,362 @@
+package backend.interpreter;
+
+import backend.AST.Type.SequenceType;
+import backend.AST.Type.Type;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * Stores the values of assignments and <code>out</code> statements in a file so that later runs
+ * of the same or an edited program can skip statements whose result is already known.
+ *
+ * <p>
+ * Programs are deterministic, so the result of a statement only depends on the statement and the
+ * statements it transitively references. Results are thus keyed by
+ * {@link DependencyHasher#computeKey}. Results that reported errors are not stored since their
+ * diagnostics could not be reproduced.
+ * </p>
+ *
+ * <p>
+ * The total size of the cache file is bounded, the least recently used results are evicted once
+ * it would be exceeded. The cache file is memory-mapped when the cache is opened and only written
+ * back when the cache is closed, replacing it atomically.
+ * </p>
+ */
+final class ResultCache {
+
+    /** Identifies a result cache file */
+    private static final int MAGIC = 0x52534C54;
+    /** The version of the cache format. Needs to be incremented whenever the format changes */
+    private static final int VERSION = 1;
+    /** The length of a key in bytes, i.e. that of a SHA-256 hash */
+    private static final int KEY_LENGTH = 32;
+    private static final int HEADER_SIZE = 4 + 4 + 4;
+    /** The size of an entry's key, time of last use, length and checksum in the index */
+    private static final int INDEX_ENTRY_SIZE = KEY_LENGTH + 8 + 4 + 4;
+
+    private static final byte INT_VALUE = 0;
+    private static final byte FLOAT_VALUE = 1;
+    private static final byte RANGE_VALUE = 2;
+    private static final byte SEQUENCE_VALUE = 3;
+
+    private static final class Entry {
+        /** The serialized value */
+        @NotNull final ByteBuffer data;
+        /** Orders the entries by their last use across runs */
+        long lastUse;
+
+        Entry(@NotNull ByteBuffer data, long lastUse) {
+            this.data = data;
+            this.lastUse = lastUse;
+        }
+
+        long getSize() {
+            return INDEX_ENTRY_SIZE + data.remaining();
+        }
+    }
+
+    @NotNull private final File cacheFile;
+    private final long maxSize;
+    /** The entries by their key, least recently used first */
+    @NotNull private final LinkedHashMap<ByteBuffer, Entry> entries =
+            new LinkedHashMap<>(16, 0.75f, true);
+    /** The sum of the sizes of all entries */
+    private long size;
+    /** The time of last use given to entries that are used in this run */
+    private long clock;
+    /**
+     * Whether entries have been added, evicted or used since the cache file has been read
+     */
+    private boolean modified;
+
+    /**
+     * Open the cache stored in the given directory. A missing or malformed cache file results in
+     * an empty cache
+     * @param directory The directory to store the cache file in
+     * @param maxSize The maximum number of bytes the cache file may occupy, at most
+     *                {@link Integer#MAX_VALUE}
+     */
+    ResultCache(@NotNull File directory, long maxSize) {
+        assert maxSize <= Integer.MAX_VALUE : "Cache files are mapped into a single buffer";
+        this.cacheFile = new File(directory, "results.cache");
+        this.maxSize = maxSize;
+        try {
+            read();
+        } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+            // A cache that can't be read is no different from an empty one
+            entries.clear();
+            size = 0;
+            clock = 0;
+        }
+    }
+
+    private void read() throws IOException {
+        if (!cacheFile.isFile()) {
+            return;
+        }
+        MappedByteBuffer buffer;
+        try (RandomAccessFile file = new RandomAccessFile(cacheFile, "r");
+             FileChannel channel = file.getChannel()) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                return;
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            return;
+        }
+        int count = buffer.getInt();
+        if (count < 0 || (long)count * INDEX_ENTRY_SIZE > buffer.remaining()) {
+            throw new IllegalArgumentException("Malformed result cache");
+        }
+        List<Map.Entry<ByteBuffer, Entry>> readEntries = new ArrayList<>(count);
+        int dataPosition = HEADER_SIZE + count * INDEX_ENTRY_SIZE;
+        for (int i = 0; i < count; i++) {
+            byte[] key = new byte[KEY_LENGTH];
+            buffer.get(key);
+            long lastUse = buffer.getLong();
+            int length = buffer.getInt();
+            int checksum = buffer.getInt();
+            if (length < 0 || length > buffer.limit() - dataPosition) {
+                throw new IllegalArgumentException("Malformed result cache");
+            }
+            ByteBuffer data = buffer.duplicate();
+            data.position(dataPosition).limit(dataPosition + length);
+            dataPosition += length;
+            if (checksum != computeChecksum(data)) {
+                // Drop corrupted entries
+                modified = true;
+                continue;
+            }
+            readEntries.add(new AbstractMap.SimpleEntry<>(ByteBuffer.wrap(key),
+                    new Entry(data.slice(), lastUse)));
+            clock = Math.max(clock, lastUse + 1);
+        }
+        readEntries.sort(Comparator.comparingLong(entry -> entry.getValue().lastUse));
+        for (Map.Entry<ByteBuffer, Entry> entry : readEntries) {
+            entries.put(entry.getKey(), entry.getValue());
+            size += entry.getValue().getSize();
+        }
+        // The maximum size may have been lowered since the cache file was written
+        evictLeastRecentlyUsed();
+    }
+
+    /**
+     * @param key The key of the statement whose result to load
+     * @param type The type of the result
+     * @param allocator The allocator to create the storage of sequences with
+     * @return The cached result or <code>null</code> if there is none
+     */
+    @Nullable
+    synchronized Value load(@NotNull byte[] key, @NotNull Type type,
+                            @NotNull SequenceAllocator allocator) {
+        Entry entry = entries.get(ByteBuffer.wrap(key));
+        if (entry == null) {
+            return null;
+        }
+        entry.lastUse = clock++;
+        modified = true;
+        try {
+            return readValue(entry.data.duplicate(), type, allocator);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            entries.remove(ByteBuffer.wrap(key));
+            size -= entry.getSize();
+            modified = true;
+            return null;
+        }
+    }
+
+    /**
+     * Store the result of a statement. Results that are larger than the cache are dropped
+     * @param key The key of the statement
+     * @param value The statement's result, which must not be an {@link ErrorValue}
+     */
+    synchronized void store(@NotNull byte[] key, @NotNull Value value) {
+        long maxValueSize = maxSize - HEADER_SIZE - INDEX_ENTRY_SIZE;
+        long valueSize = getSerializedSize(value, maxValueSize);
+        if (valueSize > maxValueSize) {
+            return;
+        }
+        ByteBuffer data = ByteBuffer.allocate((int)valueSize);
+        writeValue(data, value);
+        data.flip();
+        Entry entry = new Entry(data, clock++);
+        Entry previous = entries.put(ByteBuffer.wrap(key.clone()), entry);
+        if (previous != null) {
+            size -= previous.getSize();
+        }
+        size += entry.getSize();
+        modified = true;
+        evictLeastRecentlyUsed();
+    }
+
+    /**
+     * Remove the least recently used entries until the cache file does not exceed its maximum size
+     */
+    private void evictLeastRecentlyUsed() {
+        Iterator<Entry> leastRecentlyUsed = entries.values().iterator();
+        while (HEADER_SIZE + size > maxSize) {
+            size -= leastRecentlyUsed.next().getSize();
+            leastRecentlyUsed.remove();
+            modified = true;
+        }
+    }
+
+    /**
+     * Write the cache back to its file. Failing to do so, e.g. because the directory is not
+     * writable, is silently ignored
+     */
+    synchronized void save() {
+        try {
+            // Even if only the times of last use changed, the file is replaced as a whole instead
+            // of being updated in place since another run may have replaced it in the meantime
+            if (modified) {
+                write();
+            }
+        } catch (IOException e) {
+            // Ignore failures, the cache is only an optimisation
+        }
+    }
+
+    private void write() throws IOException {
+        if (HEADER_SIZE + size > Integer.MAX_VALUE) {
+            return;
+        }
+        File directory = cacheFile.getAbsoluteFile().getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            return;
+        }
+        File tempFile = File.createTempFile(cacheFile.getName(), ".tmp", directory);
+        try {
+            try (RandomAccessFile file = new RandomAccessFile(tempFile, "rw");
+                 FileChannel channel = file.getChannel()) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                        HEADER_SIZE + size);
+                buffer.putInt(MAGIC);
+                buffer.putInt(VERSION);
+                buffer.putInt(entries.size());
+                int dataPosition = HEADER_SIZE + entries.size() * INDEX_ENTRY_SIZE;
+                for (Map.Entry<ByteBuffer, Entry> entry : entries.entrySet()) {
+                    ByteBuffer data = entry.getValue().data.duplicate();
+                    buffer.put(entry.getKey().duplicate());
+                    buffer.putLong(entry.getValue().lastUse);
+                    buffer.putInt(data.remaining());
+                    buffer.putInt(computeChecksum(data));
+                    int indexPosition = buffer.position();
+                    buffer.position(dataPosition);
+                    dataPosition += data.remaining();
+                    buffer.put(data);
+                    buffer.position(indexPosition);
+                }
+            }
+            Files.move(tempFile.toPath(), cacheFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            tempFile.delete();
+        }
+    }
+
+    /**
+     * @param value The value to serialize
+     * @param limit The size above which the exact size of the value is not needed
+     * @return The number of bytes <code>value</code> occupies when serialized or any number larger
+     *         than <code>limit</code> if it occupies more than <code>limit</code> bytes. Large
+     *         sequences are thus not traversed completely if they don't fit
+     */
+    private static long getSerializedSize(@NotNull Value value, long limit) {
+        if (value instanceof IntValue || value instanceof FloatValue) {
+            return 1 + 8;
+        } else if (value instanceof SequenceValue) {
+            SequenceValue sequence = (SequenceValue)value;
+            if (sequence.getStorage() instanceof RangeSequenceStorage) {
+                return 1 + 8 + 8;
+            }
+            long size = 1 + 8;
+            // Every element occupies at least 9 bytes
+            if (sequence.getLength() > (limit - size) / 9) {
+                return limit + 1;
+            }
+            for (long i = 0; i < sequence.getLength() && size <= limit; i++) {
+                size += getSerializedSize(sequence.get(i), limit - size);
+            }
+            return size;
+        } else {
+            throw new RuntimeException("Unknown value to cache: " + value);
+        }
+    }
+
+    private static void writeValue(@NotNull ByteBuffer buffer, @NotNull Value value) {
+        if (value instanceof IntValue) {
+            buffer.put(INT_VALUE).putLong(((IntValue)value).getValue());
+        } else if (value instanceof FloatValue) {
+            buffer.put(FLOAT_VALUE).putDouble(((FloatValue)value).getValue());
+        } else {
+            SequenceValue sequence = (SequenceValue)value;
+            SequenceStorage storage = sequence.getStorage();
+            if (storage instanceof RangeSequenceStorage) {
+                RangeSequenceStorage range = (RangeSequenceStorage)storage;
+                buffer.put(RANGE_VALUE).putLong(range.getLowerBound()).putLong(range.getLength());
+                return;
+            }
+            buffer.put(SEQUENCE_VALUE).putLong(sequence.getLength());
+            for (long i = 0; i < sequence.getLength(); i++) {
+                writeValue(buffer, sequence.get(i));
+            }
+        }
+    }
+
+    @NotNull
+    private static Value readValue(@NotNull ByteBuffer buffer, @NotNull Type type,
+                                   @NotNull SequenceAllocator allocator) {
+        byte tag = buffer.get();
+        switch (tag) {
+            case INT_VALUE:
+                return new IntValue(buffer.getLong());
+            case FLOAT_VALUE:
+                return new FloatValue(buffer.getDouble());
+            case RANGE_VALUE:
+                return new SequenceValue(new RangeSequenceStorage(buffer.getLong(),
+                        buffer.getLong()));
+            case SEQUENCE_VALUE: {
+                if (!(type instanceof SequenceType)) {
+                    throw new IllegalArgumentException("Cached value does not match its type");
+                }
+                Type elementType = ((SequenceType)type).getSubType();
+                long length = buffer.getLong();
+                if (length < 0 || length > buffer.remaining()) {
+                    throw new IllegalArgumentException("Malformed cached sequence");
+                }
+                SequenceStorage storage = allocator.allocate(length, elementType);
+                try {
+                    for (long i = 0; i < length; i++) {
+                        storage.set(i, readValue(buffer, elementType, allocator));
+                    }
+                } catch (RuntimeException e) {
+                    storage.free();
+                    throw e;
+                }
+                return new SequenceValue(storage);
+            }
+            default:
+                throw new IllegalArgumentException("Unknown cached value: " + tag);
+        }
+    }
+
+    private static int computeChecksum(@NotNull ByteBuffer data) {
+        CRC32 crc = new CRC32();
+        crc.update(data.duplicate());
+        return (int)crc.getValue();
+    }
+}
@@ -0,0 +1,319 @@
+package backend.interpreter;
+
+import backend.AST.Type.NumberType;
+import backend.AST.Type.Type;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Creates the storages for all sequences computed during one evaluation and keeps track of the
+ * off-heap memory they use so that it can be released deterministically once the evaluation is
+ * finished, see {@link #close()}
+ *
+ * <p>
+ * If a memory budget is set, sequences of numbers that would exceed it are spilled to
+ * memory-mapped temporary files. Sequences of other types are always kept on the heap. Heap
+ * sequences count against the budget until they are freed or collected by the garbage collector
+ * </p>
+ */
+final class SequenceAllocator {
+
+    @FunctionalInterface
+    private interface BufferCleaner {
+        void clean(@NotNull ByteBuffer buffer) throws Exception;
+    }
+
+    /**
+     * Releases the native memory of a direct buffer right away instead of waiting for the garbage
+     * collector to do so. There is no public API for this in Java 8, so this is {@code null} if
+     * neither the Java 9+ nor the Java 8 internals are accessible
+     */
+    @Nullable private static final BufferCleaner CLEANER;
+    /**
+     * The longest time in milliseconds to wait for the garbage collector to discover a heap
+     * sequence that is no longer reachable before waiting twice as long
+     */
+    private static final long MAX_COLLECTION_WAIT_MILLIS = 128;
+    /** Why {@link #CLEANER} could not be created or <code>null</code> if it is available */
+    @Nullable private static final Throwable CLEANER_UNAVAILABLE_CAUSE;
+
+    static {
+        BufferCleaner cleaner = null;
+        Throwable cause = null;
+        try {
+            cleaner = createCleaner();
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            cause = e;
+        }
+        CLEANER = cleaner;
+        CLEANER_UNAVAILABLE_CAUSE = cause;
+    }
+
+    /**
+     * Credits the bytes of a heap storage back to the memory budget once the storage has been
+     * freed or collected, whichever happens first
+     */
+    final class HeapStorageReference extends PhantomReference<HeapSequenceStorage> {
+        private final long bytes;
+        @NotNull private final AtomicBoolean released = new AtomicBoolean();
+
+        private HeapStorageReference(@NotNull HeapSequenceStorage storage, long bytes) {
+            super(storage, unreachableHeapStorages);
+            this.bytes = bytes;
+        }
+
+        void release() {
+            if (released.compareAndSet(false, true)) {
+                clear();
+                heapStorageReferences.remove(this);
+                usedBytes.addAndGet(-bytes);
+            }
+        }
+    }
+
+    private final boolean offHeap;
+    /** The maximum number of bytes materialized sequences may occupy or 0 for no limit */
+    private final long memoryBudget;
+    @Nullable private final File spillDirectory;
+    /** The number of bytes currently occupied by sequences on the heap or off-heap */
+    @NotNull private final AtomicLong usedBytes = new AtomicLong();
+    /** Receives the heap storages counted against the memory budget once they are unreachable */
+    @NotNull private final ReferenceQueue<HeapSequenceStorage> unreachableHeapStorages =
+            new ReferenceQueue<>();
+    /**
+     * The references of heap storages whose bytes have not been credited back to the memory budget
+     * yet. Phantom references are only enqueued while they are reachable themselves
+     */
+    @NotNull private final Set<HeapStorageReference> heapStorageReferences =
+            Collections.newSetFromMap(new ConcurrentHashMap<>());
+    /**
+     * The number of bytes of heap storages counted against the memory budget since a garbage
+     * collection has last been requested
+     */
+    @NotNull private final AtomicLong heapBytesSinceCollection = new AtomicLong();
+    /** The storages outside of the heap that have been allocated and not been freed yet */
+    @NotNull private final Set<SequenceStorage> liveStorages =
+            Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /**
+     * @throws IllegalStateException If sequences may be stored in direct or memory-mapped buffers
+     *                               but these cannot be released deterministically on this JVM
+     */
+    SequenceAllocator(@NotNull InterpreterOptions options) {
+        this.offHeap = options.isOffHeapSequences();
+        this.memoryBudget = options.getMemoryBudget();
+        this.spillDirectory = options.getSpillDirectory();
+        if ((offHeap || memoryBudget > 0) && CLEANER == null) {
+            throw new IllegalStateException("Sequences outside of the heap cannot be freed on " +
+                    "this JVM since its buffer cleaner is not accessible",
+                    CLEANER_UNAVAILABLE_CAUSE);
+        }
+    }
+
+    /**
+     * @return A cleaner using the Java 9+ internals if they are present, otherwise one using the
+     *         Java 8 internals
+     * @throws ReflectiveOperationException If neither of them is accessible
+     */
+    @NotNull
+    private static BufferCleaner createCleaner() throws ReflectiveOperationException {
+        Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+        Method invokeCleaner;
+        try {
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (NoSuchMethodException e) {
+            // Java 8
+            Method cleanerMethod = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+            Method cleanMethod = Class.forName("sun.misc.Cleaner").getMethod("clean");
+            cleanerMethod.setAccessible(true);
+            cleanMethod.setAccessible(true);
+            return buffer -> cleanMethod.invoke(cleanerMethod.invoke(buffer));
+        }
+        // Java 9+
+        Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+        theUnsafe.setAccessible(true);
+        Object unsafe = theUnsafe.get(null);
+        return buffer -> invokeCleaner.invoke(unsafe, buffer);
+    }
+
+    /**
+     * Create the storage for a new sequence
+     * @param length The number of elements in the sequence
+     * @param elementType The type of the elements that will be stored in the sequence
+     * @return A storage that is able to hold <code>length</code> elements of
+     *         <code>elementType</code>
+     */
+    @NotNull
+    SequenceStorage allocate(long length, @NotNull Type elementType) {
+        if (!(elementType instanceof NumberType)) {
+            // Sequences of sequences cannot be spilled, keep them on the heap regardless of the
+            // budget
+            if (memoryBudget > 0) {
+                usedBytes.addAndGet(length * HeapSequenceStorage.BYTES_PER_ELEMENT);
+            }
+            return new HeapSequenceStorage(this, length);
+        }
+        SequenceStorage storage;
+        if (offHeap) {
+            if (reserve(length * ChunkedSequenceStorage.BYTES_PER_ELEMENT)) {
+                storage = new OffHeapSequenceStorage(this, length);
+            } else {
+                storage = new MappedSequenceStorage(this, length, spillDirectory);
+            }
+        } else {
+            if (memoryBudget == 0 ||
+                    reserve(length * HeapSequenceStorage.BYTES_PER_ELEMENT)) {
+                return new HeapSequenceStorage(this, length);
+            }
+            storage = new MappedSequenceStorage(this, length, spillDirectory);
+        }
+        synchronized (liveStorages) {
+            liveStorages.add(storage);
+        }
+        return storage;
+    }
+
+    /**
+     * Try to reserve memory for a new sequence within the memory budget. If the budget is
+     * exhausted, heap sequences that are no longer reachable are released first
+     * @param bytes The number of bytes the sequence occupies
+     * @return <code>true</code> if the memory has been reserved, <code>false</code> if the sequence
+     *         would exceed the memory budget
+     */
+    private boolean reserve(long bytes) {
+        if (tryReserve(bytes)) {
+            return true;
+        }
+        releaseUnreachableHeapStorages();
+        if (tryReserve(bytes)) {
+            return true;
+        }
+        // Unreachable heap sequences are only discovered by the garbage collector. Like the JDK
+        // does when it runs out of direct memory, request a collection and wait for it to enqueue
+        // them. Only do so if enough has been allocated on the heap since the last request for
+        // this to be worthwhile
+        if (heapBytesSinceCollection.getAndSet(0) < memoryBudget / 2) {
+            return false;
+        }
+        System.gc();
+        try {
+            for (long timeout = 1; timeout <= MAX_COLLECTION_WAIT_MILLIS; timeout <<= 1) {
+                Reference<? extends HeapSequenceStorage> reference =
+                        unreachableHeapStorages.remove(timeout);
+                if (reference != null) {
+                    ((HeapStorageReference)reference).release();
+                    releaseUnreachableHeapStorages();
+                }
+                if (tryReserve(bytes)) {
+                    return true;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    private boolean tryReserve(long bytes) {
+        while (true) {
+            long used = usedBytes.get();
+            if (memoryBudget > 0 && used + bytes > memoryBudget) {
+                return false;
+            }
+            if (usedBytes.compareAndSet(used, used + bytes)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Register a heap storage so that its bytes are credited back to the memory budget once it
+     * is freed or has been collected by the garbage collector
+     * @param storage The new storage
+     * @param bytes The number of bytes the storage counts against the memory budget
+     * @return The handle with which the storage releases its bytes when it is freed or
+     *         <code>null</code> if there is no memory budget
+     */
+    @Nullable
+    HeapStorageReference trackHeapStorage(@NotNull HeapSequenceStorage storage, long bytes) {
+        if (memoryBudget == 0) {
+            return null;
+        }
+        HeapStorageReference reference = new HeapStorageReference(storage, bytes);
+        heapStorageReferences.add(reference);
+        heapBytesSinceCollection.addAndGet(bytes);
+        return reference;
+    }
+
+    private void releaseUnreachableHeapStorages() {
+        Reference<? extends HeapSequenceStorage> reference;
+        while ((reference = unreachableHeapStorages.poll()) != null) {
+            ((HeapStorageReference)reference).release();
+        }
+    }
+
+    @NotNull
+    ByteBuffer allocateDirect(int capacity) {
+        return ByteBuffer.allocateDirect(capacity).order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Release the native memory of a buffer created by {@link #allocateDirect(int)} or of a
+     * memory-mapped buffer right away
+     * @param buffer The buffer to release. It must no longer be accessed afterwards
+     */
+    void freeDirect(@NotNull ByteBuffer buffer) {
+        if (CLEANER == null) {
+            throw new IllegalStateException("Buffer cleaner not accessible",
+                    CLEANER_UNAVAILABLE_CAUSE);
+        }
+        try {
+            CLEANER.clean(buffer);
+        } catch (Exception e) {
+            throw new RuntimeException("Unable to free buffer", e);
+        }
+    }
+
+    /**
+     * Called by a storage once it has released its memory
+     * @param storage The storage that has been freed
+     * @param bytes The number of bytes the storage counted against the memory budget
+     */
+    void storageFreed(@NotNull SequenceStorage storage, long bytes) {
+        synchronized (liveStorages) {
+            liveStorages.remove(storage);
+        }
+        usedBytes.addAndGet(-bytes);
+    }
+
+    /**
+     * Free all storages that are still alive. Sequences allocated by this allocator may no longer
+     * be accessed afterwards
+     */
+    void close() {
+        List<SequenceStorage> storages;
+        synchronized (liveStorages) {
+            storages = new ArrayList<>(liveStorages);
+        }
+        for (SequenceStorage storage : storages) {
+            storage.free();
+        }
+    }
+}
@@ -0,0 +1,322 @@
+package backend.interpreter;
+
+import backend.AST.MapExpr;
+import backend.AST.ReduceExpr;
+import backend.AST.Type.SequenceType;
+import backend.errorHandling.Diagnostics;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import utils.ThreadManager;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A chain of <code>map</code> expressions applied to a source sequence, e.g.
+ * <code>map(map({1, n}, x -> x * 2), y -> y + 1)</code>.
+ *
+ * <p>
+ * Instead of materializing the result of every <code>map</code>, the source is processed in
+ * chunks of a fixed size: a chunk of the source is read, every stage's lambda is applied to it and
+ * the result is fed to the consumer of the pipeline, i.e. a <code>reduce</code> or the storage of
+ * the resulting sequence. Memory for intermediate results is thus bounded by the chunk size times
+ * the number of chunks in flight instead of growing with the sequence's length.
+ * </p>
+ *
+ * <p>
+ * Chunks are processed in parallel on the shared worker pool. At most
+ * {@link #getMaxChunksInFlight()} chunks are processed at the same time so that a slow consumer
+ * throttles the production of new chunks.
+ * </p>
+ *
+ * <p>
+ * The results of stages that transform numbers into numbers are remembered in a
+ * {@link LambdaMemo} while it finds enough repeated elements, probing again from time to time
+ * after it has been turned off.
+ * </p>
+ */
+final class SequencePipeline {
+
+    @FunctionalInterface
+    private interface ChunkConsumer {
+        /**
+         * Consume the values of a chunk after all stages have been applied to it
+         * @param interpreter A sub-interpreter that may be used to evaluate lambdas. It is only
+         *                    used by the thread that processes this chunk
+         * @param chunkIndex The index of the chunk
+         * @param firstIndex The index of the chunk's first value in the sequence
+         * @param values The chunk's values
+         * @return <code>false</code> if an error occurred while consuming the chunk
+         */
+        boolean consume(@NotNull Interpreter interpreter, long chunkIndex, long firstIndex,
+                        @NotNull Value[] values);
+    }
+
+    @NotNull private final Interpreter interpreter;
+    @NotNull private final SequenceValue source;
+    /** The map expressions to apply to the source, innermost first */
+    @NotNull private final List<MapExpr> stages;
+    /** The memos of the stages by their index or <code>null</code> for stages without memo */
+    @NotNull private final LambdaMemo[] memos;
+    private final int chunkSize;
+
+    /**
+     * @param interpreter The interpreter that evaluates the expression consuming the pipeline
+     * @param source The sequence the first stage is applied to
+     * @param stages The map expressions to apply to the source, innermost first
+     * @param chunkSize The number of values to process in one chunk
+     */
+    SequencePipeline(@NotNull Interpreter interpreter, @NotNull SequenceValue source,
+                     @NotNull List<MapExpr> stages, int chunkSize) {
+        this.interpreter = interpreter;
+        this.source = source;
+        this.stages = stages;
+        this.memos = new LambdaMemo[stages.size()];
+        for (int i = 0; i < stages.size(); i++) {
+            memos[i] = LambdaMemo.create(stages.get(i), interpreter.getDiagnostics());
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    private static int getMaxChunksInFlight() {
+        return 2 * ThreadManager.getNumberOfThreads();
+    }
+
+    /**
+     * Store the pipeline's result in a new sequence
+     * @param allocator The allocator to create the resulting sequence's storage with
+     * @return The resulting sequence or {@link ErrorValue} if an error occurred in a lambda
+     */
+    @NotNull
+    Value materialize(@NotNull SequenceAllocator allocator) {
+        assert !stages.isEmpty() : "Materializing the source does not create a new sequence";
+        MapExpr lastStage = stages.get(stages.size() - 1);
+        SequenceStorage storage = allocator.allocate(source.getLength(),
+                ((SequenceType)lastStage.getType()).getSubType());
+        boolean success = run((subInterpreter, chunkIndex, firstIndex, values) -> {
+            for (int i = 0; i < values.length; i++) {
+                storage.set(firstIndex + i, values[i]);
+            }
+            return true;
+        });
+        if (!success) {
+            storage.free();
+            return ErrorValue.get();
+        }
+        return new SequenceValue(storage);
+    }
+
+    /**
+     * Reduce the pipeline's result. Every chunk is reduced separately and the chunks' results are
+     * combined with <code>base</code> in the order of the chunks. This relies on the reduce lambda
+     * being associative
+     * @param reduceExpr The reduce expression whose lambda to apply
+     * @param base The already evaluated base of the reduce expression
+     * @return The reduced value or {@link ErrorValue} if an error occurred in a lambda
+     */
+    @NotNull
+    Value reduce(@NotNull ReduceExpr reduceExpr, @NotNull Value base) {
+        Interpreter combiningInterpreter = interpreter.createSubInterpreter();
+        // The results of chunks that cannot be combined yet because a preceding chunk hasn't been
+        // finished
+        Map<Long, Value> pendingResults = new ConcurrentHashMap<>();
+        // Held by the thread that combines the pending results. Threads that fail to acquire it
+        // leave their result to the combining thread instead of blocking a worker thread, which
+        // might be needed to evaluate the combining lambda
+        ReentrantLock combiningLock = new ReentrantLock();
+        AtomicLong nextChunkToCombine = new AtomicLong(0);
+        Value[] combinedValue = new Value[] {base};
+
+        boolean success = run((subInterpreter, chunkIndex, firstIndex, values) -> {
+            Value chunkResult = values[0];
+            for (int i = 1; i < values.length; i++) {
+                chunkResult = applyReduceLambda(subInterpreter, reduceExpr, chunkResult,
+                        values[i]);
+                if (chunkResult instanceof ErrorValue) {
+                    return false;
+                }
+            }
+            pendingResults.put(chunkIndex, chunkResult);
+            // Check again after releasing the lock since another thread may have added the next
+            // result while this thread was combining
+            while (pendingResults.containsKey(nextChunkToCombine.get()) &&
+                    combiningLock.tryLock()) {
+                try {
+                    Value nextResult;
+                    while ((nextResult = pendingResults.remove(nextChunkToCombine.get())) != null) {
+                        combinedValue[0] = applyReduceLambda(combiningInterpreter, reduceExpr,
+                                combinedValue[0], nextResult);
+                        if (combinedValue[0] instanceof ErrorValue) {
+                            return false;
+                        }
+                        nextChunkToCombine.incrementAndGet();
+                    }
+                } finally {
+                    combiningLock.unlock();
+                }
+            }
+            return true;
+        });
+        if (!success) {
+            return ErrorValue.get();
+        }
+        return combinedValue[0];
+    }
+
+    @NotNull
+    private static Value applyReduceLambda(@NotNull Interpreter interpreter,
+                                           @NotNull ReduceExpr reduceExpr, @NotNull Value x,
+                                           @NotNull Value y) {
+        // The values may be stored in a sequence and must not be recycled while evaluating the
+        // lambda
+        x.setRecyclable(false);
+        y.setRecyclable(false);
+        interpreter.bindVariable(reduceExpr.getLambdaParam1(), x);
+        interpreter.bindVariable(reduceExpr.getLambdaParam2(), y);
+        return interpreter.evaluateExpr(reduceExpr.getLambda());
+    }
+
+    /**
+     * Process all chunks of the source, passing each to <code>consumer</code> after all stages
+     * have been applied to it. Stops producing new chunks once an error occurred
+     * @param consumer The consumer of the processed chunks
+     * @return <code>true</code> if no error occurred in any lambda
+     */
+    private boolean run(@NotNull ChunkConsumer consumer) {
+        long length = source.getLength();
+        long numberOfChunks = (length + chunkSize - 1) / chunkSize;
+
+        if (numberOfChunks == 1) {
+            // Not worth dispatching to the worker pool
+            return processChunk(0, consumer);
+        }
+
+        int maxChunksInFlight = getMaxChunksInFlight();
+        Queue<ForkJoinTask<?>> chunksInFlight = new ArrayDeque<>();
+        AtomicBoolean errorOccurred = new AtomicBoolean(false);
+        AtomicReference<Throwable> exception = new AtomicReference<>();
+
+        for (long chunkIndex = 0; chunkIndex < numberOfChunks; chunkIndex++) {
+            if (chunksInFlight.size() >= maxChunksInFlight) {
+                // Wait for the oldest chunk before producing a new one
+                chunksInFlight.remove().join();
+            }
+            if (errorOccurred.get() || exception.get() != null) {
+                break;
+            }
+            final long finalChunkIndex = chunkIndex;
+            chunksInFlight.add(ThreadManager.submit(() -> {
+                try {
+                    if (!processChunk(finalChunkIndex, consumer)) {
+                        errorOccurred.set(true);
+                    }
+                } catch (Throwable t) {
+                    exception.compareAndSet(null, t);
+                }
+            }));
+        }
+
+        // Wait for all chunks in flight to finish
+        while (!chunksInFlight.isEmpty()) {
+            chunksInFlight.remove().join();
+        }
+
+        if (exception.get() != null) {
+            throw new RuntimeException(exception.get());
+        }
+        return !errorOccurred.get();
+    }
+
+    /**
+     * Apply all stages to the chunk with the given index and pass the result to the consumer
+     * @return <code>false</code> if an error occurred
+     */
+    private boolean processChunk(long chunkIndex, @NotNull ChunkConsumer consumer) {
+        long firstIndex = chunkIndex * chunkSize;
+        Value[] values = new Value[(int)Math.min(chunkSize, source.getLength() - firstIndex)];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = source.get(firstIndex + i);
+        }
+
+        Interpreter subInterpreter = interpreter.createSubInterpreter();
+        // Records the errors of lambdas whose results are remembered
+        Diagnostics recordingDiagnostics = null;
+        Interpreter recordingInterpreter = null;
+        for (int stageIndex = 0; stageIndex < stages.size(); stageIndex++) {
+            MapExpr stage = stages.get(stageIndex);
+            LambdaMemo memo = memos[stageIndex];
+            if (memo != null && memo.isEnabled()) {
+                if (recordingInterpreter == null) {
+                    recordingDiagnostics = new Diagnostics();
+                    recordingInterpreter = interpreter.createSubInterpreter(recordingDiagnostics);
+                }
+                if (!applyMemoizedMapLambda(recordingInterpreter, recordingDiagnostics, stage,
+                        memo, values)) {
+                    return false;
+                }
+                continue;
+            }
+            for (int i = 0; i < values.length; i++) {
+                Value transformedValue = applyMapLambda(subInterpreter, stage, values[i]);
+                if (transformedValue instanceof ErrorValue) {
+                    return false;
+                }
+                values[i] = transformedValue;
+            }
+            if (memo != null) {
+                memo.recordSkippedElements(values.length);
+            }
+        }
+
+        return consumer.consume(subInterpreter, chunkIndex, firstIndex, values);
+    }
+
+    /**
+     * Transform the values of a chunk, reusing the lambda's results for values it has already been
+     * applied to
+     * @param interpreter The sub-interpreter to evaluate the lambda with
+     * @param recordingDiagnostics The diagnostics engine <code>interpreter</code> reports errors to
+     * @param values The values to transform in place
+     * @return <code>false</code> if an error occurred
+     */
+    private static boolean applyMemoizedMapLambda(@NotNull Interpreter interpreter,
+                                                  @NotNull Diagnostics recordingDiagnostics,
+                                                  @NotNull MapExpr stage, @NotNull LambdaMemo memo,
+                                                  @NotNull Value[] values) {
+        int hits = 0;
+        for (int i = 0; i < values.length; i++) {
+            Value transformedValue = memo.lookup(values[i]);
+            if (transformedValue != null) {
+                hits++;
+            } else {
+                transformedValue = applyMapLambda(interpreter, stage, values[i]);
+                memo.store(values[i], transformedValue, recordingDiagnostics);
+            }
+            if (transformedValue instanceof ErrorValue) {
+                memo.recordLookups(i + 1, hits);
+                return false;
+            }
+            values[i] = transformedValue;
+        }
+        memo.recordLookups(values.length, hits);
+        return true;
+    }
+
+    @Nullable
+    private static Value applyMapLambda(@NotNull Interpreter interpreter,
+                                        @NotNull MapExpr mapExpr, @NotNull Value value) {
+        // The value is used as a variable in the lambda and can thus not be recycled while
+        // evaluating the lambda
+        value.setRecyclable(false);
+        interpreter.bindVariable(mapExpr.getLambdaParam(), value);
+        return interpreter.evaluateExpr(mapExpr.getLambda());
+    }
+}
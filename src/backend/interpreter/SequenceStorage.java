@@ -0,0 +1,38 @@
+package backend.interpreter;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The memory in which the elements of a {@link SequenceValue} are kept
+ */
+abstract class SequenceStorage {
+
+    /**
+     * @return The number of elements in this storage
+     */
+    abstract long getLength();
+
+    /**
+     * Returns the value at the given index. Storages that do not keep {@link Value} objects create
+     * a new object on every call
+     * @param index The index of the element to retrieve
+     * @return The value at the given index
+     */
+    @NotNull
+    abstract Value get(long index);
+
+    /**
+     * Store a value at the given index. Different threads may store values at different indices
+     * concurrently
+     * @param index The index at which the value shall be stored
+     * @param value The value to store
+     */
+    abstract void set(long index, @NotNull Value value);
+
+    /**
+     * Release the memory held by this storage. Accessing the elements of a storage after it has
+     * been freed throws an {@link IllegalStateException}. Freeing a storage multiple times is
+     * allowed
+     */
+    void free() {}
+}
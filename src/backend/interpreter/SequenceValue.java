@@ -7,29 +7,49 @@ import org.jetbrains.annotations.NotNull;
  */
 public final class SequenceValue extends Value {
 
-    @NotNull private final Value[] values;
+    @NotNull private final SequenceStorage storage;
 
-    SequenceValue(@NotNull Value[] values) {
-        this.values = values;
+    SequenceValue(@NotNull SequenceStorage storage) {
+        this.storage = storage;
     }
 
+    /**
+     * @return The number of elements in this sequence
+     */
+    public long getLength() {
+        return storage.getLength();
+    }
+
+    /**
+     * @param index The index of the element to retrieve
+     * @return The element at the given index
+     */
     @NotNull
-    public Value[] getValues() {
-        return values;
+    public Value get(long index) {
+        return storage.get(index);
+    }
+
+    @NotNull
+    SequenceStorage getStorage() {
+        return storage;
+    }
+
+    /**
+     * Release the memory of this sequence. The sequence may no longer be accessed afterwards
+     */
+    void free() {
+        storage.free();
     }
 
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
         sb.append("{");
-        boolean firstIteration = true;
-        for (Value value : values) {
-            if (!firstIteration) {
+        for (long i = 0; i < storage.getLength(); i++) {
+            if (i != 0) {
                 sb.append(", ");
-            } else {
-                firstIteration = false;
             }
-            sb.append(value.toString());
+            sb.append(storage.get(i).toString());
         }
         sb.append("}");
         return sb.toString();
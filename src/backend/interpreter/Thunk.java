@@ -0,0 +1,64 @@
+package backend.interpreter;
+
+import backend.AST.Expr;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The value of a variable that has not been evaluated yet. It is evaluated the first time the
+ * variable is referenced and the result is remembered for all later references
+ */
+final class Thunk extends Value {
+
+    /** The interpreter to evaluate the expression with. Released once the thunk is forced */
+    @Nullable private Interpreter interpreter;
+    /** The expression that computes the value. Released once the thunk is forced */
+    @Nullable private Expr expr;
+    @NotNull private final AtomicBoolean evaluationStarted = new AtomicBoolean(false);
+    @NotNull private final CompletableFuture<Value> value = new CompletableFuture<>();
+
+    /**
+     * @param interpreter An interpreter that sees the values of all variables <code>expr</code>
+     *                    may reference. It must not be used by anyone else
+     * @param expr The expression that computes the value
+     */
+    Thunk(@NotNull Interpreter interpreter, @NotNull Expr expr) {
+        this.interpreter = interpreter;
+        this.expr = expr;
+    }
+
+    /**
+     * Evaluate the expression if this hasn't been done yet. May be called concurrently from
+     * statements or lambdas that are evaluated in parallel, in which case only the first caller
+     * evaluates the expression and all others wait for its result
+     * @return The value of the expression
+     */
+    @NotNull
+    Value force() {
+        if (evaluationStarted.compareAndSet(false, true)) {
+            assert interpreter != null && expr != null;
+            try {
+                Value value = interpreter.evaluateExpr(expr);
+                value.setRecyclable(false);
+                this.value.complete(value);
+            } catch (RuntimeException e) {
+                this.value.completeExceptionally(e);
+                throw e;
+            } finally {
+                interpreter = null;
+                expr = null;
+            }
+        }
+        // Waiting on the future from a worker thread lets the worker pool compensate for the
+        // blocked thread, which the evaluation may need to make progress
+        return value.join();
+    }
+
+    @Override
+    public String toString() {
+        return "<unevaluated>";
+    }
+}
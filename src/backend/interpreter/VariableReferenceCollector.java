@@ -0,0 +1,130 @@
+package backend.interpreter;
+
+import backend.AST.*;
+import backend.utils.ASTVisitor;
+import backend.utils.ExprFolder;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Collects the variables a statement or expression references, including references from inside
+ * lambdas. The parameters of lambdas are not included since they are local to their lambda
+ */
+final class VariableReferenceCollector implements ASTVisitor<Void>, ExprFolder<Void> {
+
+    @NotNull private final Set<Variable> referencedVariables = new HashSet<>();
+
+    private VariableReferenceCollector() {}
+
+    /**
+     * @param stmt The statement whose variable references to collect
+     * @return The variables referenced by <code>stmt</code>
+     */
+    @NotNull
+    static Set<Variable> collect(@NotNull Stmt stmt) {
+        VariableReferenceCollector collector = new VariableReferenceCollector();
+        stmt.acceptVisitor(collector);
+        return collector.referencedVariables;
+    }
+
+    /**
+     * @param expr The expression whose variable references to collect
+     * @return The variables referenced by <code>expr</code>
+     */
+    @NotNull
+    static Set<Variable> collect(@NotNull Expr expr) {
+        VariableReferenceCollector collector = new VariableReferenceCollector();
+        expr.acceptVisitor(collector);
+        return collector.referencedVariables;
+    }
+
+    private void visit(@NotNull ASTNode node) {
+        node.acceptVisitor(this);
+    }
+
+    @Override
+    public Void foldOperand(@NotNull Expr expr) {
+        visit(expr);
+        return null;
+    }
+
+    @Override
+    public Void foldBinaryOperator(@NotNull BinaryOperatorExpr binOpExpr, Void lhs, Void rhs) {
+        return null;
+    }
+
+    @Override
+    public Void foldParen(@NotNull ParenExpr parenExpr, Void subExpr) {
+        return null;
+    }
+
+    @Override
+    public Void visitAssignStmt(AssignStmt assignStmt) {
+        visit(assignStmt.getRhs());
+        return null;
+    }
+
+    @Override
+    public Void visitBinaryOperatorExpr(BinaryOperatorExpr binOpExpr) {
+        return ExprFolder.fold(binOpExpr, this);
+    }
+
+    @Override
+    public Void visitFloatLiteralExpr(FloatLiteralExpr floatLiteralExpr) {
+        return null;
+    }
+
+    @Override
+    public Void visitIdentifierRefExpr(VariableRefExpr variableRefExpr) {
+        referencedVariables.add(variableRefExpr.getReferencedVariable());
+        return null;
+    }
+
+    @Override
+    public Void visitIntLiteralExpr(IntLiteralExpr intLiteralExpr) {
+        return null;
+    }
+
+    @Override
+    public Void visitMapExpr(MapExpr mapExpr) {
+        visit(mapExpr.getArgument());
+        visit(mapExpr.getLambda());
+        referencedVariables.remove(mapExpr.getLambdaParam());
+        return null;
+    }
+
+    @Override
+    public Void visitOutStmt(OutStmt outExpr) {
+        visit(outExpr.getArgument());
+        return null;
+    }
+
+    @Override
+    public Void visitParenExpr(ParenExpr parenExpr) {
+        return ExprFolder.fold(parenExpr, this);
+    }
+
+    @Override
+    public Void visitPrintStmt(PrintStmt printStmt) {
+        return null;
+    }
+
+    @Override
+    public Void visitRangeExpr(RangeExpr rangeExpr) {
+        visit(rangeExpr.getLowerBound());
+        visit(rangeExpr.getUpperBound());
+        return null;
+    }
+
+    @Override
+    public Void visitReduceExpr(ReduceExpr reduceExpr) {
+        visit(reduceExpr.getBase());
+        visit(reduceExpr.getSequence());
+        visit(reduceExpr.getLambda());
+        referencedVariables.remove(reduceExpr.getLambdaParam1());
+        referencedVariables.remove(reduceExpr.getLambdaParam2());
+        return null;
+    }
+}
@@ -0,0 +1,178 @@
+package backend.liveness;
+
+import backend.AST.*;
+import backend.utils.ASTConsumer;
+import backend.utils.ASTVisitor;
+import backend.utils.ExprFolder;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+
+/**
+ * Determines after which statement each variable is referenced for the last time so that its
+ * value can be discarded right away instead of being kept alive until the end of the program.
+ *
+ * <p>
+ * Since the last use of a variable can only be known once the entire program has been seen, all
+ * statements are buffered and only passed on to the next consumer at the end of the input. The
+ * result is recorded in {@link Stmt#setVariablesDyingAfter(List)} and
+ * {@link Variable#markEscaping()}
+ * </p>
+ */
+public final class LivenessAnalyzer implements ASTConsumer, ASTVisitor<Void>,
+        ExprFolder<Void> {
+
+    @NotNull private final ASTConsumer nextConsumer;
+    @NotNull private final List<Stmt> stmts = new ArrayList<>();
+
+    /** The variables referenced by the statement that is currently being analysed */
+    @NotNull private Set<Variable> referencedVariables = new LinkedHashSet<>();
+
+    /**
+     * @param nextConsumer The consumer to whom the analysed statements should be passed on to
+     */
+    public LivenessAnalyzer(@NotNull ASTConsumer nextConsumer) {
+        this.nextConsumer = nextConsumer;
+    }
+
+    @Override
+    public void consumeStmt(@NotNull Stmt stmt) {
+        stmts.add(stmt);
+    }
+
+    @Override
+    public void consumeEOF() {
+        // Walk the statements backwards. A variable that is referenced by a statement but not by
+        // any later statement dies after it
+        Set<Variable> liveVariables = new HashSet<>();
+        for (int i = stmts.size() - 1; i >= 0; i--) {
+            Stmt stmt = stmts.get(i);
+            referencedVariables = new LinkedHashSet<>();
+            visit(stmt);
+
+            List<Variable> dyingVariables = new ArrayList<>();
+            for (Variable variable : referencedVariables) {
+                if (liveVariables.add(variable)) {
+                    dyingVariables.add(variable);
+                }
+            }
+            stmt.setVariablesDyingAfter(dyingVariables);
+        }
+
+        for (Stmt stmt : stmts) {
+            nextConsumer.consumeStmt(stmt);
+        }
+        stmts.clear();
+        nextConsumer.consumeEOF();
+    }
+
+    private void visit(@NotNull ASTNode node) {
+        node.acceptVisitor(this);
+    }
+
+    /**
+     * Visit an expression whose sequence is only read element by element, i.e. the argument of
+     * <code>map</code> or <code>reduce</code>. A variable referenced directly in this position does
+     * not escape
+     * @param expr The expression producing the sequence
+     */
+    private void visitConsumedSequence(@NotNull Expr expr) {
+        while (expr instanceof ParenExpr) {
+            expr = ((ParenExpr)expr).getSubExpr();
+        }
+        if (expr instanceof VariableRefExpr) {
+            referencedVariables.add(((VariableRefExpr)expr).getReferencedVariable());
+        } else {
+            visit(expr);
+        }
+    }
+
+    @Override
+    public Void foldOperand(@NotNull Expr expr) {
+        visit(expr);
+        return null;
+    }
+
+    @Override
+    public Void foldBinaryOperator(@NotNull BinaryOperatorExpr binOpExpr, Void lhs, Void rhs) {
+        return null;
+    }
+
+    @Override
+    public Void foldParen(@NotNull ParenExpr parenExpr, Void subExpr) {
+        return null;
+    }
+
+    @Override
+    public Void visitAssignStmt(AssignStmt assignStmt) {
+        visit(assignStmt.getRhs());
+        // A variable that is never referenced dies right after its assignment
+        referencedVariables.add(assignStmt.getLhs());
+        return null;
+    }
+
+    @Override
+    public Void visitBinaryOperatorExpr(BinaryOperatorExpr binOpExpr) {
+        return ExprFolder.fold(binOpExpr, this);
+    }
+
+    @Override
+    public Void visitFloatLiteralExpr(FloatLiteralExpr floatLiteralExpr) {
+        return null;
+    }
+
+    @Override
+    public Void visitIdentifierRefExpr(VariableRefExpr variableRefExpr) {
+        Variable variable = variableRefExpr.getReferencedVariable();
+        variable.markEscaping();
+        referencedVariables.add(variable);
+        return null;
+    }
+
+    @Override
+    public Void visitIntLiteralExpr(IntLiteralExpr intLiteralExpr) {
+        return null;
+    }
+
+    @Override
+    public Void visitMapExpr(MapExpr mapExpr) {
+        visitConsumedSequence(mapExpr.getArgument());
+        visit(mapExpr.getLambda());
+        // Lambda parameters are only valid inside the lambda and not tracked by statements
+        referencedVariables.remove(mapExpr.getLambdaParam());
+        return null;
+    }
+
+    @Override
+    public Void visitOutStmt(OutStmt outExpr) {
+        visit(outExpr.getArgument());
+        return null;
+    }
+
+    @Override
+    public Void visitParenExpr(ParenExpr parenExpr) {
+        return ExprFolder.fold(parenExpr, this);
+    }
+
+    @Override
+    public Void visitPrintStmt(PrintStmt printStmt) {
+        return null;
+    }
+
+    @Override
+    public Void visitRangeExpr(RangeExpr rangeExpr) {
+        visit(rangeExpr.getLowerBound());
+        visit(rangeExpr.getUpperBound());
+        return null;
+    }
+
+    @Override
+    public Void visitReduceExpr(ReduceExpr reduceExpr) {
+        visit(reduceExpr.getBase());
+        visitConsumedSequence(reduceExpr.getSequence());
+        visit(reduceExpr.getLambda());
+        referencedVariables.remove(reduceExpr.getLambdaParam1());
+        referencedVariables.remove(reduceExpr.getLambdaParam2());
+        return null;
+    }
+}
@@ -0,0 +1,180 @@
+package backend.parser;
+
+import backend.AST.*;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Creates the expressions for the {@link Parser}.
+ *
+ * <p>
+ * If hash-consing is enabled, structurally identical expressions that neither reference variables
+ * nor can cause an error during evaluation (i.e. literals and arithmetic on them except for
+ * divisions) are only created once and shared between all places they occur at. Parentheses are
+ * only syntax and are dropped in this mode, the sub-expression is used instead of a
+ * {@link ParenExpr}.
+ * </p>
+ *
+ * <p>
+ * A shared expression carries the source location of its first occurrence. Expressions at which
+ * errors may be reported need to be passed through {@link #unshare(Expr)} so that they have their
+ * own location.
+ * </p>
+ */
+final class ASTBuilder {
+
+    /**
+     * Identifies a shareable expression by its kind, payload and children. Since children are
+     * already shared, they are compared by identity
+     */
+    private static final class Key {
+        @NotNull private final Class<? extends Expr> kind;
+        private final long payload;
+        @Nullable private final Expr lhs;
+        @Nullable private final Expr rhs;
+
+        Key(@NotNull Class<? extends Expr> kind, long payload, @Nullable Expr lhs,
+            @Nullable Expr rhs) {
+            this.kind = kind;
+            this.payload = payload;
+            this.lhs = lhs;
+            this.rhs = rhs;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key)obj;
+            return kind == other.kind && payload == other.payload && lhs == other.lhs &&
+                    rhs == other.rhs;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = kind.hashCode();
+            result = 31 * result + Long.hashCode(payload);
+            result = 31 * result + System.identityHashCode(lhs);
+            result = 31 * result + System.identityHashCode(rhs);
+            return result;
+        }
+    }
+
+    private final boolean hashConsing;
+    /** The expressions that have been created so far and may be shared */
+    @NotNull private final Map<Key, Expr> shareableExprs = new HashMap<>();
+    /** The values of {@link #shareableExprs} for fast lookup by identity */
+    @NotNull private final Set<Expr> shareable =
+            Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /** The expression that has been returned last and the location it was requested for */
+    @Nullable private Expr lastExpr;
+    private long lastStartPosition;
+    private long lastEndPosition;
+
+    /**
+     * @param hashConsing Whether structurally identical expressions should be shared
+     */
+    ASTBuilder(boolean hashConsing) {
+        this.hashConsing = hashConsing;
+    }
+
+    /**
+     * Make sure that the expression that has just been parsed has the location of its occurrence.
+     * Its children may still be shared
+     * @param expr The expression that has been returned last by this builder
+     * @return <code>expr</code> or a copy of it with the location of its occurrence
+     */
+    @NotNull
+    Expr unshare(@NotNull Expr expr) {
+        if (expr != lastExpr || !shareable.contains(expr) ||
+                (expr.getStartPosition() == lastStartPosition &&
+                        expr.getEndPosition() == lastEndPosition)) {
+            return expr;
+        }
+        if (expr instanceof IntLiteralExpr) {
+            return new IntLiteralExpr(lastStartPosition, lastEndPosition,
+                    ((IntLiteralExpr)expr).getValue());
+        } else if (expr instanceof FloatLiteralExpr) {
+            return new FloatLiteralExpr(lastStartPosition, lastEndPosition,
+                    ((FloatLiteralExpr)expr).getValue());
+        } else if (expr instanceof BinaryOperatorExpr) {
+            BinaryOperatorExpr binOpExpr = (BinaryOperatorExpr)expr;
+            return new BinaryOperatorExpr(lastStartPosition, lastEndPosition, binOpExpr.getLhs(),
+                    binOpExpr.getOp(), binOpExpr.getRhs());
+        } else {
+            throw new RuntimeException("Unknown shareable expression: " + expr);
+        }
+    }
+
+    /**
+     * Remember the expression that is returned for the given location
+     */
+    @NotNull
+    private Expr returned(@NotNull Expr expr, long startPosition, long endPosition) {
+        lastExpr = expr;
+        lastStartPosition = startPosition;
+        lastEndPosition = endPosition;
+        return expr;
+    }
+
+    @NotNull
+    Expr createIntLiteral(long startPosition, long endPosition, long value) {
+        if (!hashConsing) {
+            return new IntLiteralExpr(startPosition, endPosition, value);
+        }
+        return returned(intern(new Key(IntLiteralExpr.class, value, null, null),
+                () -> new IntLiteralExpr(startPosition, endPosition, value)), startPosition,
+                endPosition);
+    }
+
+    @NotNull
+    Expr createFloatLiteral(long startPosition, long endPosition, double value) {
+        if (!hashConsing) {
+            return new FloatLiteralExpr(startPosition, endPosition, value);
+        }
+        // Compare the bits so that 0.0 and -0.0 are different literals
+        return returned(intern(new Key(FloatLiteralExpr.class, Double.doubleToRawLongBits(value),
+                null, null), () -> new FloatLiteralExpr(startPosition, endPosition, value)),
+                startPosition, endPosition);
+    }
+
+    @NotNull
+    Expr createBinaryOperator(long startPosition, long endPosition, @NotNull Expr lhs,
+                              @NotNull BinaryOperatorExpr.Operator op, @NotNull Expr rhs) {
+        if (!hashConsing || op == BinaryOperatorExpr.Operator.DIV ||
+                !shareable.contains(lhs) || !shareable.contains(rhs)) {
+            // Divisions may fail and must report their error at their own location
+            return new BinaryOperatorExpr(startPosition, endPosition, lhs, op, rhs);
+        }
+        return returned(intern(new Key(BinaryOperatorExpr.class, op.ordinal(), lhs, rhs),
+                () -> new BinaryOperatorExpr(startPosition, endPosition, lhs, op, rhs)),
+                startPosition, endPosition);
+    }
+
+    @NotNull
+    Expr createParen(long startPosition, long endPosition, @NotNull Expr subExpr) {
+        if (hashConsing) {
+            // Errors in the sub-expression were reported at the parentheses before
+            return returned(subExpr, startPosition, endPosition);
+        }
+        return new ParenExpr(startPosition, endPosition, subExpr);
+    }
+
+    @NotNull
+    private Expr intern(@NotNull Key key, @NotNull Supplier<Expr> factory) {
+        Expr expr = shareableExprs.get(key);
+        if (expr != null) {
+            expr.markShared();
+            return expr;
+        }
+        expr = factory.get();
+        shareableExprs.put(key, expr);
+        shareable.add(expr);
+        return expr;
+    }
+}
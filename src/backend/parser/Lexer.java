@@ -4,16 +4,94 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import backend.errorHandling.Diag;
 import backend.errorHandling.Diagnostics;
-import backend.utils.SourceLoc;
 
 import java.io.EOFException;
 import java.io.Reader;
+import java.nio.CharBuffer;
 
 public final class Lexer {
 
+    // Classes of ASCII characters that determine how a token starting with them is lexed
+    private static final byte OTHER = 0;
+    private static final byte WHITESPACE = 1;
+    private static final byte IDENTIFIER_START = 2;
+    private static final byte DIGIT = 3;
+    private static final byte SINGLE_CHARACTER_TOKEN = 4;
+
+    /** The class of each ASCII character */
+    private static final byte[] CHARACTER_CLASSES = new byte[128];
+    /** The kind of the token for characters of class {@link #SINGLE_CHARACTER_TOKEN} */
+    private static final Token.Kind[] SINGLE_CHARACTER_TOKEN_KINDS = new Token.Kind[128];
+
+    /**
+     * Keywords indexed by {@link #keywordHash}. The hash function is perfect for the set of
+     * keywords, so each identifier only needs to be compared to a single keyword
+     */
+    private static final Token.Keyword[] KEYWORDS = new Token.Keyword[8];
+
+    static {
+        for (char c = 0; c < 128; c++) {
+            if (Character.isWhitespace(c)) {
+                CHARACTER_CLASSES[c] = WHITESPACE;
+            } else if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_') {
+                CHARACTER_CLASSES[c] = IDENTIFIER_START;
+            } else if (c >= '0' && c <= '9') {
+                CHARACTER_CLASSES[c] = DIGIT;
+            }
+        }
+        addSingleCharacterToken('(', Token.Kind.L_PAREN);
+        addSingleCharacterToken(')', Token.Kind.R_PAREN);
+        addSingleCharacterToken('{', Token.Kind.L_BRACE);
+        addSingleCharacterToken('}', Token.Kind.R_BRACE);
+        addSingleCharacterToken('+', Token.Kind.ADD);
+        addSingleCharacterToken('*', Token.Kind.MULT);
+        addSingleCharacterToken('/', Token.Kind.DIV);
+        addSingleCharacterToken('^', Token.Kind.POW);
+        addSingleCharacterToken(',', Token.Kind.COMMA);
+        addSingleCharacterToken('=', Token.Kind.ASSIGN);
+
+        for (Token.Keyword keyword : Token.Keyword.values()) {
+            String spelling = keyword.getSpelling();
+            int hash = keywordHash(spelling, 0, spelling.length());
+            assert KEYWORDS[hash] == null : "Keyword hash is not perfect";
+            KEYWORDS[hash] = keyword;
+        }
+    }
+
+    private static void addSingleCharacterToken(char c, @NotNull Token.Kind kind) {
+        CHARACTER_CLASSES[c] = SINGLE_CHARACTER_TOKEN;
+        SINGLE_CHARACTER_TOKEN_KINDS[c] = kind;
+    }
+
+    private static byte getCharacterClass(char c) {
+        if (c < 128) {
+            return CHARACTER_CLASSES[c];
+        }
+        return Character.isWhitespace(c) ? WHITESPACE : OTHER;
+    }
+
+    static boolean isIdentifierCharacter(char c) {
+        return c < 128 &&
+                (CHARACTER_CLASSES[c] == IDENTIFIER_START || CHARACTER_CLASSES[c] == DIGIT);
+    }
+
+    /**
+     * @return The index of the keyword the given identifier might be in {@link #KEYWORDS}
+     */
+    private static int keywordHash(@NotNull CharSequence source, int offset, int length) {
+        return (source.charAt(offset) + source.charAt(offset + length - 1) + length) & 7;
+    }
+
     @NotNull private final Scanner scanner;
     @NotNull private final Diagnostics diagnostics;
 
+    /**
+     * The names of all identifiers lexed so far, so that every name is only stored once. An open
+     * addressing hash table that is probed linearly
+     */
+    @NotNull private String[] identifierNames = new String[64];
+    private int numberOfIdentifierNames = 0;
+
     /**
      * @param inputReader A reader that allows reading the source code
      * @param diagnostics The diagnostics engine to use
@@ -23,6 +101,24 @@ public final class Lexer {
         this.diagnostics = diagnostics;
     }
 
+    /**
+     * @param source The source code, e.g. a memory-mapped file that has been decoded
+     * @param diagnostics The diagnostics engine to use
+     */
+    public Lexer(@NotNull CharBuffer source, @NotNull Diagnostics diagnostics) {
+        this(source, diagnostics, 1);
+    }
+
+    /**
+     * @param source A part of the source code that starts at the beginning of a line
+     * @param diagnostics The diagnostics engine to use
+     * @param firstLine The line of the source file at which <code>source</code> starts
+     */
+    Lexer(@NotNull CharBuffer source, @NotNull Diagnostics diagnostics, int firstLine) {
+        scanner = new Scanner(source, firstLine);
+        this.diagnostics = diagnostics;
+    }
+
     /**
      * The next token in the source code, a token of kind <code>ERROR</code> indicates a lexing
      * error and of kind <code>EOF</code> represents that the end of the file has been reached
@@ -31,90 +127,67 @@ public final class Lexer {
     @NotNull
     public Token nextToken() {
         try {
-            while (Character.isWhitespace(scanner.peek())) {
+            while (getCharacterClass(scanner.peek()) == WHITESPACE) {
                 scanner.consume();
             }
 
-            switch (scanner.peek()) {
-                case 'A': case 'B': case 'C': case 'D': case 'E': case 'F': case 'G': case 'H':
-                case 'I': case 'J': case 'K': case 'L': case 'M': case 'N': case 'O': case 'P':
-                case 'Q': case 'R': case 'S': case 'T': case 'U': case 'V': case 'W': case 'X':
-                case 'Y': case 'Z':
-                case 'a': case 'b': case 'c': case 'd': case 'e': case 'f': case 'g': case 'h':
-                case 'i': case 'j': case 'k': case 'l': case 'm': case 'n': case 'o': case 'p':
-                case 'q': case 'r': case 's': case 't': case 'u': case 'v': case 'w': case 'x':
-                case 'y': case 'z':
-                case '_':
+            char c = scanner.peek();
+            switch (getCharacterClass(c)) {
+                case IDENTIFIER_START:
                     return lexIdentifier();
-                case '0': case '1': case '2': case '3': case '4': case '5': case '6': case '7':
-                case '8': case '9': case '.':
+                case DIGIT:
+                    return lexNumberLiteral(false);
+                case SINGLE_CHARACTER_TOKEN:
+                    return createSingeCharToken(SINGLE_CHARACTER_TOKEN_KINDS[c]);
+            }
+
+            switch (c) {
+                case '.':
                     return lexNumberLiteral(false);
                 case '"':
                     return lexStringLiteral();
-                case '(':
-                    return createSingeCharToken(Token.Kind.L_PAREN);
-                case ')':
-                    return createSingeCharToken(Token.Kind.R_PAREN);
-                case '{':
-                    return createSingeCharToken(Token.Kind.L_BRACE);
-                case '}':
-                    return createSingeCharToken(Token.Kind.R_BRACE);
-                case '+':
-                    return createSingeCharToken(Token.Kind.ADD);
                 case '-': {
-                    SourceLoc location = scanner.getCurrentSourceLoc();
+                    long location = scanner.getCurrentPosition();
                     scanner.consume();
-                    switch (scanner.peek()) {
-                        case '>':
-                            scanner.consume();
-                            return new Token(Token.Kind.ARROW, location,
-                                    scanner.getCurrentSourceLoc());
-                        case '0': case '1': case '2': case '3': case '4': case '5': case '6': case '7':
-                        case '8': case '9': case '.':
-                            return lexNumberLiteral(true);
-                        default:
-                            return new Token(Token.Kind.SUB, location,
-                                    scanner.getCurrentSourceLoc());
+                    char nextChar = scanner.peek();
+                    if (nextChar == '>') {
+                        scanner.consume();
+                        return new Token(Token.Kind.ARROW, location,
+                                scanner.getCurrentPosition());
+                    } else if (getCharacterClass(nextChar) == DIGIT || nextChar == '.') {
+                        return lexNumberLiteral(true);
+                    } else {
+                        return new Token(Token.Kind.SUB, location,
+                                scanner.getCurrentPosition());
                     }
                 }
-                case '*':
-                    return createSingeCharToken(Token.Kind.MULT);
-                case '/':
-                    return createSingeCharToken(Token.Kind.DIV);
-                case '^':
-                    return createSingeCharToken(Token.Kind.POW);
-                case ',':
-                    return createSingeCharToken(Token.Kind.COMMA);
-                case '=':
-                    return createSingeCharToken(Token.Kind.ASSIGN);
                 case '#': {
-                    SourceLoc location = scanner.getCurrentSourceLoc();
-                    StringBuilder comment = new StringBuilder();
-                    SourceLoc lastLocation = location;
+                    long location = scanner.getCurrentPosition();
+                    int startIndex = scanner.getIndex();
+                    int endIndex = startIndex;
+                    long lastLocation = location;
                     try {
-                        lastLocation = scanner.getCurrentSourceLoc();
-                        char nextChar = scanner.consume();
                         // It doesn't matter if we don't consume the newline character(s) since they
                         // will just be consumed as whitespace in the next iteration
-                        while (nextChar != '\n' && nextChar != '\r') {
-                            comment.append(nextChar);
-                            lastLocation = scanner.getCurrentSourceLoc();
-                            nextChar = scanner.consume();
+                        while (scanner.peek() != '\n' && scanner.peek() != '\r') {
+                            scanner.consume();
+                            endIndex = scanner.getIndex();
+                            lastLocation = scanner.getCurrentPosition();
                         }
                     } catch (EOFException ignored) {}
-                    return new Token(Token.Kind.COMMENT, comment.toString(), location,
-                            lastLocation);
+                    return new Token(Token.Kind.COMMENT, scanner.getSource(), startIndex,
+                            endIndex - startIndex, location, lastLocation);
                 }
                 default:
-                    SourceLoc location = scanner.getCurrentSourceLoc();
+                    long location = scanner.getCurrentPosition();
                     char invalidChar = scanner.consume();
-                    diagnostics.error(location, scanner.getCurrentSourceLoc(),
+                    diagnostics.error(location, scanner.getCurrentPosition(),
                             Diag.invalid_character, invalidChar);
-                    return new Token(Token.Kind.ERROR, location, scanner.getCurrentSourceLoc());
+                    return new Token(Token.Kind.ERROR, location, scanner.getCurrentPosition());
             }
         } catch (EOFException e) {
-            return new Token(Token.Kind.EOF, scanner.getCurrentSourceLoc(),
-                    scanner.getCurrentSourceLoc());
+            return new Token(Token.Kind.EOF, scanner.getCurrentPosition(),
+                    scanner.getCurrentPosition());
         }
     }
 
@@ -128,9 +201,9 @@ public final class Lexer {
      *                      already been reached
      */
     private Token createSingeCharToken(@NotNull Token.Kind kind) throws EOFException {
-        SourceLoc location = scanner.getCurrentSourceLoc();
+        long location = scanner.getCurrentPosition();
         scanner.consume();
-        return new Token(kind, location, scanner.getCurrentSourceLoc());
+        return new Token(kind, location, scanner.getCurrentPosition());
     }
 
     /**
@@ -139,34 +212,83 @@ public final class Lexer {
      * @return The lexed identifier token
      */
     private Token lexIdentifier() {
-        SourceLoc location = scanner.getCurrentSourceLoc();
-        StringBuilder identifierName = new StringBuilder();
+        long location = scanner.getCurrentPosition();
+        int startIndex = scanner.getIndex();
         try {
-            characterConsumption: while (true) {
-                switch (scanner.peek()) {
-                    case 'A': case 'B': case 'C': case 'D': case 'E': case 'F': case 'G': case 'H':
-                    case 'I': case 'J': case 'K': case 'L': case 'M': case 'N': case 'O': case 'P':
-                    case 'Q': case 'R': case 'S': case 'T': case 'U': case 'V': case 'W': case 'X':
-                    case 'Y': case 'Z':
-                    case 'a': case 'b': case 'c': case 'd': case 'e': case 'f': case 'g': case 'h':
-                    case 'i': case 'j': case 'k': case 'l': case 'm': case 'n': case 'o': case 'p':
-                    case 'q': case 'r': case 's': case 't': case 'u': case 'v': case 'w': case 'x':
-                    case 'y': case 'z':
-                    case '0': case '1': case '2': case '3': case '4': case '5': case '6': case '7':
-                    case '8': case '9':
-                    case '_':
-                        identifierName.append(scanner.consume());
-                        break;
-                    default:
-                        break characterConsumption;
-                }
+            while (isIdentifierCharacter(scanner.peek())) {
+                scanner.consume();
             }
         } catch (EOFException ignored) {
         }
+        int length = scanner.getIndex() - startIndex;
+
+        assert length > 0 : "An identifier must contain at least one character";
+        CharSequence source = scanner.getSource();
+        Token.Keyword keyword = KEYWORDS[keywordHash(source, startIndex, length)];
+        if (keyword != null && !regionMatches(keyword.getSpelling(), source, startIndex, length)) {
+            keyword = null;
+        }
+        String name = keyword != null ? keyword.getSpelling()
+                                      : internIdentifierName(source, startIndex, length);
+        return new Token(Token.Kind.IDENTIFIER, name, keyword, location,
+                scanner.getCurrentPosition());
+    }
+
+    private static boolean regionMatches(@NotNull String string, @NotNull CharSequence source,
+                                         int offset, int length) {
+        if (string.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (string.charAt(i) != source.charAt(offset + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return The name of the identifier at the given range in the source code. Identifiers with
+     *         the same name share the same string
+     */
+    @NotNull
+    private String internIdentifierName(@NotNull CharSequence source, int offset, int length) {
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + source.charAt(offset + i);
+        }
+        int mask = identifierNames.length - 1;
+        int index = hash & mask;
+        String name;
+        while ((name = identifierNames[index]) != null) {
+            if (regionMatches(name, source, offset, length)) {
+                return name;
+            }
+            index = (index + 1) & mask;
+        }
+        name = source.subSequence(offset, offset + length).toString();
+        identifierNames[index] = name;
+        numberOfIdentifierNames++;
+        if (numberOfIdentifierNames * 2 > identifierNames.length) {
+            rehashIdentifierNames();
+        }
+        return name;
+    }
 
-        assert identifierName.length() > 0 : "An identifier must contain at least one character";
-        return new Token(Token.Kind.IDENTIFIER, identifierName.toString(), location,
-                scanner.getCurrentSourceLoc());
+    private void rehashIdentifierNames() {
+        String[] oldNames = identifierNames;
+        identifierNames = new String[oldNames.length * 2];
+        int mask = identifierNames.length - 1;
+        for (String name : oldNames) {
+            if (name != null) {
+                // String's hash code is computed the same way as in internIdentifierName
+                int index = name.hashCode() & mask;
+                while (identifierNames[index] != null) {
+                    index = (index + 1) & mask;
+                }
+                identifierNames[index] = name;
+            }
+        }
     }
 
     /**
@@ -177,47 +299,44 @@ public final class Lexer {
      *         valid number literal (e.g. '.')
      */
     private Token lexNumberLiteral(boolean negative) {
-        SourceLoc location = scanner.getCurrentSourceLoc();
-        StringBuilder numberStringBuilder = new StringBuilder();
-        if (negative) {
-            numberStringBuilder.append("-");
-        }
+        long location = scanner.getCurrentPosition();
+        // Include the '-' that has already been consumed
+        int startIndex = scanner.getIndex() - (negative ? 1 : 0);
+        int digits = 0;
         Token.Kind kind = Token.Kind.INT_LITERAL;
         try {
             characterConsumption: while (true) {
-                switch (scanner.peek()) {
-                    case '0': case '1': case '2': case '3': case '4': case '5': case '6': case '7':
-                    case '8': case '9':
-                        numberStringBuilder.append(scanner.consume());
-                        break;
-                    case '.':
-                        if (kind == Token.Kind.INT_LITERAL) {
-                            kind = Token.Kind.FLOAT_LITERAL;
-                            numberStringBuilder.append(scanner.consume());
-                            break;
-                        } else {
-                            SourceLoc dotLocation = scanner.getCurrentSourceLoc();
-                            scanner.consume();
-                            diagnostics.error(dotLocation, scanner.getCurrentSourceLoc(),
-                                    Diag.two_dots_in_number_literal);
-                            scanner.consumeCharactersInString("0123456789.");
-                            return new Token(Token.Kind.ERROR, location,
-                                    scanner.getCurrentSourceLoc());
-                        }
-                    default:
-                        break characterConsumption;
+                char c = scanner.peek();
+                if (getCharacterClass(c) == DIGIT) {
+                    scanner.consume();
+                    digits++;
+                } else if (c == '.') {
+                    if (kind == Token.Kind.INT_LITERAL) {
+                        kind = Token.Kind.FLOAT_LITERAL;
+                        scanner.consume();
+                    } else {
+                        long dotLocation = scanner.getCurrentPosition();
+                        scanner.consume();
+                        diagnostics.error(dotLocation, scanner.getCurrentPosition(),
+                                Diag.two_dots_in_number_literal);
+                        scanner.consumeCharactersInString("0123456789.");
+                        return new Token(Token.Kind.ERROR, location,
+                                scanner.getCurrentPosition());
+                    }
+                } else {
+                    break characterConsumption;
                 }
             }
         } catch (EOFException ignored) {
         }
-        String numberString = numberStringBuilder.toString();
-        if (numberString.equals(".") || numberString.equals("-.")) {
-            diagnostics.error(location, scanner.getCurrentSourceLoc(),
+        if (digits == 0) {
+            // The literal only consists of a '.' or '-.'
+            diagnostics.error(location, scanner.getCurrentPosition(),
                     Diag.single_dot_no_number_literal);
-            return new Token(Token.Kind.ERROR, location, scanner.getCurrentSourceLoc());
+            return new Token(Token.Kind.ERROR, location, scanner.getCurrentPosition());
         }
-        return new Token(kind, numberStringBuilder.toString(), location,
-                scanner.getCurrentSourceLoc());
+        return new Token(kind, scanner.getSource(), startIndex, scanner.getIndex() - startIndex,
+                location, scanner.getCurrentPosition());
     }
 
     /**
@@ -229,14 +348,14 @@ public final class Lexer {
      * @return The lexed string literal
      */
     private Token lexStringLiteral() {
-        SourceLoc location = scanner.getCurrentSourceLoc();
+        long location = scanner.getCurrentPosition();
         StringBuilder sb = new StringBuilder();
         try {
             char consumedChar = scanner.consume();
             assert consumedChar == '"' : "Haven't we read a quotation mark";
 
             boolean escapedMode = false;
-            SourceLoc lastLocation = scanner.getCurrentSourceLoc();
+            long lastLocation = scanner.getCurrentPosition();
             char c = scanner.consume();
             do {
                 if (escapedMode) {
@@ -246,7 +365,7 @@ public final class Lexer {
                         sb.append(escapedCharacter);
                     } else {
                         // The escape sequence wasn't valid, issue an error, skip it and continue
-                        diagnostics.error(lastLocation, scanner.getCurrentSourceLoc(),
+                        diagnostics.error(lastLocation, scanner.getCurrentPosition(),
                                 Diag.unknown_escape_sequence, c);
                     }
                     escapedMode = false;
@@ -256,7 +375,7 @@ public final class Lexer {
                     } else if (c == '"') {
                         // End of string reached
                         return new Token(Token.Kind.STRING_LITERAL, sb.toString(), location,
-                                scanner.getCurrentSourceLoc());
+                                scanner.getCurrentPosition());
                     } else {
                         if (c == '\n' || c == '\r') {
                             // Reached end of line, just assume the string is terminated and
@@ -270,14 +389,14 @@ public final class Lexer {
                     }
                 }
 
-                lastLocation = scanner.getCurrentSourceLoc();
+                lastLocation = scanner.getCurrentPosition();
                 c = scanner.consume();
             } while (true);
         } catch (EOFException e) {
-            diagnostics.error(location, scanner.getCurrentSourceLoc(),
+            diagnostics.error(location, scanner.getCurrentPosition(),
                     Diag.eof_before_string_terminated);
             return new Token(Token.Kind.STRING_LITERAL, sb.toString(), location,
-                    scanner.getCurrentSourceLoc());
+                    scanner.getCurrentPosition());
         }
     }
 
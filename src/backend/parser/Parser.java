@@ -7,16 +7,50 @@ import backend.errorHandling.ErrorsVerifier;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import backend.utils.*;
+import utils.ThreadManager;
 
 import java.io.Reader;
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
 
 public final class Parser {
 
+    /** The number of chunks per worker thread a source file is split into for parallel parsing */
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    /**
+     * A part of the source code that starts at the beginning of a line and is parsed on its own.
+     * Its statements, errors and expected errors are kept until it is known whether they are the
+     * same as if the chunk had been parsed as part of the entire source file
+     */
+    private static final class Chunk {
+        /** The index of the chunk's first character in the source code */
+        private final int startIndex;
+        private final int firstLine;
+        @NotNull private final List<Stmt> stmts = new ArrayList<>();
+        @NotNull private final Diagnostics diagnostics = new Diagnostics();
+        @Nullable private final ErrorsVerifier verifier;
+        @Nullable private ForkJoinTask<?> task;
+
+        Chunk(int startIndex, int firstLine, boolean verify) {
+            this.startIndex = startIndex;
+            this.firstLine = firstLine;
+            this.verifier = verify ? new ErrorsVerifier() : null;
+        }
+    }
+
     @NotNull private final Lexer lexer;
     @NotNull private final ASTConsumer consumer;
     @Nullable private final ErrorsVerifier verifier;
     @NotNull private final Diagnostics diagnostics;
+    /** The entire source code if it is held in memory and may thus be split into chunks */
+    @Nullable private final CharBuffer source;
     @Nullable private Token peekedToken;
+    private boolean hashConsing = false;
+    @NotNull private ASTBuilder astBuilder = new ASTBuilder(false);
+    private long parallelParsingThreshold = 0;
 
     /**
      * @param inputReader A reader that allows reading the source code
@@ -30,13 +64,82 @@ public final class Parser {
 
     public Parser(@NotNull Reader inputReader, @NotNull ASTConsumer consumer,
                   @NotNull Diagnostics diagnostics, @Nullable ErrorsVerifier verifier) {
-        lexer = new Lexer(inputReader, diagnostics);
+        this(new Lexer(inputReader, diagnostics), consumer, diagnostics, verifier, null);
+    }
+
+    /**
+     * @param source The source code, e.g. a memory-mapped file that has been decoded
+     * @param consumer The consumer of the statements created by the parser
+     * @param diagnostics The diagnostics engine to use
+     * @param verifier The verifier to which expected errors in comments are reported or
+     *                 <code>null</code>
+     */
+    public Parser(@NotNull CharBuffer source, @NotNull ASTConsumer consumer,
+                  @NotNull Diagnostics diagnostics, @Nullable ErrorsVerifier verifier) {
+        this(new Lexer(source, diagnostics), consumer, diagnostics, verifier, source.slice());
+    }
+
+    private Parser(@NotNull Lexer lexer, @NotNull ASTConsumer consumer,
+                   @NotNull Diagnostics diagnostics, @Nullable ErrorsVerifier verifier,
+                   @Nullable CharBuffer source) {
+        this.lexer = lexer;
         this.consumer = consumer;
         this.diagnostics = diagnostics;
         this.verifier = verifier;
+        this.source = source;
+    }
+
+    /**
+     * Share structurally identical subexpressions that don't reference variables and drop
+     * parentheses from the AST. Disabled by default since errors in shared expressions are
+     * reported at their first occurrence and parentheses are no longer printed. Must be called
+     * before parsing
+     * @param hashConsing Whether to share identical subexpressions
+     */
+    public void setHashConsing(boolean hashConsing) {
+        this.hashConsing = hashConsing;
+        this.astBuilder = new ASTBuilder(hashConsing);
+    }
+
+    /**
+     * Split source code that has at least the given number of characters into chunks at the
+     * beginning of lines that start with a statement and parse the chunks in parallel. Their
+     * statements are passed to the consumer in source order.
+     *
+     * <p>
+     * A chunk boundary might not be a statement boundary, e.g. if an expression spans multiple
+     * lines. Since statements are self-delimiting, parsing a chunk on its own then always results
+     * in an error. Chunks are thus only used up to the first one that contains an error, the
+     * remaining source code is parsed sequentially so that the diagnostics are the same as without
+     * parallel parsing.
+     * </p>
+     *
+     * <p>
+     * Only has an effect if the parser has been created with a {@link CharBuffer}. If hash-consing
+     * is enabled, expressions are only shared within a chunk. Disabled by default, must be called
+     * before parsing
+     * </p>
+     * @param threshold The minimum number of characters of source code that is parsed in parallel
+     *                  or 0 to always parse sequentially
+     */
+    public void setParallelParsingThreshold(long threshold) {
+        this.parallelParsingThreshold = threshold;
     }
 
     public void parse() {
+        if (source != null && parallelParsingThreshold > 0 &&
+                source.remaining() >= parallelParsingThreshold) {
+            parseInParallel(source);
+        } else {
+            parseStmts();
+        }
+        consumer.consumeEOF();
+    }
+
+    /**
+     * Parse all statements until the end of the file and pass them to the consumer
+     */
+    private void parseStmts() {
         Stmt stmt = parseStmt();
         while (stmt != null) {
             consumer.consumeStmt(stmt);
@@ -44,6 +147,112 @@ public final class Parser {
         }
     }
 
+    private void parseInParallel(@NotNull CharBuffer source) {
+        List<Chunk> chunks = splitIntoChunks(source,
+                CHUNKS_PER_THREAD * ThreadManager.getNumberOfThreads());
+        for (int i = 0; i < chunks.size(); i++) {
+            Chunk chunk = chunks.get(i);
+            int endIndex = i + 1 < chunks.size() ? chunks.get(i + 1).startIndex : source.limit();
+            Parser chunkParser = createParser(source, chunk.startIndex, endIndex, chunk.firstLine,
+                    chunk.stmts::add, chunk.diagnostics, chunk.verifier);
+            chunk.task = ThreadManager.submit(chunkParser::parseStmts);
+        }
+
+        for (int i = 0; i < chunks.size(); i++) {
+            Chunk chunk = chunks.get(i);
+            assert chunk.task != null;
+            chunk.task.join();
+            if (!chunk.diagnostics.getErrors().isEmpty()) {
+                // The error may have been caused by the chunk boundary. Parse the rest of the
+                // source code sequentially to report exactly the errors of a sequential parse
+                for (int j = i + 1; j < chunks.size(); j++) {
+                    assert chunks.get(j).task != null;
+                    chunks.get(j).task.cancel(false);
+                }
+                createParser(source, chunk.startIndex, source.limit(), chunk.firstLine, consumer,
+                        diagnostics, verifier).parseStmts();
+                return;
+            }
+            if (verifier != null) {
+                assert chunk.verifier != null;
+                verifier.addExpectedErrors(chunk.verifier);
+            }
+            for (Stmt stmt : chunk.stmts) {
+                consumer.consumeStmt(stmt);
+            }
+        }
+    }
+
+    /**
+     * Create a parser for a part of the source code that starts at the beginning of a line
+     */
+    @NotNull
+    private Parser createParser(@NotNull CharBuffer source, int startIndex, int endIndex,
+                                int firstLine, @NotNull ASTConsumer consumer,
+                                @NotNull Diagnostics diagnostics,
+                                @Nullable ErrorsVerifier verifier) {
+        CharBuffer part = source.duplicate();
+        part.limit(endIndex);
+        part.position(startIndex);
+        Parser parser = new Parser(new Lexer(part, diagnostics, firstLine), consumer, diagnostics,
+                verifier, null);
+        parser.setHashConsing(hashConsing);
+        return parser;
+    }
+
+    /**
+     * Split the source code into roughly equally sized chunks that start at the beginning of lines
+     * whose first word is a keyword that starts a statement
+     * @param source The source code to split
+     * @param numberOfChunks The number of chunks to create at most
+     * @return The chunks in source order
+     */
+    @NotNull
+    private List<Chunk> splitIntoChunks(@NotNull CharBuffer source, int numberOfChunks) {
+        List<Chunk> chunks = new ArrayList<>();
+        chunks.add(new Chunk(0, 1, verifier != null));
+        int length = source.limit();
+        int line = 1;
+        for (int i = 0; i < length && chunks.size() < numberOfChunks; i++) {
+            char c = source.get(i);
+            boolean lineBreakEnds;
+            if (c == '\r') {
+                line++;
+                lineBreakEnds = i + 1 >= length || source.get(i + 1) != '\n';
+            } else if (c == '\n') {
+                // A '\n' following a '\r' is part of the same line break
+                if (i == 0 || source.get(i - 1) != '\r') {
+                    line++;
+                }
+                lineBreakEnds = true;
+            } else {
+                continue;
+            }
+            if (lineBreakEnds && i + 1 >= (long)length * chunks.size() / numberOfChunks &&
+                    startsWithStmtKeyword(source, i + 1)) {
+                chunks.add(new Chunk(i + 1, line, verifier != null));
+            }
+        }
+        return chunks;
+    }
+
+    /**
+     * @return Whether the first word after the whitespace at the given index of the source code
+     *         is <code>var</code>, <code>out</code> or <code>print</code>
+     */
+    private static boolean startsWithStmtKeyword(@NotNull CharBuffer source, int index) {
+        int length = source.limit();
+        while (index < length && (source.get(index) == ' ' || source.get(index) == '\t')) {
+            index++;
+        }
+        int wordEnd = index;
+        while (wordEnd < length && Lexer.isIdentifierCharacter(source.get(wordEnd))) {
+            wordEnd++;
+        }
+        String word = source.subSequence(index, wordEnd).toString();
+        return word.equals("var") || word.equals("out") || word.equals("print");
+    }
+
     /**
      * stmt ::= var assignment | 'out' expr | print '"string"'
      * @return The next parsed statement in the source code or <code>null</code> if EOF has been
@@ -56,11 +265,10 @@ public final class Parser {
             if (token.getKind() == Token.Kind.EOF) {
                 return null;
             }
-            if (token.getKind() == Token.Kind.IDENTIFIER) {
-                assert token.getPayload() != null;
-                switch (token.getPayload()) {
-                    case "var": {
-                        AssignStmt assignmentStmt = parseAssignment(token.getStartLocation());
+            if (token.getKind() == Token.Kind.IDENTIFIER && token.getKeyword() != null) {
+                switch (token.getKeyword()) {
+                    case VAR: {
+                        AssignStmt assignmentStmt = parseAssignment(token.getStartPosition());
                         if (assignmentStmt != null) {
                             return assignmentStmt;
                         } else {
@@ -68,16 +276,16 @@ public final class Parser {
                             break;
                         }
                     }
-                    case "out": {
+                    case OUT: {
                         Expr expr = parseExpr();
                         if (expr != null) {
-                            return new OutStmt(token.getStartLocation(), expr.getEndLocation(),
+                            return new OutStmt(token.getStartPosition(), expr.getEndPosition(),
                                     expr);
                         } else {
                             break;
                         }
                     }
-                    case "print": {
+                    case PRINT: {
                         Token stringToken = peekToken();
                         if (stringToken.getKind() != Token.Kind.STRING_LITERAL) {
                             diagnostics.error(stringToken, Diag.no_string_literal_after_print,
@@ -87,7 +295,7 @@ public final class Parser {
                         // Consume the string token
                         consumeToken();
                         assert stringToken.getPayload() != null;
-                        return new PrintStmt(token.getStartLocation(), stringToken.getEndLocation(),
+                        return new PrintStmt(token.getStartPosition(), stringToken.getEndPosition(),
                                 stringToken.getPayload());
                     }
                     default:
@@ -115,7 +323,7 @@ public final class Parser {
      * @return A parsed assignment in the source code or <code>null</code> if none could be parsed
      */
     @Nullable
-    private AssignStmt parseAssignment(@NotNull SourceLoc location) {
+    private AssignStmt parseAssignment(long position) {
         // Parse identifier
         Variable variable = parseVariable(Diag.expected_ident_after_var);
         if (variable == null) {
@@ -137,7 +345,7 @@ public final class Parser {
             // Parsing the expression failed. Errors have already been reported, just return null
             return null;
         }
-        return new AssignStmt(location, expr.getEndLocation(), variable, expr);
+        return new AssignStmt(position, expr.getEndPosition(), variable, expr);
     }
 
     private BinaryOperatorExpr.Operator getOperatorForToken(Token token) {
@@ -161,47 +369,102 @@ public final class Parser {
      * expr ::= expr op expr | '(' expr ')' | identifier | '{' expr ',' expr '}' | numberLiteral |
      *          'map' map |
      *          'reduce' reduce
+     *
+     * Binary operators and parentheses are parsed with explicit stacks of operands and operators
+     * instead of recursively, so that deeply nested expressions don't overflow the thread's stack
      * @return The next parsed expression or <code>null</code> if the following source code
      *         does not form a valid expression
      */
     @Nullable
     private Expr parseExpr() {
-        return parseExprImpl(0);
-    }
-
-    private Expr parseExprImpl(int precedenceHigherThan) {
-        Expr workingExpr = null;
+        // The operands that have not been combined into a binary operator yet
+        List<Expr> operands = new ArrayList<>();
+        // Binary operators whose right-hand side is being parsed and '(' tokens whose ')' has not
+        // been seen yet
+        List<Token> operators = new ArrayList<>();
         while (true) {
             Token nextToken = peekToken();
-            if (workingExpr == null) {
-                workingExpr = parseBaseExpr();
-                if (workingExpr == null) {
-                    return null;
-                }
-            } else {
+            while (nextToken.getKind() == Token.Kind.L_PAREN) {
+                consumeToken();
+                operators.add(nextToken);
+                nextToken = peekToken();
+            }
+            Expr operand = parseBaseExpr();
+            if (operand == null) {
+                return null;
+            }
+            operands.add(operand);
+
+            // Parse the operators and ')' following the operand
+            while (true) {
+                nextToken = peekToken();
                 if (nextToken.isOperator()) {
                     BinaryOperatorExpr.Operator operator = getOperatorForToken(nextToken);
-                    if (operator.getPrecedence() <= precedenceHigherThan) {
-                        break;
-                    }
+                    // All binary operators are left-associative
+                    reduceBinaryOperators(operands, operators, operator.getPrecedence());
                     consumeToken();
-                    Expr rhs = parseExprImpl(operator.getPrecedence());
-                    if (rhs == null) {
-                        return null;
-                    }
-                    workingExpr = new BinaryOperatorExpr(nextToken.getStartLocation(),
-                            nextToken.getEndLocation(), workingExpr, operator, rhs);
-                } else {
+                    operators.add(nextToken);
                     break;
                 }
+                reduceBinaryOperators(operands, operators, Integer.MIN_VALUE);
+                if (operators.isEmpty()) {
+                    assert operands.size() == 1;
+                    return operands.get(0);
+                }
+                Token lParen = operators.remove(operators.size() - 1);
+                assert lParen.getKind() == Token.Kind.L_PAREN;
+                Token rParen = peekToken();
+                if (!consumeToken(Token.Kind.R_PAREN, Diag.r_paren_expected, ")")) {
+                    return null;
+                }
+                Expr subExpr = operands.remove(operands.size() - 1);
+                operands.add(astBuilder.createParen(lParen.getStartPosition(),
+                        rParen.getEndPosition(), subExpr));
             }
         }
-        return workingExpr;
     }
 
     /**
-     * Parses an expression without any binary operators. Returns the parsed expression or
-     * <code>null</code> if parsing failed
+     * Combine the operands of the innermost parentheses with the binary operators between them
+     * for as long as the operators bind at least as strongly as the specified precedence
+     * @param operands The operands of the expression being parsed
+     * @param operators The binary operators and '(' tokens of the expression being parsed
+     * @param precedence The precedence of the operator following the last operand
+     */
+    private void reduceBinaryOperators(@NotNull List<Expr> operands,
+                                       @NotNull List<Token> operators, int precedence) {
+        while (!operators.isEmpty()) {
+            Token operatorToken = operators.get(operators.size() - 1);
+            if (operatorToken.getKind() == Token.Kind.L_PAREN) {
+                return;
+            }
+            BinaryOperatorExpr.Operator operator = getOperatorForToken(operatorToken);
+            if (operator.getPrecedence() < precedence) {
+                return;
+            }
+            operators.remove(operators.size() - 1);
+            Expr rhs = operands.remove(operands.size() - 1);
+            Expr lhs = operands.remove(operands.size() - 1);
+            operands.add(astBuilder.createBinaryOperator(operatorToken.getStartPosition(),
+                    operatorToken.getEndPosition(), lhs, operator, rhs));
+        }
+    }
+
+    /**
+     * Parse an expression at which errors may be reported, so that it must not share its location
+     * with other expressions, see {@link ASTBuilder#unshare(Expr)}
+     * @return The next parsed expression or <code>null</code> if the following source code
+     *         does not form a valid expression
+     */
+    @Nullable
+    private Expr parseUnsharedExpr() {
+        Expr expr = parseExpr();
+        return expr != null ? astBuilder.unshare(expr) : null;
+    }
+
+    /**
+     * Parses an expression without any binary operators or enclosing parentheses. Returns the
+     * parsed expression or <code>null</code> if parsing failed
      * @return A base expression or <code>null</code> if parsing failed
      */
     private Expr parseBaseExpr() {
@@ -209,41 +472,33 @@ public final class Parser {
         switch (nextToken.getKind()) {
             case INT_LITERAL: {
                 consumeToken();
-                assert nextToken.getPayload() != null;
-                // We know the token's payload is a valid number
-                int value = Integer.parseInt(nextToken.getPayload());
-                return new IntLiteralExpr(nextToken.getStartLocation(), nextToken.getEndLocation(),
-                        value);
+                long value;
+                try {
+                    // We know the token's payload consists of digits only
+                    value = nextToken.getIntValue();
+                } catch (NumberFormatException e) {
+                    diagnostics.error(nextToken, Diag.int_literal_too_large,
+                            nextToken.toSourceString());
+                    return null;
+                }
+                return astBuilder.createIntLiteral(nextToken.getStartPosition(),
+                        nextToken.getEndPosition(), value);
             }
             case FLOAT_LITERAL: {
                 consumeToken();
-                assert nextToken.getPayload() != null;
                 // We know the token's payload is a valid number
-                double value = Double.parseDouble(nextToken.getPayload());
-                return new FloatLiteralExpr(nextToken.getStartLocation(),
-                        nextToken.getEndLocation(), value);
-            }
-            case L_PAREN: {
-                consumeToken();
-                Expr subExpr = parseExpr();
-                if (subExpr == null) {
-                    return null;
-                }
-                Token rParen = peekToken();
-                if (!consumeToken(Token.Kind.R_PAREN, Diag.r_paren_expected, ")")) {
-                    return null;
-                }
-                return new ParenExpr(nextToken.getStartLocation(), rParen.getEndLocation(),
-                        subExpr);
+                double value = nextToken.getFloatValue();
+                return astBuilder.createFloatLiteral(nextToken.getStartPosition(),
+                        nextToken.getEndPosition(), value);
             }
             case L_BRACE: {
                 consumeToken();
-                Expr lowerBound = parseExpr();
+                Expr lowerBound = parseUnsharedExpr();
                 if (lowerBound == null) {
                     return null;
                 }
                 consumeToken(Token.Kind.COMMA, Diag.expected_comma_in_range, ", ");
-                Expr upperBound = parseExpr();
+                Expr upperBound = parseUnsharedExpr();
                 if (upperBound == null) {
                     return null;
                 }
@@ -252,20 +507,19 @@ public final class Parser {
                     diagnostics.error(rBrace, Diag.r_brace_expected, rBrace);
                     return null;
                 }
-                return new RangeExpr(nextToken.getStartLocation(), rBrace.getEndLocation(),
+                return new RangeExpr(nextToken.getStartPosition(), rBrace.getEndPosition(),
                         lowerBound, upperBound);
             }
             case IDENTIFIER: {
                 consumeToken();
-                assert nextToken.getPayload() != null;
-                switch (nextToken.getPayload()) {
-                    case "map":
-                        return parseMapExpr(nextToken.getStartLocation());
-                    case "reduce":
-                        return parseReduceExpr(nextToken.getStartLocation());
-                    default:
-                        return new VariableRefExpr(nextToken.getStartLocation(),
-                                nextToken.getEndLocation(), nextToken.getPayload());
+                if (nextToken.getKeyword() == Token.Keyword.MAP) {
+                    return parseMapExpr(nextToken.getStartPosition());
+                } else if (nextToken.getKeyword() == Token.Keyword.REDUCE) {
+                    return parseReduceExpr(nextToken.getStartPosition());
+                } else {
+                    assert nextToken.getPayload() != null;
+                    return new VariableRefExpr(nextToken.getStartPosition(),
+                            nextToken.getEndPosition(), nextToken.getPayload());
                 }
             }
             default: {
@@ -284,11 +538,11 @@ public final class Parser {
      * parsed expression or <code>null</code> if parsing failed
      * @return A parsed map expression or <code>null</code> if the expression could not be parsed
      */
-    private MapExpr parseMapExpr(@NotNull SourceLoc location) {
+    private MapExpr parseMapExpr(long position) {
         // '('
         consumeToken(Token.Kind.L_PAREN, Diag.l_paren_expected, "(");
         // expr
-        Expr argument = parseExpr();
+        Expr argument = parseUnsharedExpr();
         if (argument == null) {
             return null;
         }
@@ -311,7 +565,7 @@ public final class Parser {
         // ')'
         Token rParen = peekToken();
         consumeToken(Token.Kind.R_PAREN, Diag.r_paren_expected, ")");
-        return new MapExpr(location, rParen.getEndLocation(), argument, param, lambda);
+        return new MapExpr(position, rParen.getEndPosition(), argument, param, lambda);
     }
 
     /**
@@ -320,11 +574,11 @@ public final class Parser {
      * successfully parsed expression or <code>null</code> if parsing failed
      * @return A parsed reduce expression or <code>null</code> if the expression could not be parsed
      */
-    private ReduceExpr parseReduceExpr(@NotNull SourceLoc location) {
+    private ReduceExpr parseReduceExpr(long position) {
         // '('
         consumeToken(Token.Kind.L_PAREN, Diag.l_paren_expected, "(");
         // expr
-        Expr sequence = parseExpr();
+        Expr sequence = parseUnsharedExpr();
         if (sequence == null) {
             return null;
         }
@@ -352,14 +606,14 @@ public final class Parser {
             return null;
         }
         // expr
-        Expr lambda = parseExpr();
+        Expr lambda = parseUnsharedExpr();
         if (lambda == null) {
             return null;
         }
         // ')'
         Token rParen = peekToken();
         consumeToken(Token.Kind.R_PAREN, Diag.r_paren_expected, ")");
-        return new ReduceExpr(location, rParen.getEndLocation(), base, sequence, lambdaParam1,
+        return new ReduceExpr(position, rParen.getEndPosition(), base, sequence, lambdaParam1,
                 lambdaParam2, lambda);
     }
 
@@ -384,7 +638,7 @@ public final class Parser {
             Diagnostics.Error error = diagnostics.error(peekToken(), diag,
                     peekToken().toSourceString());
             if (fixItInsert != null) {
-                error.fixItInsert(peekToken().getStartLocation(), fixItInsert);
+                error.fixItInsert(peekToken().getStartPosition(), fixItInsert);
             }
             return false;
         } else {
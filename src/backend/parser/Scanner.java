@@ -4,41 +4,68 @@ import org.jetbrains.annotations.NotNull;
 import backend.utils.SourceLoc;
 
 import java.io.*;
-import java.util.HashSet;
-import java.util.LinkedList;
-import java.util.Set;
+import java.nio.CharBuffer;
 
 /**
  * Allows consumption of characters from the source file and keeps track of the position of the
  * characters in the source file as line and column
+ *
+ * <p>
+ * The entire source code is held in a {@link CharBuffer} that is traversed with an index, so
+ * peeking and consuming characters does not allocate any objects
+ * </p>
  */
 final class Scanner {
 
-    @NotNull private final Reader inputReader;
-    @NotNull private final LinkedList<Character> buffer = new LinkedList<>();
+    @NotNull private final CharBuffer source;
+    /** The index of the next character in {@link #source} */
+    private int index = 0;
     private int column = 1;
-    private int line = 1;
+    private int line;
 
     /**
-     * @param inputReader A reader that can be used to read the source code
+     * @param inputReader A reader that can be used to read the source code. It is read entirely
+     *                    before the first character is scanned
      */
     Scanner(@NotNull Reader inputReader) {
-        this.inputReader = inputReader;
+        this(readFully(inputReader), 1);
     }
 
-    private void fillBuffer(int size) throws EOFException {
-        while (buffer.size() < size) {
-            int nextChar;
-            try {
-                nextChar = inputReader.read();
-            } catch (IOException e) {
-                throw new RuntimeException(e);
-            }
-            if (nextChar == -1) {
-                throw new EOFException();
+    /**
+     * @param source The source code. Its characters between its position and its limit are scanned
+     */
+    Scanner(@NotNull CharBuffer source) {
+        this(source, 1);
+    }
+
+    /**
+     * @param source The source code. Its characters between its position and its limit are scanned
+     * @param firstLine The line of the source file at which <code>source</code> starts. The source
+     *                  needs to start at the beginning of this line
+     */
+    Scanner(@NotNull CharBuffer source, int firstLine) {
+        this.source = source.slice();
+        this.line = firstLine;
+    }
+
+    @NotNull
+    private static CharBuffer readFully(@NotNull Reader inputReader) {
+        char[] chars = new char[8192];
+        int length = 0;
+        try {
+            int read;
+            while ((read = inputReader.read(chars, length, chars.length - length)) != -1) {
+                length += read;
+                if (length == chars.length) {
+                    char[] newChars = new char[chars.length * 2];
+                    System.arraycopy(chars, 0, newChars, 0, length);
+                    chars = newChars;
+                }
             }
-            buffer.add((char)nextChar);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
         }
+        return CharBuffer.wrap(chars, 0, length);
     }
 
     /**
@@ -46,8 +73,10 @@ final class Scanner {
      * @throws EOFException If there is no next character in the source code
      */
     char peek() throws EOFException {
-        fillBuffer(1);
-        return buffer.peek();
+        if (index >= source.limit()) {
+            throw new EOFException();
+        }
+        return source.get(index);
     }
 
     /**
@@ -56,13 +85,13 @@ final class Scanner {
      * @throws EOFException If the end of the file has been reached
      */
     char consume() throws EOFException {
-        fillBuffer(1);
-        char c = buffer.pop();
-        if (c == '\n' || c == '\r') {
-            // FIXME: Handle \r\n in windows encodings correctly
+        char c = peek();
+        index++;
+        if (c == '\r' || (c == '\n' && (index < 2 || source.get(index - 2) != '\r'))) {
             line++;
             column = 1;
-        } else {
+        } else if (c != '\n') {
+            // A '\n' following a '\r' is part of the same line break
             column++;
         }
         return c;
@@ -73,12 +102,8 @@ final class Scanner {
      * @param s The set of characters that should be consumed
      */
     void consumeCharactersInString(@NotNull String s) {
-        Set<Character> chars = new HashSet<>();
-        for (char c : s.toCharArray()) {
-            chars.add(c);
-        }
         try {
-            while (chars.contains(peek())) {
+            while (s.indexOf(peek()) >= 0) {
                 consume();
             }
         } catch (EOFException ignored) {
@@ -86,10 +111,25 @@ final class Scanner {
     }
 
     /**
-     * @return The source location of the next character
+     * @return The source code that is being scanned. Indices into it are returned by
+     *         {@link #getIndex()}
      */
     @NotNull
-    SourceLoc getCurrentSourceLoc() {
-        return new SourceLoc(line, column);
+    CharSequence getSource() {
+        return source;
+    }
+
+    /**
+     * @return The index of the next character in {@link #getSource()}
+     */
+    int getIndex() {
+        return index;
+    }
+
+    /**
+     * @return The position of the next character, packed by {@link SourceLoc#pack(int, int)}
+     */
+    long getCurrentPosition() {
+        return SourceLoc.pack(line, column);
     }
 }
@@ -31,21 +31,88 @@ public final class Token {
         EOF
     }
 
+    /**
+     * Identifiers that have a special meaning at the start of a statement or an expression. They
+     * are still lexed as {@link Kind#IDENTIFIER} tokens
+     */
+    public enum Keyword {
+        VAR("var"),
+        OUT("out"),
+        PRINT("print"),
+        MAP("map"),
+        REDUCE("reduce");
+
+        @NotNull private final String spelling;
+
+        Keyword(@NotNull String spelling) {
+            this.spelling = spelling;
+        }
+
+        @NotNull
+        public String getSpelling() {
+            return spelling;
+        }
+    }
+
+    /** Powers of ten that can be represented exactly as a double */
+    private static final double[] EXACT_POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14,
+            1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    /** The maximum number of digits of a long that can be converted to a double exactly */
+    private static final int MAX_EXACT_DIGITS = 15;
+
     @NotNull private final Kind kind;
-    @Nullable private final String payload;
-    @NotNull private final SourceLoc startLocation;
-    @NotNull private final SourceLoc endLocation;
+    /** The source code this token is a slice of or <code>null</code> if it has a fixed payload */
+    @Nullable private final CharSequence source;
+    private final int offset;
+    private final int length;
+    /** The token's payload. Created from the source code slice the first time it is needed */
+    @Nullable private String payload;
+    @Nullable private final Keyword keyword;
+    /** The packed start position, see {@link SourceLoc#pack(int, int)} */
+    private final long startPosition;
+    /** The packed end position, see {@link SourceLoc#pack(int, int)} */
+    private final long endPosition;
 
-    Token(@NotNull Kind kind, @Nullable String payload, @NotNull SourceLoc startLocation,
-          @NotNull SourceLoc endLocation) {
+    /**
+     * Create a token whose payload does not appear verbatim in the source code, e.g. a string
+     * literal containing escape sequences, or an identifier whose name has already been interned
+     */
+    Token(@NotNull Kind kind, @Nullable String payload, @Nullable Keyword keyword,
+          long startPosition, long endPosition) {
         this.kind = kind;
+        this.source = null;
+        this.offset = 0;
+        this.length = 0;
         this.payload = payload;
-        this.startLocation = startLocation;
-        this.endLocation = endLocation;
+        this.keyword = keyword;
+        this.startPosition = startPosition;
+        this.endPosition = endPosition;
+    }
+
+    Token(@NotNull Kind kind, @Nullable String payload, long startPosition, long endPosition) {
+        this(kind, payload, null, startPosition, endPosition);
     }
 
-    Token(Kind kind, @NotNull SourceLoc startLocation, @NotNull SourceLoc endLocation) {
-        this(kind, null, startLocation, endLocation);
+    Token(Kind kind, long startPosition, long endPosition) {
+        this(kind, null, null, startPosition, endPosition);
+    }
+
+    /**
+     * Create a token whose payload are the characters <code>[offset, offset + length)</code> of
+     * <code>source</code>. The characters are only copied if the payload is requested
+     */
+    Token(@NotNull Kind kind, @NotNull CharSequence source, int offset, int length,
+          long startPosition, long endPosition) {
+        this.kind = kind;
+        this.source = source;
+        this.offset = offset;
+        this.length = length;
+        this.payload = null;
+        this.keyword = null;
+        this.startPosition = startPosition;
+        this.endPosition = endPosition;
     }
 
     @NotNull
@@ -55,17 +122,122 @@ public final class Token {
 
     @Nullable
     public String getPayload() {
+        if (payload == null && source != null) {
+            payload = source.subSequence(offset, offset + length).toString();
+        }
         return payload;
     }
 
+    /**
+     * @return The keyword this identifier spells or <code>null</code> if it is no keyword
+     */
+    @Nullable
+    public Keyword getKeyword() {
+        return keyword;
+    }
+
+    /**
+     * Parse the value of an <code>INT_LITERAL</code> token without copying its characters
+     * @return The integer value of the literal
+     * @throws NumberFormatException If the value does not fit into a long
+     */
+    public long getIntValue() {
+        assert kind == Kind.INT_LITERAL;
+        if (source == null) {
+            assert payload != null;
+            return Long.parseLong(payload);
+        }
+        int index = offset;
+        int end = offset + length;
+        boolean negative = source.charAt(index) == '-';
+        if (negative) {
+            index++;
+        }
+        // Accumulate negatively since Long.MIN_VALUE has no positive counterpart
+        long value = 0;
+        for (; index < end; index++) {
+            int digit = source.charAt(index) - '0';
+            if (value < (Long.MIN_VALUE + digit) / 10) {
+                throw new NumberFormatException(getPayload());
+            }
+            value = value * 10 - digit;
+        }
+        if (!negative) {
+            if (value == Long.MIN_VALUE) {
+                throw new NumberFormatException(getPayload());
+            }
+            value = -value;
+        }
+        return value;
+    }
+
+    /**
+     * Parse the value of a <code>FLOAT_LITERAL</code> token. Literals with few enough digits are
+     * converted exactly by dividing their digits by a power of ten, all others using
+     * {@link Double#parseDouble(String)}
+     * @return The value of the literal
+     */
+    public double getFloatValue() {
+        assert kind == Kind.FLOAT_LITERAL;
+        if (source != null) {
+            int index = offset;
+            int end = offset + length;
+            boolean negative = source.charAt(index) == '-';
+            if (negative) {
+                index++;
+            }
+            long mantissa = 0;
+            int digits = 0;
+            int fractionDigits = -1;
+            for (; index < end; index++) {
+                char c = source.charAt(index);
+                if (c == '.') {
+                    fractionDigits = 0;
+                    continue;
+                }
+                mantissa = mantissa * 10 + (c - '0');
+                if (mantissa != 0) {
+                    digits++;
+                }
+                if (fractionDigits >= 0) {
+                    fractionDigits++;
+                }
+                if (digits > MAX_EXACT_DIGITS) {
+                    break;
+                }
+            }
+            if (digits <= MAX_EXACT_DIGITS && fractionDigits < EXACT_POWERS_OF_TEN.length) {
+                double value = mantissa / EXACT_POWERS_OF_TEN[Math.max(fractionDigits, 0)];
+                return negative ? -value : value;
+            }
+        }
+        String payload = getPayload();
+        assert payload != null;
+        return Double.parseDouble(payload);
+    }
+
+    /**
+     * @return The packed start position of this token, see {@link SourceLoc#pack(int, int)}
+     */
+    public long getStartPosition() {
+        return startPosition;
+    }
+
+    /**
+     * @return The packed end position of this token, see {@link SourceLoc#pack(int, int)}
+     */
+    public long getEndPosition() {
+        return endPosition;
+    }
+
     @NotNull
     public SourceLoc getStartLocation() {
-        return startLocation;
+        return SourceLoc.unpack(startPosition);
     }
 
     @NotNull
     public SourceLoc getEndLocation() {
-        return endLocation;
+        return SourceLoc.unpack(endPosition);
     }
 
     public boolean isOperator() {
@@ -83,6 +255,7 @@ public final class Token {
 
     @Override
     public String toString() {
+        String payload = getPayload();
         if (payload != null) {
             return kind + "(" + payload + ")";
         } else {
@@ -128,9 +301,8 @@ public final class Token {
             case COMMA:
                 return ",";
             case STRING_LITERAL:
-                // FIXME: Escape the characters of the payload again
                 assert getPayload() != null;
-                return "\"" + getPayload() + "\"";
+                return "\"" + escape(getPayload()) + "\"";
             case ASSIGN:
                 return "=";
             case ERROR:
@@ -144,4 +316,45 @@ public final class Token {
                 throw new RuntimeException("Unknown token kind: " + getKind());
         }
     }
+
+    /**
+     * Escape the characters of a string literal's payload so that lexing the result yields the
+     * payload again
+     * @param payload The payload of a string literal
+     * @return The payload with quotation marks, backslashes and control characters replaced by
+     *         their escape sequences
+     */
+    @NotNull
+    private static String escape(@NotNull String payload) {
+        StringBuilder sb = new StringBuilder(payload.length() + 2);
+        for (int i = 0; i < payload.length(); i++) {
+            char c = payload.charAt(i);
+            switch (c) {
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                case '\b':
+                    sb.append("\\b");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\f':
+                    sb.append("\\f");
+                    break;
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                default:
+                    sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
 }
@@ -7,13 +7,15 @@ import backend.AST.Type.Type;
 import org.jetbrains.annotations.NotNull;
 import backend.utils.ASTConsumer;
 import backend.utils.ASTVisitor;
+import backend.utils.ExprFolder;
 import backend.errorHandling.Diag;
 import backend.errorHandling.Diagnostics;
 
 /**
  * Does static type checking of the AST and resolves variable references in {@link VariableRefExpr}s
  */
-public final class TypeChecker implements ASTConsumer, ASTVisitor<Boolean> {
+public final class TypeChecker implements ASTConsumer, ASTVisitor<Boolean>,
+        ExprFolder<Boolean> {
 
     @NotNull private final ASTConsumer nextConsumer;
     @NotNull private final Diagnostics diagnostics;
@@ -28,6 +30,16 @@ public final class TypeChecker implements ASTConsumer, ASTVisitor<Boolean> {
         this.diagnostics = diagnostics;
     }
 
+    /**
+     * Declare a variable that is assigned outside of the program, e.g. an input variable whose
+     * value is bound by the embedder of the interpreter. Must be called before the first
+     * statement is consumed
+     * @param variable The variable to declare. Its type must have been set
+     */
+    public void declareInputVariable(@NotNull Variable variable) {
+        variableScope.declareVariable(variable);
+    }
+
     /**
      * Type check the given AST node
      * @param node The AST node to type check
@@ -44,6 +56,11 @@ public final class TypeChecker implements ASTConsumer, ASTVisitor<Boolean> {
         }
     }
 
+    @Override
+    public void consumeEOF() {
+        nextConsumer.consumeEOF();
+    }
+
     @Override
     public Boolean visitAssignStmt(AssignStmt assignStmt) {
         if (!typeCheck(assignStmt.getRhs())) {
@@ -60,9 +77,26 @@ public final class TypeChecker implements ASTConsumer, ASTVisitor<Boolean> {
         return true;
     }
 
+    @Override
+    public Boolean foldOperand(@NotNull Expr expr) {
+        return typeCheck(expr);
+    }
+
+    @Override
+    public boolean needsRhs(Boolean lhs) {
+        // Don't type check the right-hand side of an operator whose left-hand side has an error
+        return lhs;
+    }
+
     @Override
     public Boolean visitBinaryOperatorExpr(BinaryOperatorExpr binOpExpr) {
-        if (!typeCheck(binOpExpr.getLhs()) || !typeCheck(binOpExpr.getRhs())) {
+        return ExprFolder.fold(binOpExpr, this);
+    }
+
+    @Override
+    public Boolean foldBinaryOperator(@NotNull BinaryOperatorExpr binOpExpr, Boolean lhs,
+                                      Boolean rhs) {
+        if (!lhs || !rhs) {
             return false;
         }
         Type lhsType = binOpExpr.getLhs().getType();
@@ -141,7 +175,12 @@ public final class TypeChecker implements ASTConsumer, ASTVisitor<Boolean> {
 
     @Override
     public Boolean visitParenExpr(ParenExpr parenExpr) {
-        if (!typeCheck(parenExpr.getSubExpr())) {
+        return ExprFolder.fold(parenExpr, this);
+    }
+
+    @Override
+    public Boolean foldParen(@NotNull ParenExpr parenExpr, Boolean subExpr) {
+        if (!subExpr) {
             return false;
         }
 
@@ -5,4 +5,11 @@ import org.jetbrains.annotations.NotNull;
 
 public interface ASTConsumer {
     void consumeStmt(@NotNull Stmt stmt);
+
+    /**
+     * Called after the last statement of the source code has been consumed. Consumers that need
+     * to see the entire program before passing statements on can do so here
+     */
+    default void consumeEOF() {
+    }
 }
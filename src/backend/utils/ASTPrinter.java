@@ -7,7 +7,7 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.util.stream.Stream;
 
-public final class ASTPrinter implements ASTConsumer, ASTVisitor<Void> {
+public final class ASTPrinter implements ASTConsumer, ASTVisitor<Void>, ExprFolder<Void> {
 
     private int indentation = 0;
     @NotNull private OutputStream outputStream;
@@ -47,26 +47,51 @@ public final class ASTPrinter implements ASTConsumer, ASTVisitor<Void> {
     }
 
     @Override
-    public Void visitAssignStmt(@NotNull AssignStmt assignStmt) {
-        print("(assignExpr var=" + assignStmt.getLhs().getName());
+    public Void foldOperand(@NotNull Expr expr) {
+        visit(expr);
+        return null;
+    }
+
+    @Override
+    public Void enter(@NotNull Expr expr) {
+        if (expr instanceof BinaryOperatorExpr) {
+            print("(binaryOperatorExpr op=" + ((BinaryOperatorExpr)expr).getOp());
+        } else {
+            print("(parenExpr");
+        }
         increaseIndentation();
-        visit(assignStmt.getRhs());
+        return null;
+    }
+
+    @Override
+    public Void foldBinaryOperator(@NotNull BinaryOperatorExpr binOpExpr, Void lhs, Void rhs) {
         decreaseIndentation();
         print(")");
         return null;
     }
 
     @Override
-    public Void visitBinaryOperatorExpr(BinaryOperatorExpr binOpExpr) {
-        print("(binaryOperatorExpr op=" + binOpExpr.getOp());
+    public Void foldParen(@NotNull ParenExpr parenExpr, Void subExpr) {
+        decreaseIndentation();
+        print(")");
+        return null;
+    }
+
+    @Override
+    public Void visitAssignStmt(@NotNull AssignStmt assignStmt) {
+        print("(assignExpr var=" + assignStmt.getLhs().getName());
         increaseIndentation();
-        visit(binOpExpr.getLhs());
-        visit(binOpExpr.getRhs());
+        visit(assignStmt.getRhs());
         decreaseIndentation();
         print(")");
         return null;
     }
 
+    @Override
+    public Void visitBinaryOperatorExpr(BinaryOperatorExpr binOpExpr) {
+        return ExprFolder.fold(binOpExpr, this);
+    }
+
     @Override
     public Void visitFloatLiteralExpr(FloatLiteralExpr floatLiteralExpr) {
         print("(floatLiteralExpr value=" + floatLiteralExpr.getValue() + ")");
@@ -108,12 +133,7 @@ public final class ASTPrinter implements ASTConsumer, ASTVisitor<Void> {
 
     @Override
     public Void visitParenExpr(ParenExpr parenExpr) {
-        print("(parenExpr");
-        increaseIndentation();
-        visit(parenExpr.getSubExpr());
-        decreaseIndentation();
-        print(")");
-        return null;
+        return ExprFolder.fold(parenExpr, this);
     }
 
     @Override
@@ -0,0 +1,128 @@
+package backend.utils;
+
+import backend.AST.Stmt;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import utils.AllocationTracker;
+import utils.RingBuffer;
+import utils.ThreadManager;
+
+/**
+ * Passes the statements it consumes on to the next consumer on a separate thread so that the
+ * stages before and after it work concurrently, e.g. parsing the next statement while the previous
+ * one is being evaluated.
+ *
+ * <p>
+ * Statements are handed over through a bounded queue, so the producing stage waits if it is too
+ * far ahead. {@link #consumeEOF()} returns once the next consumer has consumed all statements and
+ * the end of the input. Exceptions thrown by the next consumer are rethrown from
+ * {@link #consumeEOF()}
+ * </p>
+ *
+ * <p>
+ * If the producing stage fails before it calls {@link #consumeEOF()}, {@link #close()} stops the
+ * thread without passing the end of the input on. Callers should thus always close the consumer,
+ * otherwise the thread waits for further statements forever.
+ * </p>
+ */
+public final class AsyncASTConsumer implements ASTConsumer, AutoCloseable {
+
+    private static final int QUEUE_CAPACITY = 256;
+    /** Put into the queue to signal the end of the input */
+    @NotNull private static final Object EOF_MARKER = new Object();
+
+    @NotNull private final ASTConsumer nextConsumer;
+    @NotNull private final RingBuffer<Object> queue = new RingBuffer<>(QUEUE_CAPACITY);
+    @NotNull private final Thread consumerThread;
+    @Nullable private volatile Throwable failure;
+    /** Whether the statements that are still queued shall be dropped, see {@link #close()} */
+    private volatile boolean aborted = false;
+    /** Whether the end of the input has been queued. Only accessed by the producer */
+    private boolean endOfInputQueued = false;
+
+    /**
+     * @param nextConsumer The consumer to pass the statements on to on a separate thread
+     * @param stageName The name of the thread that runs <code>nextConsumer</code>
+     */
+    public AsyncASTConsumer(@NotNull ASTConsumer nextConsumer, @NotNull String stageName) {
+        this.nextConsumer = nextConsumer;
+        // Keep the tasks of the next consumer on the worker pool of the stage that created it
+        this.consumerThread = new Thread(ThreadManager.onCurrentPool(this::run), stageName);
+        this.consumerThread.setDaemon(true);
+        this.consumerThread.start();
+    }
+
+    @Override
+    public void consumeStmt(@NotNull Stmt stmt) {
+        queue.put(stmt);
+    }
+
+    @Override
+    public void consumeEOF() {
+        endOfInputQueued = true;
+        queue.put(EOF_MARKER);
+        joinConsumerThread();
+        Throwable failure = this.failure;
+        if (failure != null) {
+            throw new RuntimeException(failure);
+        }
+    }
+
+    /**
+     * Stop the thread if {@link #consumeEOF()} has not been called, e.g. because the producing
+     * stage failed. Statements that have not been consumed yet are dropped and the end of the
+     * input is not passed on to the next consumer. Does nothing after {@link #consumeEOF()}
+     */
+    @Override
+    public void close() {
+        if (endOfInputQueued) {
+            return;
+        }
+        endOfInputQueued = true;
+        aborted = true;
+        queue.put(EOF_MARKER);
+        joinConsumerThread();
+    }
+
+    private void joinConsumerThread() {
+        try {
+            consumerThread.join();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void run() {
+        try {
+            consumeQueue();
+        } finally {
+            // The thread terminates before the run is over, so its allocations would otherwise be
+            // missing from measurements taken afterwards
+            AllocationTracker.recordTerminatingThread();
+        }
+    }
+
+    private void consumeQueue() {
+        while (true) {
+            Object element = queue.take();
+            if (element == EOF_MARKER) {
+                if (failure == null && !aborted) {
+                    try {
+                        nextConsumer.consumeEOF();
+                    } catch (Throwable t) {
+                        failure = t;
+                    }
+                }
+                return;
+            }
+            // Keep draining the queue after a failure so that the producer doesn't wait forever
+            if (failure == null && !aborted) {
+                try {
+                    nextConsumer.consumeStmt((Stmt)element);
+                } catch (Throwable t) {
+                    failure = t;
+                }
+            }
+        }
+    }
+}
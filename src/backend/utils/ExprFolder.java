@@ -0,0 +1,71 @@
+package backend.utils;
+
+import backend.AST.BinaryOperatorExpr;
+import backend.AST.Expr;
+import backend.AST.ParenExpr;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Computes a value for chains of binary operators and parenthesized expressions bottom-up.
+ *
+ * <p>
+ * Generated source code may contain expressions like <code>1 + 1 + ... + 1</code> or
+ * <code>((...(1)...))</code> that are nested tens of thousands of levels deep. Visiting them
+ * recursively would overflow the thread's stack, so {@link #fold(Expr, ExprFolder)} keeps the
+ * expressions whose operands are being folded on an explicit stack once they are nested deeply.
+ * All other expressions are passed to {@link #foldOperand(Expr)} and may be visited recursively.
+ * </p>
+ *
+ * @param <T> The type of the values computed for expressions
+ */
+public interface ExprFolder<T> {
+
+    /**
+     * @param expr An expression that is neither a binary operator nor a parenthesized expression
+     * @return The value of the expression
+     */
+    T foldOperand(@NotNull Expr expr);
+
+    /**
+     * @return The value of the binary operator given the values of its operands
+     */
+    T foldBinaryOperator(@NotNull BinaryOperatorExpr binOpExpr, T lhs, T rhs);
+
+    /**
+     * @return The value of the parenthesized expression given the value of its sub-expression
+     */
+    T foldParen(@NotNull ParenExpr parenExpr, T subExpr);
+
+    /**
+     * Called before the operands of a binary operator or the sub-expression of a parenthesized
+     * expression are folded
+     * @param expr The binary operator or parenthesized expression
+     * @return The value of the expression if it is already known, in which case its operands are
+     *         not folded, or <code>null</code>
+     */
+    @Nullable
+    default T enter(@NotNull Expr expr) {
+        return null;
+    }
+
+    /**
+     * @param lhs The value of the left-hand side of a binary operator
+     * @return Whether the right-hand side still needs to be folded. If not, <code>lhs</code> is the
+     *         value of the binary operator
+     */
+    default boolean needsRhs(T lhs) {
+        return true;
+    }
+
+    /**
+     * Compute the value of an expression without recursing deeply into chains of binary operators
+     * and parenthesized expressions
+     * @param expr The expression to fold
+     * @param folder Computes the values of the single expressions
+     * @return The value of <code>expr</code>
+     */
+    static <T> T fold(@NotNull Expr expr, @NotNull ExprFolder<T> folder) {
+        return ExprFolding.fold(expr, folder, 0);
+    }
+}
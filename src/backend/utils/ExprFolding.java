@@ -0,0 +1,121 @@
+package backend.utils;
+
+import backend.AST.BinaryOperatorExpr;
+import backend.AST.Expr;
+import backend.AST.ParenExpr;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Implements {@link ExprFolder#fold(Expr, ExprFolder)}
+ */
+final class ExprFolding {
+
+    /**
+     * Chains nested at most this deep are folded recursively, which is faster than maintaining an
+     * explicit stack for the common case of hand-written expressions
+     */
+    private static final int MAX_RECURSION_DEPTH = 64;
+
+    private ExprFolding() {}
+
+    /**
+     * @param depth The number of chain expressions that are currently being folded recursively
+     */
+    static <T> T fold(@NotNull Expr expr, @NotNull ExprFolder<T> folder, int depth) {
+        if (expr instanceof BinaryOperatorExpr) {
+            if (depth == MAX_RECURSION_DEPTH) {
+                return foldIteratively(expr, folder);
+            }
+            BinaryOperatorExpr binOpExpr = (BinaryOperatorExpr)expr;
+            T value = folder.enter(binOpExpr);
+            if (value != null) {
+                return value;
+            }
+            T lhs = fold(binOpExpr.getLhs(), folder, depth + 1);
+            if (!folder.needsRhs(lhs)) {
+                return lhs;
+            }
+            return folder.foldBinaryOperator(binOpExpr, lhs,
+                    fold(binOpExpr.getRhs(), folder, depth + 1));
+        } else if (expr instanceof ParenExpr) {
+            if (depth == MAX_RECURSION_DEPTH) {
+                return foldIteratively(expr, folder);
+            }
+            ParenExpr parenExpr = (ParenExpr)expr;
+            T value = folder.enter(parenExpr);
+            if (value != null) {
+                return value;
+            }
+            return folder.foldParen(parenExpr, fold(parenExpr.getSubExpr(), folder, depth + 1));
+        } else {
+            return folder.foldOperand(expr);
+        }
+    }
+
+    /**
+     * Fold a chain of binary operators and parenthesized expressions with an explicit stack
+     */
+    private static <T> T foldIteratively(@NotNull Expr expr, @NotNull ExprFolder<T> folder) {
+        // The expressions whose operands are being folded and the values of their left-hand sides
+        // or lhsPending while the left-hand side is being folded
+        Object lhsPending = new Object();
+        List<Expr> exprs = new ArrayList<>();
+        List<Object> lhsValues = new ArrayList<>();
+        Expr current = expr;
+        while (true) {
+            // Descend along the left-hand sides until an expression's value is known
+            T value;
+            while (true) {
+                if (isChain(current)) {
+                    value = folder.enter(current);
+                    if (value != null) {
+                        break;
+                    }
+                    exprs.add(current);
+                    lhsValues.add(lhsPending);
+                    if (current instanceof BinaryOperatorExpr) {
+                        current = ((BinaryOperatorExpr)current).getLhs();
+                    } else {
+                        current = ((ParenExpr)current).getSubExpr();
+                    }
+                } else {
+                    value = folder.foldOperand(current);
+                    break;
+                }
+            }
+
+            // Ascend until an expression's right-hand side still needs to be folded
+            while (true) {
+                if (exprs.isEmpty()) {
+                    return value;
+                }
+                int top = exprs.size() - 1;
+                Expr parent = exprs.get(top);
+                if (parent instanceof BinaryOperatorExpr && lhsValues.get(top) == lhsPending &&
+                        folder.needsRhs(value)) {
+                    lhsValues.set(top, value);
+                    current = ((BinaryOperatorExpr)parent).getRhs();
+                    break;
+                }
+                exprs.remove(top);
+                Object lhs = lhsValues.remove(top);
+                if (parent instanceof ParenExpr) {
+                    value = folder.foldParen((ParenExpr)parent, value);
+                } else if (lhs != lhsPending) {
+                    @SuppressWarnings("unchecked")
+                    T lhsValue = (T)lhs;
+                    value = folder.foldBinaryOperator((BinaryOperatorExpr)parent, lhsValue, value);
+                }
+                // Otherwise the right-hand side is not needed and the left-hand side's value is
+                // the value of the binary operator
+            }
+        }
+    }
+
+    private static boolean isChain(@NotNull Expr expr) {
+        return expr instanceof BinaryOperatorExpr || expr instanceof ParenExpr;
+    }
+}
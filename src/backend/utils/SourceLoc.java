@@ -2,6 +2,15 @@ package backend.utils;
 
 import org.jetbrains.annotations.NotNull;
 
+/**
+ * A line and column in the source code, both starting at 1.
+ *
+ * <p>
+ * Tokens, AST nodes and diagnostics store their positions as a single <code>long</code> created
+ * by {@link #pack(int, int)} and only create a <code>SourceLoc</code> when the position is
+ * presented to the user. Packed positions compare in the same order as source locations
+ * </p>
+ */
 public final class SourceLoc implements Comparable<SourceLoc> {
 
     private final int line;
@@ -12,6 +21,45 @@ public final class SourceLoc implements Comparable<SourceLoc> {
         this.column = column;
     }
 
+    /**
+     * @return The line in the upper and the column in the lower 32 bits of a <code>long</code>
+     */
+    public static long pack(int line, int column) {
+        return ((long)line << 32) | (column & 0xFFFFFFFFL);
+    }
+
+    /**
+     * @param position A position created by {@link #pack(int, int)}
+     * @return The position's line
+     */
+    public static int getLine(long position) {
+        return (int)(position >>> 32);
+    }
+
+    /**
+     * @param position A position created by {@link #pack(int, int)}
+     * @return The position's column
+     */
+    public static int getColumn(long position) {
+        return (int)position;
+    }
+
+    /**
+     * @param position A position created by {@link #pack(int, int)}
+     * @return The position as a source location
+     */
+    @NotNull
+    public static SourceLoc unpack(long position) {
+        return new SourceLoc(getLine(position), getColumn(position));
+    }
+
+    /**
+     * @return This source location packed into a <code>long</code>
+     */
+    public long pack() {
+        return pack(line, column);
+    }
+
     public int getLine() {
         return line;
     }
@@ -34,7 +82,10 @@ public final class SourceLoc implements Comparable<SourceLoc> {
 
     @Override
     public int hashCode() {
-        return line * 10000 + column;
+        // Spread the bits of the packed position so that neither long lines nor many lines cause
+        // collisions
+        long hash = pack() * 0x9E3779B97F4A7C15L;
+        return (int)(hash ^ (hash >>> 32));
     }
 
     @Override
@@ -0,0 +1,523 @@
+package benchDriver;
+
+import frontend.CommandLineDriver;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import utils.AllocationTracker;
+import utils.ThreadManager;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Measures how long the interpreter takes to evaluate the workloads in a benchmark directory,
+ * similar to how {@link testDriver.TestDriver} runs the test files.
+ *
+ * Every file with the extension <code>ml</code> in the benchmark directory is a workload. Lines
+ * of the form <code># BENCH: name = value value ...</code> declare values for the variable
+ * <code>name</code>, which the workload must assign using <code>var name = ...</code>. The
+ * workload is run for every combination of the declared values, every engine, i.e. set of
+ * options passed to {@link CommandLineDriver}, and every number of worker threads. Each number
+ * of worker threads gets its own pool, see {@link ThreadManager#newPool(int)}, so the shared pool
+ * used by other evaluations in this JVM is never replaced.
+ *
+ * Each run is first verified using <code>-verify</code>, then executed for a number of warmup
+ * iterations and finally measured for a number of iterations in this JVM. The driver reports
+ * throughput, latency percentiles and the bytes allocated per iteration, optionally writes them
+ * to a JSON file and compares them to the results of an earlier invocation, exiting with a
+ * non-zero status if a median latency regressed by more than a threshold.
+ */
+public class BenchDriver {
+
+    /** The keyword of lines declaring parameter values */
+    private static final String BENCH_KEYWORD = "BENCH:";
+    /** The engine running the driver without additional options */
+    private static final String DEFAULT_ENGINE = "default";
+
+    /**
+     * A workload with one combination of parameter values
+     */
+    private static final class Workload {
+        /** The name of the workload's file relative to the benchmark directory */
+        @NotNull final String name;
+        @NotNull final Map<String, String> parameters;
+        /** The source code with the parameter values substituted */
+        @NotNull final String source;
+
+        Workload(@NotNull String name, @NotNull Map<String, String> parameters,
+                 @NotNull String source) {
+            this.name = name;
+            this.parameters = parameters;
+            this.source = source;
+        }
+
+        @NotNull
+        String getDescription() {
+            return getDescription(name, parameters);
+        }
+
+        @NotNull
+        static String getDescription(@NotNull String name, @NotNull Map<?, ?> parameters) {
+            if (parameters.isEmpty()) {
+                return name;
+            }
+            StringBuilder sb = new StringBuilder(name).append('(');
+            boolean first = true;
+            for (Map.Entry<?, ?> parameter : parameters.entrySet()) {
+                if (!first) {
+                    sb.append(", ");
+                }
+                sb.append(parameter.getKey()).append('=').append(parameter.getValue());
+                first = false;
+            }
+            return sb.append(')').toString();
+        }
+    }
+
+    /**
+     * The measurements of one workload with one engine and number of threads
+     */
+    private static final class Result {
+        @NotNull final String key;
+        @NotNull final Map<String, Object> json = new LinkedHashMap<>();
+        final double medianMillis;
+
+        Result(@NotNull Workload workload, @NotNull String engine, int threads,
+               @NotNull long[] latencies, long allocatedBytes) {
+            this.key = getKey(workload.getDescription(), engine, threads);
+            long[] sorted = latencies.clone();
+            Arrays.sort(sorted);
+            long total = 0;
+            for (long latency : sorted) {
+                total += latency;
+            }
+            medianMillis = toMillis(percentile(sorted, 50));
+
+            json.put("benchmark", workload.name);
+            json.put("parameters", new LinkedHashMap<String, Object>(workload.parameters));
+            json.put("engine", engine);
+            json.put("threads", threads);
+            json.put("iterations", sorted.length);
+            json.put("throughput", sorted.length / (total / 1e9));
+            json.put("meanMillis", toMillis(total / (double)sorted.length));
+            json.put("minMillis", toMillis(sorted[0]));
+            json.put("p50Millis", medianMillis);
+            json.put("p90Millis", toMillis(percentile(sorted, 90)));
+            json.put("p99Millis", toMillis(percentile(sorted, 99)));
+            json.put("maxMillis", toMillis(sorted[sorted.length - 1]));
+            json.put("allocatedBytesPerRun",
+                    allocatedBytes < 0 ? null : allocatedBytes / sorted.length);
+        }
+
+        @NotNull
+        static String getKey(@NotNull String workload, @NotNull String engine, int threads) {
+            return workload + " [" + engine + ", " + threads + " threads]";
+        }
+
+        private static double toMillis(double nanos) {
+            return nanos / 1e6;
+        }
+
+        /** The nearest-rank percentile of the sorted latencies */
+        private static long percentile(@NotNull long[] sorted, int percentile) {
+            int rank = (int)Math.ceil(percentile / 100.0 * sorted.length);
+            return sorted[Math.max(rank, 1) - 1];
+        }
+    }
+
+    private static int warmupIterations = 3;
+    private static int iterations = 10;
+    @NotNull private static List<String> engines = new ArrayList<>();
+    @NotNull private static List<Integer> threadCounts = new ArrayList<>();
+    private static double threshold = 0.1;
+
+    public static void main(String[] args) throws IOException {
+        File benchDirectory = new File(System.getProperty("user.dir"), "bench");
+        File outputFile = null;
+        File baselineFile = null;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "-warmup":
+                        warmupIterations = Integer.parseInt(getOptionValue(args, ++i));
+                        break;
+                    case "-iterations":
+                        iterations = Integer.parseInt(getOptionValue(args, ++i));
+                        break;
+                    case "-engine":
+                        engines.add(getOptionValue(args, ++i).trim());
+                        break;
+                    case "-threads":
+                        for (String count : getOptionValue(args, ++i).split(",")) {
+                            threadCounts.add(Integer.parseInt(count.trim()));
+                        }
+                        break;
+                    case "-output":
+                        outputFile = new File(getOptionValue(args, ++i));
+                        break;
+                    case "-baseline":
+                        baselineFile = new File(getOptionValue(args, ++i));
+                        break;
+                    case "-threshold":
+                        threshold = Double.parseDouble(getOptionValue(args, ++i)) / 100;
+                        break;
+                    default:
+                        if (args[i].startsWith("-") || i != args.length - 1) {
+                            throw new IllegalArgumentException(args[i]);
+                        }
+                        benchDirectory = new File(args[i]);
+                }
+            }
+            if (warmupIterations < 0 || iterations < 1 || threshold < 0) {
+                throw new IllegalArgumentException();
+            }
+            for (int threads : threadCounts) {
+                if (threads < 1) {
+                    throw new IllegalArgumentException();
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            printUsage();
+            System.exit(1);
+        }
+        if (engines.isEmpty()) {
+            engines.add("");
+            engines.add("-pipeline");
+            engines.add("-flatAST");
+        }
+        if (threadCounts.isEmpty()) {
+            threadCounts.add(ThreadManager.getNumberOfThreads());
+        }
+        if (!benchDirectory.isDirectory()) {
+            System.err.println("Benchmark directory not found: " + benchDirectory);
+            System.exit(1);
+        }
+
+        List<Result> results = new ArrayList<>();
+        boolean failed = false;
+        for (File file : getBenchFiles(benchDirectory)) {
+            String name = benchDirectory.toURI().relativize(file.toURI()).getPath();
+            for (Workload workload : getWorkloads(name, file)) {
+                File sourceFile = File.createTempFile("bench", ".ml");
+                try {
+                    Files.write(sourceFile.toPath(),
+                            workload.source.getBytes(StandardCharsets.UTF_8));
+                    for (String engine : engines) {
+                        for (int threads : threadCounts) {
+                            Result result;
+                            ForkJoinPool pool = ThreadManager.newPool(threads);
+                            try {
+                                result = measure(workload, engine, pool, sourceFile);
+                            } finally {
+                                pool.shutdown();
+                            }
+                            if (result == null) {
+                                failed = true;
+                                continue;
+                            }
+                            printResult(result);
+                            results.add(result);
+                        }
+                    }
+                } finally {
+                    sourceFile.delete();
+                }
+            }
+        }
+
+        if (outputFile != null) {
+            Map<String, Object> document = new LinkedHashMap<>();
+            document.put("warmupIterations", warmupIterations);
+            document.put("iterations", iterations);
+            List<Object> resultsJson = new ArrayList<>();
+            for (Result result : results) {
+                resultsJson.add(result.json);
+            }
+            document.put("results", resultsJson);
+            Files.write(outputFile.toPath(),
+                    (Json.write(document) + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+
+        if (baselineFile != null && !compareToBaseline(results, baselineFile)) {
+            failed = true;
+        }
+
+        System.exit(failed ? 1 : 0);
+    }
+
+    @NotNull
+    private static String getOptionValue(@NotNull String[] args, int index) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException();
+        }
+        return args[index];
+    }
+
+    /**
+     * Verify and measure a workload
+     * @param workload The workload to measure
+     * @param engine The options to pass to the driver
+     * @param pool The worker pool the workload is run on. Running the driver on one of its worker
+     *             threads keeps all tasks of the evaluation on it, so other evaluations in this
+     *             JVM keep using the shared pool with its own number of threads
+     * @param sourceFile The file containing the workload's source code
+     * @return The measurements or <code>null</code> if the workload failed
+     */
+    @Nullable
+    private static Result measure(@NotNull Workload workload, @NotNull String engine,
+                                  @NotNull ForkJoinPool pool, @NotNull File sourceFile)
+            throws IOException {
+        int threads = pool.getParallelism();
+        List<String> arguments = new ArrayList<>();
+        arguments.add("-evaluate");
+        if (!engine.isEmpty()) {
+            arguments.addAll(Arrays.asList(engine.split("\\s+")));
+        }
+        arguments.add(sourceFile.getAbsolutePath());
+        String[] runArguments = arguments.toArray(new String[0]);
+        arguments.add(arguments.size() - 1, "-verify");
+        String[] verifyArguments = arguments.toArray(new String[0]);
+        String engineName = engine.isEmpty() ? DEFAULT_ENGINE : engine;
+
+        // Make sure the workload doesn't only measure how fast errors are reported
+        ByteArrayOutputStream errorBytes = new ByteArrayOutputStream();
+        PrintStream err = new PrintStream(errorBytes);
+        if (runDriver(pool, verifyArguments, new PrintStream(new NullOutputStream()), err) != 0) {
+            System.err.println("========================================");
+            System.err.println("Error in benchmark: " +
+                    Result.getKey(workload.getDescription(), engineName, threads));
+            System.err.println("");
+            System.err.print(errorBytes.toString());
+            return null;
+        }
+
+        for (int i = 0; i < warmupIterations; i++) {
+            run(pool, runArguments);
+        }
+
+        // Counts the allocations of all threads in this JVM, including the pipeline stage threads
+        // that terminate at the end of each run, see AllocationTracker
+        long[] latencies = new long[iterations];
+        long allocatedBytes = 0;
+        for (int i = 0; i < iterations; i++) {
+            long allocatedBefore = AllocationTracker.getAllocatedBytes();
+            long start = System.nanoTime();
+            run(pool, runArguments);
+            latencies[i] = System.nanoTime() - start;
+            long allocatedAfter = AllocationTracker.getAllocatedBytes();
+            if (allocatedBefore < 0 || allocatedAfter < 0 || allocatedBytes < 0) {
+                allocatedBytes = -1;
+            } else {
+                allocatedBytes += allocatedAfter - allocatedBefore;
+            }
+        }
+        return new Result(workload, engineName, threads, latencies, allocatedBytes);
+    }
+
+    private static void run(@NotNull ForkJoinPool pool, @NotNull String[] arguments)
+            throws IOException {
+        PrintStream discard = new PrintStream(new NullOutputStream());
+        if (runDriver(pool, arguments, discard, discard) != 0) {
+            throw new RuntimeException("Benchmark failed after it has been verified");
+        }
+    }
+
+    /**
+     * Run {@link CommandLineDriver} on a worker thread of the given pool and wait for it to finish
+     * @return The exit code of the driver
+     */
+    private static int runDriver(@NotNull ForkJoinPool pool, @NotNull String[] arguments,
+                                 @NotNull PrintStream out, @NotNull PrintStream err)
+            throws IOException {
+        try {
+            return pool.submit(() -> CommandLineDriver.run(arguments, out, err)).get();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException)cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error)cause;
+            }
+            throw new RuntimeException(cause);
+        }
+    }
+
+    private static void printResult(@NotNull Result result) {
+        Object allocated = result.json.get("allocatedBytesPerRun");
+        System.out.println(String.format(Locale.ROOT,
+                "%s: %.2f runs/s, p50 %.2f ms, p90 %.2f ms, p99 %.2f ms, %s allocated per run",
+                result.key, (Double)result.json.get("throughput"), result.medianMillis,
+                (Double)result.json.get("p90Millis"), (Double)result.json.get("p99Millis"),
+                allocated == null ? "unknown bytes" : allocated + " bytes"));
+    }
+
+    /**
+     * Compare the median latencies of the results to those of a baseline written using
+     * <code>-output</code>
+     * @param results The results of this invocation
+     * @param baselineFile The JSON file containing the baseline
+     * @return <code>false</code> if a median latency regressed by more than the threshold
+     */
+    private static boolean compareToBaseline(@NotNull List<Result> results,
+                                             @NotNull File baselineFile) throws IOException {
+        Map<String, Double> baseline = new HashMap<>();
+        try {
+            String text = new String(Files.readAllBytes(baselineFile.toPath()),
+                    StandardCharsets.UTF_8);
+            Map<?, ?> document = (Map<?, ?>)Json.parse(text);
+            for (Object element : (List<?>)document.get("results")) {
+                Map<?, ?> result = (Map<?, ?>)element;
+                String workload = Workload.getDescription((String)result.get("benchmark"),
+                        (Map<?, ?>)result.get("parameters"));
+                String key = Result.getKey(workload, (String)result.get("engine"),
+                        ((Double)result.get("threads")).intValue());
+                baseline.put(key, (Double)result.get("p50Millis"));
+            }
+        } catch (IllegalArgumentException | ClassCastException | NullPointerException e) {
+            System.err.println("Malformed baseline " + baselineFile + ": " + e.getMessage());
+            return false;
+        }
+
+        boolean regressed = false;
+        System.out.println();
+        System.out.println(String.format(Locale.ROOT,
+                "Comparison of median latencies to %s (threshold %.1f%%):", baselineFile,
+                threshold * 100));
+        for (Result result : results) {
+            Double baselineMillis = baseline.get(result.key);
+            if (baselineMillis == null) {
+                System.out.println(result.key + ": not in baseline");
+                continue;
+            }
+            double change = result.medianMillis / baselineMillis - 1;
+            boolean isRegression = change > threshold;
+            regressed |= isRegression;
+            System.out.println(String.format(Locale.ROOT, "%s: %.2f ms -> %.2f ms (%+.1f%%)%s",
+                    result.key, baselineMillis, result.medianMillis, change * 100,
+                    isRegression ? " REGRESSION" : ""));
+        }
+        return !regressed;
+    }
+
+    /**
+     * @param name The name of the workload's file
+     * @param file The workload's file
+     * @return The workload for every combination of the values of the parameters declared in
+     *         the file
+     */
+    @NotNull
+    private static List<Workload> getWorkloads(@NotNull String name, @NotNull File file)
+            throws IOException {
+        String source = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        Map<String, List<String>> parameters = new LinkedHashMap<>();
+        Pattern directivePattern = Pattern.compile(
+                Pattern.quote(BENCH_KEYWORD) + "\\s*(\\w+)\\s*=(.*)$", Pattern.MULTILINE);
+        Matcher matcher = directivePattern.matcher(source);
+        while (matcher.find()) {
+            List<String> values = new ArrayList<>();
+            for (String value : matcher.group(2).trim().split("[\\s,]+")) {
+                if (!value.isEmpty()) {
+                    values.add(value);
+                }
+            }
+            parameters.put(matcher.group(1), values);
+        }
+
+        List<Workload> workloads = new ArrayList<>();
+        workloads.add(new Workload(name, new LinkedHashMap<>(), source));
+        for (Map.Entry<String, List<String>> parameter : parameters.entrySet()) {
+            // Assignments of the parameter up to a trailing comment
+            Pattern assignmentPattern = Pattern.compile(
+                    "^(\\s*var\\s+" + Pattern.quote(parameter.getKey()) + "\\s*=)[^#\\r\\n]*",
+                    Pattern.MULTILINE);
+            if (!assignmentPattern.matcher(source).find()) {
+                throw new RuntimeException(name + " declares values for " + parameter.getKey() +
+                        " but doesn't assign it");
+            }
+            List<Workload> substituted = new ArrayList<>();
+            for (Workload workload : workloads) {
+                for (String value : parameter.getValue()) {
+                    Map<String, String> values = new LinkedHashMap<>(workload.parameters);
+                    values.put(parameter.getKey(), value);
+                    String workloadSource = assignmentPattern.matcher(workload.source)
+                            .replaceAll("$1 " + Matcher.quoteReplacement(value) + " ");
+                    substituted.add(new Workload(name, values, workloadSource));
+                }
+            }
+            workloads = substituted;
+        }
+        return workloads;
+    }
+
+    /**
+     * @param directory The benchmark directory
+     * @return All workload files in the given directory and its subdirectories in a stable order
+     */
+    @NotNull
+    private static List<File> getBenchFiles(@NotNull File directory) {
+        List<File> files = new ArrayList<>();
+        File[] subFiles = directory.listFiles();
+        assert subFiles != null;
+        Arrays.sort(subFiles);
+        for (File file : subFiles) {
+            if (file.isDirectory()) {
+                files.addAll(getBenchFiles(file));
+            } else if (file.getName().endsWith(".ml")) {
+                files.add(file);
+            }
+        }
+        return files;
+    }
+
+    private static void printUsage() {
+        System.out.println("Usage: java " + BenchDriver.class.getSimpleName() +
+                " [options] [benchDirectory]");
+        System.out.println("Measure the workloads in benchDirectory, which defaults to bench in");
+        System.out.println("the working directory");
+        System.out.println();
+        System.out.println("options can be:");
+        System.out.println("-warmup n   The number of unmeasured iterations, defaults to 3");
+        System.out.println("-iterations n");
+        System.out.println("            The number of measured iterations, defaults to 10");
+        System.out.println("-engine options");
+        System.out.println("            Run the workloads with the given options of -evaluate.");
+        System.out.println("            May be passed multiple times, defaults to no options,");
+        System.out.println("            -pipeline and -flatAST");
+        System.out.println("-threads n,n,...");
+        System.out.println("            The numbers of worker threads to run the workloads with,");
+        System.out.println("            defaults to the number of processors");
+        System.out.println("-output file");
+        System.out.println("            Write the results to the given JSON file");
+        System.out.println("-baseline file");
+        System.out.println("            Compare the results to a JSON file written by -output");
+        System.out.println("            and fail if a median latency regressed");
+        System.out.println("-threshold percent");
+        System.out.println("            The regression of the median latency that fails the");
+        System.out.println("            comparison to the baseline, defaults to 10");
+    }
+
+    /**
+     * Discards the driver's output
+     */
+    private static final class NullOutputStream extends OutputStream {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(@NotNull byte[] b, int off, int len) {
+        }
+    }
+}
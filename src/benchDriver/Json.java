@@ -0,0 +1,268 @@
+package benchDriver;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Just enough JSON to write benchmark results and read them back as a baseline. Objects are
+ * represented as {@link Map}s, arrays as {@link List}s, numbers as {@link Double}s and
+ * <code>null</code> as <code>null</code>.
+ */
+final class Json {
+
+    @NotNull private final String text;
+    private int position;
+
+    private Json(@NotNull String text) {
+        this.text = text;
+    }
+
+    /**
+     * @param value The value to serialize
+     * @return The value formatted as JSON with one object member per line
+     */
+    @NotNull
+    static String write(@Nullable Object value) {
+        StringBuilder sb = new StringBuilder();
+        write(value, sb, "");
+        return sb.toString();
+    }
+
+    private static void write(@Nullable Object value, @NotNull StringBuilder sb,
+                              @NotNull String indentation) {
+        if (value == null) {
+            sb.append("null");
+        } else if (value instanceof String) {
+            writeString((String)value, sb);
+        } else if (value instanceof Double || value instanceof Float) {
+            double d = ((Number)value).doubleValue();
+            if (Double.isNaN(d) || Double.isInfinite(d)) {
+                sb.append("null");
+            } else {
+                sb.append(d);
+            }
+        } else if (value instanceof Number || value instanceof Boolean) {
+            sb.append(value);
+        } else if (value instanceof Map) {
+            String innerIndentation = indentation + "  ";
+            sb.append("{");
+            boolean first = true;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>)value).entrySet()) {
+                sb.append(first ? "\n" : ",\n").append(innerIndentation);
+                writeString(entry.getKey().toString(), sb);
+                sb.append(": ");
+                write(entry.getValue(), sb, innerIndentation);
+                first = false;
+            }
+            sb.append(first ? "}" : "\n" + indentation + "}");
+        } else if (value instanceof List) {
+            String innerIndentation = indentation + "  ";
+            sb.append("[");
+            boolean first = true;
+            for (Object element : (List<?>)value) {
+                sb.append(first ? "\n" : ",\n").append(innerIndentation);
+                write(element, sb, innerIndentation);
+                first = false;
+            }
+            sb.append(first ? "]" : "\n" + indentation + "]");
+        } else {
+            throw new IllegalArgumentException("Cannot write " + value.getClass() + " as JSON");
+        }
+    }
+
+    private static void writeString(@NotNull String string, @NotNull StringBuilder sb) {
+        sb.append('"');
+        for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int)c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        sb.append('"');
+    }
+
+    /**
+     * @param text The JSON document to parse
+     * @return The value the document represents
+     * @throws IllegalArgumentException If the document is malformed
+     */
+    @Nullable
+    static Object parse(@NotNull String text) {
+        Json parser = new Json(text);
+        Object value = parser.parseValue();
+        parser.skipWhitespace();
+        if (parser.position != text.length()) {
+            throw parser.error("Unexpected trailing characters");
+        }
+        return value;
+    }
+
+    @Nullable
+    private Object parseValue() {
+        skipWhitespace();
+        if (position >= text.length()) {
+            throw error("Unexpected end of document");
+        }
+        char c = text.charAt(position);
+        switch (c) {
+            case '{': {
+                position++;
+                Map<String, Object> object = new LinkedHashMap<>();
+                skipWhitespace();
+                if (consume('}')) {
+                    return object;
+                }
+                do {
+                    skipWhitespace();
+                    String key = parseString();
+                    skipWhitespace();
+                    expect(':');
+                    object.put(key, parseValue());
+                    skipWhitespace();
+                } while (consume(','));
+                expect('}');
+                return object;
+            }
+            case '[': {
+                position++;
+                List<Object> array = new ArrayList<>();
+                skipWhitespace();
+                if (consume(']')) {
+                    return array;
+                }
+                do {
+                    array.add(parseValue());
+                    skipWhitespace();
+                } while (consume(','));
+                expect(']');
+                return array;
+            }
+            case '"':
+                return parseString();
+            default:
+                if (text.startsWith("null", position)) {
+                    position += 4;
+                    return null;
+                } else if (text.startsWith("true", position)) {
+                    position += 4;
+                    return true;
+                } else if (text.startsWith("false", position)) {
+                    position += 5;
+                    return false;
+                }
+                int start = position;
+                while (position < text.length() &&
+                        "+-0123456789.eE".indexOf(text.charAt(position)) >= 0) {
+                    position++;
+                }
+                try {
+                    return Double.parseDouble(text.substring(start, position));
+                } catch (NumberFormatException e) {
+                    throw error("Expected a value");
+                }
+        }
+    }
+
+    @NotNull
+    private String parseString() {
+        expect('"');
+        StringBuilder sb = new StringBuilder();
+        while (true) {
+            if (position >= text.length()) {
+                throw error("Unterminated string");
+            }
+            char c = text.charAt(position++);
+            if (c == '"') {
+                return sb.toString();
+            } else if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+            if (position >= text.length()) {
+                throw error("Unterminated string");
+            }
+            char escaped = text.charAt(position++);
+            switch (escaped) {
+                case 'n':
+                    sb.append('\n');
+                    break;
+                case 'r':
+                    sb.append('\r');
+                    break;
+                case 't':
+                    sb.append('\t');
+                    break;
+                case 'b':
+                    sb.append('\b');
+                    break;
+                case 'f':
+                    sb.append('\f');
+                    break;
+                case 'u':
+                    if (position + 4 > text.length()) {
+                        throw error("Malformed unicode escape");
+                    }
+                    try {
+                        sb.append((char)Integer.parseInt(text.substring(position, position + 4),
+                                16));
+                    } catch (NumberFormatException e) {
+                        throw error("Malformed unicode escape");
+                    }
+                    position += 4;
+                    break;
+                default:
+                    sb.append(escaped);
+            }
+        }
+    }
+
+    private void skipWhitespace() {
+        while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+            position++;
+        }
+    }
+
+    private boolean consume(char c) {
+        if (position < text.length() && text.charAt(position) == c) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(char c) {
+        if (!consume(c)) {
+            throw error("Expected '" + c + "'");
+        }
+    }
+
+    @NotNull
+    private IllegalArgumentException error(@NotNull String message) {
+        return new IllegalArgumentException(message + " at offset " + position);
+    }
+}
@@ -1,18 +1,30 @@
 package frontend;
 
+import backend.AST.flat.FlatAST;
+import backend.AST.flat.FlatASTBuilder;
+import backend.AST.flat.FlatASTCache;
 import backend.errorHandling.Diagnostics;
 import backend.errorHandling.ErrorsVerifier;
+import backend.interpreter.FlatInterpreter;
 import backend.interpreter.Interpreter;
+import backend.interpreter.InterpreterOptions;
 import backend.interpreter.Value;
+import backend.liveness.LivenessAnalyzer;
 import backend.parser.Lexer;
 import backend.parser.Parser;
 import backend.parser.Token;
 import backend.typeChecker.TypeChecker;
+import backend.utils.ASTConsumer;
 import backend.utils.ASTPrinter;
+import backend.utils.AsyncASTConsumer;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
@@ -23,36 +35,184 @@ import java.util.regex.Pattern;
 public class CommandLineDriver {
 
     public static void main(String[] args) throws IOException {
-        if (args.length != 2 && args.length != 3) {
-            printUsage();
-            System.exit(1);
+        System.exit(run(args, System.out, System.err));
+    }
+
+    /**
+     * Run the driver with the given command line arguments in this JVM, resolving relative paths
+     * against the current working directory
+     * @param args The command line arguments as they would be passed to {@link #main(String[])}
+     * @param out The stream to print the output to
+     * @param err The stream to print verification failures to
+     * @return The exit status of the driver
+     * @throws IOException If reading the input file or writing the output failed
+     */
+    public static int run(@NotNull String[] args, @NotNull PrintStream out,
+                          @NotNull PrintStream err) throws IOException {
+        return run(args, new File(System.getProperty("user.dir")), out, err);
+    }
+
+    /**
+     * Run the driver with the given command line arguments in this JVM. Multiple runs may execute
+     * concurrently
+     * @param args The command line arguments as they would be passed to {@link #main(String[])}
+     * @param workingDirectory The directory relative paths in <code>args</code> are resolved
+     *                         against
+     * @param out The stream to print the output to
+     * @param err The stream to print verification failures to
+     * @return The exit status of the driver
+     * @throws IOException If reading the input file or writing the output failed
+     */
+    public static int run(@NotNull String[] args, @NotNull File workingDirectory,
+                          @NotNull PrintStream out, @NotNull PrintStream err) throws IOException {
+        try {
+            return runImpl(args, workingDirectory, out, err);
+        } finally {
+            out.flush();
+            err.flush();
+        }
+    }
+
+    private static int runImpl(@NotNull String[] args, @NotNull File workingDirectory,
+                               @NotNull PrintStream out, @NotNull PrintStream err)
+            throws IOException {
+        if (args.length < 2) {
+            printUsage(out);
+            return 1;
         }
 
         String mode = args[0];
-        boolean verify;
-        String filename;
-        if (args[1].equals("-verify")) {
-            verify = true;
-            filename = args[2];
-        } else {
-            verify = false;
-            filename = args[1];
+        String filename = args[args.length - 1];
+        boolean verify = false;
+        boolean pipelined = false;
+        boolean flatAST = false;
+        boolean hashConsing = false;
+        long parallelParsingThreshold = 0;
+        boolean cache = false;
+        File cacheDirectory = null;
+        InterpreterOptions interpreterOptions = new InterpreterOptions();
+        for (int i = 1; i < args.length - 1; i++) {
+            switch (args[i]) {
+                case "-verify":
+                    verify = true;
+                    break;
+                case "-offHeap":
+                    interpreterOptions.setOffHeapSequences(true);
+                    break;
+                case "-pipeline":
+                    pipelined = true;
+                    break;
+                case "-flatAST":
+                    flatAST = true;
+                    break;
+                case "-hashCons":
+                    hashConsing = true;
+                    break;
+                case "-parallelParse":
+                    i++;
+                    if (i >= args.length - 1) {
+                        printUsage(out);
+                        return 1;
+                    }
+                    parallelParsingThreshold = parseSize(args[i]);
+                    if (parallelParsingThreshold < 0) {
+                        printUsage(out);
+                        return 1;
+                    }
+                    break;
+                case "-cache":
+                    cache = true;
+                    break;
+                case "-cacheDirectory":
+                    i++;
+                    if (i >= args.length - 1) {
+                        printUsage(out);
+                        return 1;
+                    }
+                    cache = true;
+                    cacheDirectory = resolve(workingDirectory, args[i]);
+                    break;
+                case "-lazy":
+                    interpreterOptions.setLazyEvaluation(true);
+                    break;
+                case "-parallelStatements":
+                    interpreterOptions.setParallelStatements(true);
+                    break;
+                case "-resultCache":
+                    i++;
+                    if (i >= args.length - 1) {
+                        printUsage(out);
+                        return 1;
+                    }
+                    interpreterOptions.setResultCacheDirectory(
+                            resolve(workingDirectory, args[i]));
+                    break;
+                case "-resultCacheSize":
+                    i++;
+                    if (i >= args.length - 1) {
+                        printUsage(out);
+                        return 1;
+                    }
+                    try {
+                        interpreterOptions.setResultCacheSize(parseSize(args[i]));
+                    } catch (IllegalArgumentException e) {
+                        printUsage(out);
+                        return 1;
+                    }
+                    break;
+                case "-memoryBudget":
+                    i++;
+                    if (i >= args.length - 1) {
+                        printUsage(out);
+                        return 1;
+                    }
+                    long memoryBudget = parseSize(args[i]);
+                    if (memoryBudget < 0) {
+                        printUsage(out);
+                        return 1;
+                    }
+                    interpreterOptions.setMemoryBudget(memoryBudget);
+                    break;
+                case "-spillDirectory":
+                    i++;
+                    if (i >= args.length - 1) {
+                        printUsage(out);
+                        return 1;
+                    }
+                    interpreterOptions.setSpillDirectory(resolve(workingDirectory, args[i]));
+                    break;
+                case "-chunkSize":
+                    i++;
+                    if (i >= args.length - 1) {
+                        printUsage(out);
+                        return 1;
+                    }
+                    try {
+                        interpreterOptions.setChunkSize(Integer.parseInt(args[i]));
+                    } catch (IllegalArgumentException e) {
+                        printUsage(out);
+                        return 1;
+                    }
+                    break;
+                default:
+                    printUsage(out);
+                    return 1;
+            }
         }
 
-        File inputFile = new File(filename);
-        FileReader reader;
+        File inputFile = resolve(workingDirectory, filename);
+        ByteBuffer sourceBytes;
         try {
-            reader = new FileReader(inputFile);
+            sourceBytes = mapSource(inputFile);
         } catch (FileNotFoundException e) {
-            printUsage();
-            System.exit(1);
-            return;
+            printUsage(out);
+            return 1;
         }
 
         Diagnostics diagnostics = new Diagnostics();
 
         ErrorsVerifier verifier = null;
-        OutputStream outputStream = System.out;
+        OutputStream outputStream = out;
         ByteArrayOutputStream byteOutputStream = null;
         if (verify) {
             verifier = new ErrorsVerifier();
@@ -62,33 +222,116 @@ public class CommandLineDriver {
 
         switch (mode) {
             case "-lex": {
-                lex(reader, diagnostics, verifier, outputStream);
+                lex(decodeSource(sourceBytes), diagnostics, verifier, outputStream);
                 break;
             }
             case "-parse": {
-                parse(reader, diagnostics, verifier, outputStream);
+                parse(decodeSource(sourceBytes), diagnostics, verifier, outputStream,
+                        parallelParsingThreshold);
                 break;
             }
             case "-typeCheck": {
-                typeCheck(reader, diagnostics, verifier, outputStream);
+                typeCheck(decodeSource(sourceBytes), diagnostics, verifier, outputStream,
+                        parallelParsingThreshold);
                 break;
             }
             case "-evaluate": {
-                evaluate(reader, diagnostics, verifier, outputStream);
+                if (cache) {
+                    File cacheFile = cacheDirectory != null ?
+                            new File(cacheDirectory, inputFile.getName() + ".astcache") :
+                            new File(inputFile.getPath() + ".astcache");
+                    evaluateCached(sourceBytes, new FlatASTCache(cacheFile, sourceBytes,
+                            hashConsing), diagnostics, verifier, outputStream, interpreterOptions,
+                            hashConsing, parallelParsingThreshold);
+                } else if (flatAST) {
+                    evaluateFlatAST(decodeSource(sourceBytes), diagnostics, verifier, outputStream,
+                            interpreterOptions, hashConsing, parallelParsingThreshold);
+                } else {
+                    evaluate(decodeSource(sourceBytes), diagnostics, verifier, outputStream,
+                            interpreterOptions, pipelined, hashConsing, parallelParsingThreshold);
+                }
                 break;
             }
             default:
-                printUsage();
-                System.exit(1);
+                printUsage(out);
+                return 1;
+        }
+
+        return verifyOutput(inputFile, byteOutputStream, diagnostics, verifier, out, err);
+    }
+
+    /**
+     * @param workingDirectory The directory relative paths are resolved against
+     * @param path A path given on the command line
+     * @return The file at <code>path</code>
+     */
+    @NotNull
+    private static File resolve(@NotNull File workingDirectory, @NotNull String path) {
+        File file = new File(path);
+        return file.isAbsolute() ? file : new File(workingDirectory, path);
+    }
+
+    /**
+     * Read the source code of a file by mapping it into memory
+     * @param file The file to read
+     * @return The file's bytes
+     * @throws FileNotFoundException If the file does not exist
+     */
+    @NotNull
+    private static ByteBuffer mapSource(@NotNull File file) throws IOException {
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+             FileChannel channel = randomAccessFile.getChannel()) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
         }
+    }
+
+    /**
+     * Decode the source code using the platform's default charset
+     * @param sourceBytes The bytes of the source file
+     * @return The source file's characters
+     */
+    @NotNull
+    private static CharBuffer decodeSource(@NotNull ByteBuffer sourceBytes) {
+        return Charset.defaultCharset().decode(sourceBytes.duplicate());
+    }
 
-        verifyOutput(inputFile, byteOutputStream, diagnostics, verifier);
+    /**
+     * Parse a size in bytes that may be suffixed by <code>k</code>, <code>m</code> or
+     * <code>g</code> to specify kibibytes, mebibytes or gibibytes respectively
+     * @param size The size to parse
+     * @return The number of bytes specified by <code>size</code> or -1 if it is malformed
+     */
+    private static long parseSize(@NotNull String size) {
+        if (size.isEmpty()) {
+            return -1;
+        }
+        long unit = 1;
+        switch (Character.toLowerCase(size.charAt(size.length() - 1))) {
+            case 'k':
+                unit = 1L << 10;
+                break;
+            case 'm':
+                unit = 1L << 20;
+                break;
+            case 'g':
+                unit = 1L << 30;
+                break;
+        }
+        if (unit != 1) {
+            size = size.substring(0, size.length() - 1);
+        }
+        try {
+            long value = Long.parseLong(size);
+            return value >= 0 ? Math.multiplyExact(value, unit) : -1;
+        } catch (NumberFormatException | ArithmeticException e) {
+            return -1;
+        }
     }
 
-    private static void lex(@NotNull FileReader reader, @NotNull Diagnostics diagnostics,
+    private static void lex(@NotNull CharBuffer source, @NotNull Diagnostics diagnostics,
                             @Nullable ErrorsVerifier verifier,
                             @NotNull OutputStream outputStream) throws IOException {
-        Lexer lexer = new Lexer(reader, diagnostics);
+        Lexer lexer = new Lexer(source, diagnostics);
         Token token = lexer.nextToken();
         while (token.getKind() !=  Token.Kind.EOF) {
             if (token.getKind() != Token.Kind.COMMENT) {
@@ -102,45 +345,150 @@ public class CommandLineDriver {
         }
     }
 
-    private static void parse(@NotNull FileReader reader, @NotNull Diagnostics diagnostics,
+    private static void parse(@NotNull CharBuffer source, @NotNull Diagnostics diagnostics,
                               @Nullable ErrorsVerifier verifier,
-                              @NotNull OutputStream outputStream) {
+                              @NotNull OutputStream outputStream, long parallelParsingThreshold) {
         ASTPrinter printer = new ASTPrinter(outputStream);
-        Parser parser = new Parser(reader, printer, diagnostics, verifier);
+        Parser parser = new Parser(source, printer, diagnostics, verifier);
+        parser.setParallelParsingThreshold(parallelParsingThreshold);
         parser.parse();
     }
 
-    private static void typeCheck(@NotNull FileReader reader, @NotNull Diagnostics diagnostics,
+    private static void typeCheck(@NotNull CharBuffer source, @NotNull Diagnostics diagnostics,
                                   @Nullable ErrorsVerifier verifier,
-                                  @NotNull OutputStream outputStream) {
+                                  @NotNull OutputStream outputStream,
+                                  long parallelParsingThreshold) {
         ASTPrinter printer = new ASTPrinter(outputStream);
         TypeChecker typeChecker = new TypeChecker(printer, diagnostics);
-        Parser parser = new Parser(reader, typeChecker, diagnostics, verifier);
+        Parser parser = new Parser(source, typeChecker, diagnostics, verifier);
+        parser.setParallelParsingThreshold(parallelParsingThreshold);
         parser.parse();
     }
 
-    private static void evaluate(@NotNull FileReader reader, @NotNull Diagnostics diagnostics,
+    private static void evaluate(@NotNull CharBuffer source, @NotNull Diagnostics diagnostics,
                                  @Nullable ErrorsVerifier verifier,
-                                 @NotNull OutputStream outputStream) throws IOException {
-        Interpreter interpreter = new Interpreter(diagnostics);
-        TypeChecker typeChecker = new TypeChecker(interpreter, diagnostics);
-        Parser parser = new Parser(reader, typeChecker, diagnostics, verifier);
+                                 @NotNull OutputStream outputStream,
+                                 @NotNull InterpreterOptions interpreterOptions,
+                                 boolean pipelined, boolean hashConsing,
+                                 long parallelParsingThreshold)
+            throws IOException {
+        try (Interpreter interpreter = new Interpreter(diagnostics, interpreterOptions)) {
+            if (pipelined) {
+                // Discarding dead variables requires the entire program before the first
+                // statement can be evaluated, which would defeat overlapping the stages. The
+                // stages are closed in reverse order so that the type checker stage no longer
+                // passes statements on when the interpreter stage is closed
+                try (AsyncASTConsumer interpreterStage =
+                             new AsyncASTConsumer(interpreter, "Interpreter");
+                     AsyncASTConsumer typeCheckerStage = new AsyncASTConsumer(
+                             new TypeChecker(interpreterStage, diagnostics), "TypeChecker")) {
+                    parse(source, typeCheckerStage, diagnostics, verifier, hashConsing,
+                            parallelParsingThreshold);
+                }
+            } else {
+                parse(source, new TypeChecker(new LivenessAnalyzer(interpreter), diagnostics),
+                        diagnostics, verifier, hashConsing, parallelParsingThreshold);
+            }
+
+            for (Value value : interpreter.getOutput().values()) {
+                outputStream.write(value.toString().getBytes());
+                outputStream.write(System.lineSeparator().getBytes());
+            }
+        }
+    }
+
+    private static void parse(@NotNull CharBuffer source, @NotNull ASTConsumer consumer,
+                              @NotNull Diagnostics diagnostics, @Nullable ErrorsVerifier verifier,
+                              boolean hashConsing, long parallelParsingThreshold) {
+        Parser parser = new Parser(source, consumer, diagnostics, verifier);
+        parser.setHashConsing(hashConsing);
+        parser.setParallelParsingThreshold(parallelParsingThreshold);
         parser.parse();
+    }
+
+    private static void evaluateFlatAST(@NotNull CharBuffer source,
+                                        @NotNull Diagnostics diagnostics,
+                                        @Nullable ErrorsVerifier verifier,
+                                        @NotNull OutputStream outputStream,
+                                        @NotNull InterpreterOptions interpreterOptions,
+                                        boolean hashConsing, long parallelParsingThreshold)
+            throws IOException {
+        FlatAST ast = buildFlatAST(source, diagnostics, verifier, hashConsing,
+                parallelParsingThreshold);
+        evaluateFlatAST(ast, diagnostics, outputStream, interpreterOptions);
+    }
 
-        for (Value value : interpreter.getOutput().values()) {
-            outputStream.write(value.toString().getBytes());
-            outputStream.write(System.lineSeparator().getBytes());
+    /**
+     * Evaluate the flat AST cached for the source code. If there is no cached AST, compile the
+     * source code to a flat AST and store it in the cache unless it contains errors
+     */
+    private static void evaluateCached(@NotNull ByteBuffer sourceBytes,
+                                       @NotNull FlatASTCache cache,
+                                       @NotNull Diagnostics diagnostics,
+                                       @Nullable ErrorsVerifier verifier,
+                                       @NotNull OutputStream outputStream,
+                                       @NotNull InterpreterOptions interpreterOptions,
+                                       boolean hashConsing, long parallelParsingThreshold)
+            throws IOException {
+        FlatAST ast = cache.load();
+        if (ast == null) {
+            ast = buildFlatAST(decodeSource(sourceBytes), diagnostics, verifier, hashConsing,
+                    parallelParsingThreshold);
+            // Errors found while compiling would not be reported when loading the cached AST
+            if (diagnostics.getErrors().isEmpty()) {
+                cache.store(ast);
+            }
+        } else if (verifier != null) {
+            // Expected errors are specified in comments, which are not part of the cached AST
+            Lexer lexer = new Lexer(decodeSource(sourceBytes), diagnostics);
+            Token token = lexer.nextToken();
+            while (token.getKind() != Token.Kind.EOF) {
+                verifier.addPotentialExpectedError(token);
+                token = lexer.nextToken();
+            }
         }
+        evaluateFlatAST(ast, diagnostics, outputStream, interpreterOptions);
     }
 
-    private static void verifyOutput(@NotNull File verifyFile,
-                                     @Nullable ByteArrayOutputStream outputStream,
-                                     @NotNull Diagnostics diagnostics,
-                                     @Nullable ErrorsVerifier verifier) throws IOException {
-        Queue<String> checkPatterns = getVerificationStrings(verifyFile);
+    @NotNull
+    private static FlatAST buildFlatAST(@NotNull CharBuffer source,
+                                        @NotNull Diagnostics diagnostics,
+                                        @Nullable ErrorsVerifier verifier,
+                                        boolean hashConsing, long parallelParsingThreshold) {
+        FlatASTBuilder builder = new FlatASTBuilder();
+        Parser parser = new Parser(source, new TypeChecker(builder, diagnostics), diagnostics,
+                verifier);
+        parser.setHashConsing(hashConsing);
+        parser.setParallelParsingThreshold(parallelParsingThreshold);
+        parser.parse();
+        return builder.getAST();
+    }
 
+    private static void evaluateFlatAST(@NotNull FlatAST ast, @NotNull Diagnostics diagnostics,
+                                        @NotNull OutputStream outputStream,
+                                        @NotNull InterpreterOptions interpreterOptions)
+            throws IOException {
+        try (FlatInterpreter interpreter = new FlatInterpreter(ast, diagnostics,
+                interpreterOptions)) {
+            interpreter.evaluate();
+            for (Value value : interpreter.getOutput().values()) {
+                outputStream.write(value.toString().getBytes());
+                outputStream.write(System.lineSeparator().getBytes());
+            }
+        }
+    }
+
+    /**
+     * @return The exit status of the driver
+     */
+    private static int verifyOutput(@NotNull File verifyFile,
+                                    @Nullable ByteArrayOutputStream outputStream,
+                                    @NotNull Diagnostics diagnostics,
+                                    @Nullable ErrorsVerifier verifier, @NotNull PrintStream out,
+                                    @NotNull PrintStream err) throws IOException {
         if (verifier != null) {
             assert outputStream != null;
+            Queue<String> checkPatterns = getVerificationStrings(verifyFile);
             ByteArrayInputStream byteStream = new ByteArrayInputStream(outputStream.toByteArray());
             BufferedReader reader = new BufferedReader(new InputStreamReader(byteStream));
             String line;
@@ -148,70 +496,119 @@ public class CommandLineDriver {
                 if (!checkPatterns.isEmpty() && line.contains(checkPatterns.peek())) {
                     checkPatterns.remove();
                 }
-                System.out.println(line);
+                out.println(line);
             }
             if (!checkPatterns.isEmpty()) {
-                System.err.println("Pattern not found:");
-                System.err.println(checkPatterns.peek());
-                System.exit(1);
+                err.println("Pattern not found:");
+                err.println(checkPatterns.peek());
+                return 1;
             }
-            System.exit(verifyErrors(verifier, diagnostics) ? 0 : 1);
+            return verifyErrors(verifier, diagnostics, err) ? 0 : 1;
         } else {
-            printErrors(diagnostics);
+            printErrors(diagnostics, out);
+            return 0;
         }
     }
 
-    private static Queue<String> getVerificationStrings(@NotNull File verifyFile) throws IOException{
-        BufferedReader reader = new BufferedReader(new FileReader(verifyFile));
-        String line;
+    private static Queue<String> getVerificationStrings(@NotNull File verifyFile)
+            throws IOException {
         Queue<String> checkPatterns = new LinkedList<>();
-        while ((line = reader.readLine()) != null) {
-            Pattern pattern = Pattern.compile("CHECK:(.*)$");
-            Matcher matcher = pattern.matcher(line);
-            if (matcher.find()) {
-                String checkPattern = matcher.group(1).trim();
-                checkPatterns.add(checkPattern);
+        // Close the file right away, the driver may run many times in the same JVM
+        try (BufferedReader reader = new BufferedReader(new FileReader(verifyFile))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Pattern pattern = Pattern.compile("CHECK:(.*)$");
+                Matcher matcher = pattern.matcher(line);
+                if (matcher.find()) {
+                    String checkPattern = matcher.group(1).trim();
+                    checkPatterns.add(checkPattern);
+                }
             }
         }
         return checkPatterns;
     }
 
     private static boolean verifyErrors(@NotNull ErrorsVerifier verifier,
-                                        @NotNull Diagnostics diagnostics) {
+                                        @NotNull Diagnostics diagnostics,
+                                        @NotNull PrintStream err) {
         boolean failure = false;
         for (Diagnostics.Error error : diagnostics.getErrors()) {
             if (!verifier.matchError(error)) {
-                System.err.println("Unexpected error seen: " + error.getStartLocation() +
+                err.println("Unexpected error seen: " + error.getStartLocation() +
                         ": " + error.getMessage());
                 failure = true;
             }
         }
         for (Diagnostics.Error error : verifier.getUnseenErrors()) {
             failure = true;
-            System.err.println("Expected error not seen: " + error.getStartLocation() +
+            err.println("Expected error not seen: " + error.getStartLocation() +
                     ": " + error.getMessage());
         }
         return !failure;
     }
 
-    private static void printErrors(@NotNull Diagnostics diagnostics) {
+    private static void printErrors(@NotNull Diagnostics diagnostics, @NotNull PrintStream out) {
         for (Diagnostics.Error error : diagnostics.getErrors()) {
-            System.out.println(error.getStartLocation() + " - " + error.getEndLocation() + ": " +
+            out.println(error.getStartLocation() + " - " + error.getEndLocation() + ": " +
                     error.getMessage());
         }
     }
 
-    private static void printUsage() {
-        System.out.println("Usage: java " + CommandLineDriver.class.getSimpleName() +
-                " pass [-verify] inputFile");
-        System.out.println("pass can be:");
-        System.out.println("-lex        Print the input file's tokens");
-        System.out.println("-parser     Parse the source code and print its AST");
-        System.out.println("-typeCheck  Parse the source code, resolve variables, do basic type");
-        System.out.println("            checking and print the AST");
-        System.out.println("-evaluate   Evaluate the source code and print its output");
-        System.out.println();
-        System.out.println("If -verify is specified errors are verified with their descriptions" +
+    private static void printUsage(@NotNull PrintStream out) {
+        out.println("Usage: java " + CommandLineDriver.class.getSimpleName() +
+                " pass [options] [-verify] inputFile");
+        out.println("pass can be:");
+        out.println("-lex        Print the input file's tokens");
+        out.println("-parser     Parse the source code and print its AST");
+        out.println("-typeCheck  Parse the source code, resolve variables, do basic type");
+        out.println("            checking and print the AST");
+        out.println("-evaluate   Evaluate the source code and print its output");
+        out.println();
+        out.println();
+        out.println("options for -parse, -typeCheck and -evaluate can be:");
+        out.println("-parallelParse size");
+        out.println("            Parse source files with at least the given number of");
+        out.println("            characters (suffixed by k, m or g) in parallel");
+        out.println();
+        out.println("options for -evaluate can be:");
+        out.println("-offHeap    Store sequences of numbers outside of the Java heap");
+        out.println("-pipeline   Parse, type check and evaluate on separate threads. Values");
+        out.println("            of variables are kept until the program ends");
+        out.println("-flatAST    Store the AST in flat arrays and evaluate it. Statements and");
+        out.println("            map are evaluated sequentially, reduce in parallel chunks");
+        out.println("            of -chunkSize elements like without -flatAST. -pipeline,");
+        out.println("            -lazy, -parallelStatements and -resultCache are ignored");
+        out.println("-hashCons   Share identical subexpressions without variables and");
+        out.println("            evaluate them once. Errors in them are reported at their");
+        out.println("            first occurrence");
+        out.println("-cache      Store the flat AST next to the input file and load it");
+        out.println("            instead of compiling the input file again if it hasn't");
+        out.println("            changed. Implies -flatAST");
+        out.println("-cacheDirectory directory");
+        out.println("            Store the cached flat AST in the given directory, implies");
+        out.println("            -cache");
+        out.println("-lazy       Only evaluate variables once an out statement needs them");
+        out.println("-parallelStatements");
+        out.println("            Execute statements that don't depend on each other");
+        out.println("            concurrently");
+        out.println("-resultCache directory");
+        out.println("            Store the values of assignments and out statements in the");
+        out.println("            given directory and reuse them in later runs for statements");
+        out.println("            whose dependencies haven't changed");
+        out.println("-resultCacheSize size");
+        out.println("            The maximum number of bytes (suffixed by k, m or g) of");
+        out.println("            cached results, less than 2g. Defaults to 256m");
+        out.println("-memoryBudget size");
+        out.println("            Spill sequences of numbers that exceed the given number of");
+        out.println("            bytes (suffixed by k, m or g) to memory-mapped files");
+        out.println("-spillDirectory directory");
+        out.println("            The directory for spilled sequences, defaults to the");
+        out.println("            system's temporary directory");
+        out.println("-chunkSize n");
+        out.println("            The number of elements map and reduce process as one unit");
+        out.println("            of work, defaults to 4096");
+        out.println();
+        out.println("If -verify is specified errors are verified with their descriptions" +
                 "in the comments");
     }
 }
@@ -0,0 +1,186 @@
+package frontend;
+
+import backend.AST.Stmt;
+import backend.AST.Type.NumberType;
+import backend.AST.Variable;
+import backend.errorHandling.Diagnostics;
+import backend.interpreter.Interpreter;
+import backend.interpreter.Value;
+import backend.liveness.LivenessAnalyzer;
+import backend.parser.Parser;
+import backend.typeChecker.TypeChecker;
+import backend.utils.SourceLoc;
+import org.jetbrains.annotations.NotNull;
+import utils.ThreadManager;
+
+import java.nio.CharBuffer;
+import java.util.*;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * A program that has been parsed and type checked once and can be evaluated any number of times,
+ * also concurrently.
+ *
+ * <p>
+ * A program may declare input variables of type number. They are referenced like variables
+ * assigned at the beginning of the program and bound to a value for every run, e.g.
+ * </p>
+ * <pre>
+ * CompiledProgram program = CompiledProgram.compile("out x ^ 2 + 1", "x");
+ * program.run(Collections.singletonMap("x", 3));
+ * </pre>
+ *
+ * <p>
+ * Compiled programs are immutable and thread-safe. Statements with errors found while compiling
+ * are left out of every run and their errors are reported along with the errors of the run.
+ * </p>
+ */
+public final class CompiledProgram {
+
+    /** The statements after liveness analysis in source order */
+    @NotNull private final List<Stmt> stmts;
+    /** The input variables by their name in the order they have been declared */
+    @NotNull private final Map<String, Variable> inputVariables;
+    /** The errors found while parsing and type checking */
+    @NotNull private final List<Diagnostics.Error> compileErrors;
+
+    private CompiledProgram(@NotNull List<Stmt> stmts,
+                            @NotNull Map<String, Variable> inputVariables,
+                            @NotNull List<Diagnostics.Error> compileErrors) {
+        this.stmts = stmts;
+        this.inputVariables = inputVariables;
+        this.compileErrors = compileErrors;
+    }
+
+    /**
+     * Parse and type check a program
+     * @param sourceCode The program's source code
+     * @param inputVariables The names of the program's input variables
+     * @return The compiled program, which might contain errors
+     */
+    @NotNull
+    public static CompiledProgram compile(@NotNull String sourceCode,
+                                          @NotNull String... inputVariables) {
+        return compile(sourceCode, Arrays.asList(inputVariables));
+    }
+
+    /**
+     * Parse and type check a program
+     * @param sourceCode The program's source code
+     * @param inputVariables The names of the program's input variables
+     * @return The compiled program, which might contain errors
+     */
+    @NotNull
+    public static CompiledProgram compile(@NotNull String sourceCode,
+                                          @NotNull Collection<String> inputVariables) {
+        Diagnostics diagnostics = new Diagnostics();
+        List<Stmt> stmts = new ArrayList<>();
+        TypeChecker typeChecker = new TypeChecker(new LivenessAnalyzer(stmts::add), diagnostics);
+
+        Map<String, Variable> variables = new LinkedHashMap<>();
+        for (String name : inputVariables) {
+            if (variables.containsKey(name)) {
+                throw new IllegalArgumentException("Input variable " + name +
+                        " declared twice");
+            }
+            Variable variable = new Variable(name);
+            variable.setType(NumberType.get());
+            typeChecker.declareInputVariable(variable);
+            variables.put(name, variable);
+        }
+
+        Parser parser = new Parser(CharBuffer.wrap(sourceCode), typeChecker, diagnostics, null);
+        parser.parse();
+
+        return new CompiledProgram(Collections.unmodifiableList(stmts),
+                Collections.unmodifiableMap(variables),
+                Collections.unmodifiableList(new ArrayList<>(diagnostics.getErrors())));
+    }
+
+    /**
+     * @return The names of the program's input variables in the order they have been declared
+     */
+    @NotNull
+    public Set<String> getInputVariables() {
+        return inputVariables.keySet();
+    }
+
+    /**
+     * @return The errors found while parsing and type checking the program
+     */
+    @NotNull
+    public List<Diagnostics.Error> getCompileErrors() {
+        return compileErrors;
+    }
+
+    /**
+     * Evaluate the program
+     * @param bindings The values of all input variables by their name. Integral numbers are bound
+     *                 as integers, all other numbers as floats
+     * @return The errors and the output of the program
+     * @throws IllegalArgumentException If an input variable is not bound or a binding does not
+     *                                  belong to an input variable
+     */
+    @NotNull
+    public JavaDriver.EvaluationResult run(@NotNull Map<String, ? extends Number> bindings) {
+        for (String name : bindings.keySet()) {
+            if (!inputVariables.containsKey(name)) {
+                throw new IllegalArgumentException(name + " is not an input variable");
+            }
+        }
+
+        Diagnostics diagnostics = new Diagnostics();
+        // The interpreter's default options keep all sequences on the Java heap, so the output
+        // values remain valid after it has been closed
+        try (Interpreter interpreter = new Interpreter(diagnostics)) {
+            for (Variable variable : inputVariables.values()) {
+                Number value = bindings.get(variable.getName());
+                if (value == null) {
+                    throw new IllegalArgumentException("No value bound to input variable " +
+                            variable.getName());
+                }
+                if (value instanceof Long || value instanceof Integer || value instanceof Short ||
+                        value instanceof Byte) {
+                    interpreter.bindInputVariable(variable, value.longValue());
+                } else {
+                    interpreter.bindInputVariable(variable, value.doubleValue());
+                }
+            }
+
+            for (Stmt stmt : stmts) {
+                interpreter.consumeStmt(stmt);
+            }
+            interpreter.consumeEOF();
+
+            Map<SourceLoc, Value> output = new LinkedHashMap<>();
+            for (Map.Entry<Stmt, Value> entry : interpreter.getOutput().entrySet()) {
+                output.put(entry.getKey().getStartLocation(), entry.getValue());
+            }
+            List<Diagnostics.Error> errors = new ArrayList<>(compileErrors);
+            errors.addAll(diagnostics.getErrors());
+            return new JavaDriver.EvaluationResult(errors, output);
+        }
+    }
+
+    /**
+     * Evaluate the program for many bindings in parallel on the shared worker pool
+     * @param bindings The bindings of the input variables for each run, see {@link #run(Map)}
+     * @return The results of the runs in the order of <code>bindings</code>
+     * @throws IllegalArgumentException If any of the bindings is invalid
+     */
+    @NotNull
+    public List<JavaDriver.EvaluationResult> sweep(
+            @NotNull List<? extends Map<String, ? extends Number>> bindings) {
+        JavaDriver.EvaluationResult[] results = new JavaDriver.EvaluationResult[bindings.size()];
+        List<ForkJoinTask<?>> runs = new ArrayList<>();
+        for (int i = 0; i < bindings.size(); i++) {
+            final int index = i;
+            Map<String, ? extends Number> runBindings = bindings.get(i);
+            runs.add(ThreadManager.submit(() -> results[index] = run(runBindings)));
+        }
+        for (ForkJoinTask<?> run : runs) {
+            run.join();
+        }
+        return Arrays.asList(results);
+    }
+}
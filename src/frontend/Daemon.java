@@ -0,0 +1,210 @@
+package frontend;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps a JVM running that executes {@link CommandLineDriver} on behalf of {@link DaemonClient}s,
+ * so that runs don't pay for starting the JVM, loading classes and warming up the JIT. Runs share
+ * the worker pool of the daemon and may execute concurrently.
+ *
+ * <p>
+ * Only clients that can read the daemon's state file, see {@link DaemonProtocol}, may connect.
+ * </p>
+ */
+public final class Daemon {
+
+    @NotNull private final ServerSocket serverSocket;
+    @NotNull private final String token;
+    @NotNull private final ExecutorService connectionHandlers =
+            Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "Daemon connection");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    private Daemon(@NotNull ServerSocket serverSocket, @NotNull String token) {
+        this.serverSocket = serverSocket;
+        this.token = token;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        File stateFile = DaemonProtocol.getDefaultStateFile();
+        boolean stop = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-stateFile":
+                    i++;
+                    if (i >= args.length) {
+                        printUsage();
+                        System.exit(1);
+                    }
+                    stateFile = new File(args[i]);
+                    break;
+                case "-stop":
+                    stop = true;
+                    break;
+                default:
+                    printUsage();
+                    System.exit(1);
+            }
+        }
+
+        if (stop) {
+            System.exit(DaemonClient.stop(stateFile) ? 0 : 1);
+        }
+
+        ServerSocket serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        byte[] tokenBytes = new byte[32];
+        new SecureRandom().nextBytes(tokenBytes);
+        StringBuilder token = new StringBuilder();
+        for (byte b : tokenBytes) {
+            token.append(String.format("%02x", b));
+        }
+        Daemon daemon = new Daemon(serverSocket, token.toString());
+        publishState(stateFile,
+                new DaemonProtocol.State(serverSocket.getLocalPort(), daemon.token));
+        final File finalStateFile = stateFile;
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            // Don't delete the state of a daemon that has been started after this one
+            DaemonProtocol.State state = DaemonProtocol.readState(finalStateFile);
+            if (state != null && state.token.equals(daemon.token)) {
+                finalStateFile.delete();
+            }
+        }));
+        System.out.println("Listening on port " + serverSocket.getLocalPort());
+
+        daemon.serve();
+        System.exit(0);
+    }
+
+    /**
+     * Write the state file such that only the current user can read it and clients never see a
+     * partially written file
+     */
+    private static void publishState(@NotNull File stateFile, @NotNull DaemonProtocol.State state)
+            throws IOException {
+        File directory = stateFile.getAbsoluteFile().getParentFile();
+        File tempFile = File.createTempFile(stateFile.getName(), ".tmp", directory);
+        try {
+            try {
+                Files.setPosixFilePermissions(tempFile.toPath(),
+                        PosixFilePermissions.fromString("rw-------"));
+            } catch (UnsupportedOperationException e) {
+                // Not a POSIX file system, rely on the permissions of the directory
+            }
+            try (OutputStream out = new FileOutputStream(tempFile)) {
+                DaemonProtocol.writeState(state, out);
+            }
+            Files.move(tempFile.toPath(), stateFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            tempFile.delete();
+        }
+    }
+
+    /**
+     * Accept connections until a client requests the daemon to stop and wait for the runs that
+     * are still executing
+     */
+    private void serve() throws InterruptedException {
+        while (!serverSocket.isClosed()) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                // The server socket has been closed by a stop request
+                break;
+            }
+            connectionHandlers.execute(() -> {
+                try (Socket closedSocket = socket) {
+                    handle(closedSocket);
+                } catch (IOException e) {
+                    // The client has gone away, there's nobody to report the error to
+                }
+            });
+        }
+        connectionHandlers.shutdown();
+        connectionHandlers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    }
+
+    private void handle(@NotNull Socket socket) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(socket.getOutputStream()));
+        byte[] clientToken = DaemonProtocol.readString(in).getBytes(StandardCharsets.UTF_8);
+        if (!MessageDigest.isEqual(clientToken, token.getBytes(StandardCharsets.UTF_8))) {
+            return;
+        }
+
+        int status;
+        switch (in.readByte()) {
+            case DaemonProtocol.RUN_REQUEST: {
+                File workingDirectory = new File(DaemonProtocol.readString(in));
+                String[] args = new String[in.readInt()];
+                for (int i = 0; i < args.length; i++) {
+                    args[i] = DaemonProtocol.readString(in);
+                }
+                PrintStream stdout = new PrintStream(new BufferedOutputStream(
+                        new DaemonProtocol.FrameOutputStream(out, DaemonProtocol.OUT_FRAME)));
+                PrintStream stderr = new PrintStream(new BufferedOutputStream(
+                        new DaemonProtocol.FrameOutputStream(out, DaemonProtocol.ERR_FRAME)));
+                try {
+                    status = CommandLineDriver.run(args, workingDirectory, stdout, stderr);
+                } catch (Throwable t) {
+                    // Report the failure like an uncaught exception in the driver's JVM would
+                    stderr.print("Exception in thread \"main\" ");
+                    t.printStackTrace(stderr);
+                    stdout.flush();
+                    stderr.flush();
+                    status = 1;
+                }
+                break;
+            }
+            case DaemonProtocol.STOP_REQUEST:
+                writeExitStatus(out, 0);
+                // Stops accepting new connections
+                serverSocket.close();
+                return;
+            default:
+                return;
+        }
+        writeExitStatus(out, status);
+    }
+
+    private static void writeExitStatus(@NotNull DataOutputStream out, int status)
+            throws IOException {
+        synchronized (out) {
+            out.writeByte(DaemonProtocol.EXIT_FRAME);
+            out.writeInt(status);
+            out.flush();
+        }
+    }
+
+    private static void printUsage() {
+        System.out.println("Usage: java " + Daemon.class.getSimpleName() +
+                " [-stateFile file] [-stop]");
+        System.out.println("Run the command line driver for clients started with");
+        System.out.println("java " + DaemonClient.class.getSimpleName() +
+                " pass [options] [-verify] inputFile");
+        System.out.println();
+        System.out.println("-stateFile file");
+        System.out.println("            The file the daemon's port and access token are stored");
+        System.out.println("            in, defaults to a file in the system's temporary");
+        System.out.println("            directory");
+        System.out.println("-stop       Stop the running daemon");
+    }
+}
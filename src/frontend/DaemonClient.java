@@ -0,0 +1,145 @@
+package frontend;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+
+/**
+ * Behaves exactly like {@link CommandLineDriver} but lets a running {@link Daemon} do the work.
+ * If no daemon is running, the driver is run in this JVM instead.
+ */
+public final class DaemonClient {
+
+    /**
+     * An authenticated connection to the daemon
+     */
+    private static final class Connection implements Closeable {
+        @NotNull private final Socket socket;
+        @NotNull final DataInputStream in;
+        @NotNull final DataOutputStream out;
+
+        Connection(@NotNull Socket socket, @NotNull String token) throws IOException {
+            this.socket = socket;
+            this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            DaemonProtocol.writeString(out, token);
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+
+    private DaemonClient() {}
+
+    public static void main(String[] args) throws IOException {
+        File stateFile = DaemonProtocol.getDefaultStateFile();
+        Integer status = runInDaemon(stateFile, args);
+        if (status == null) {
+            status = CommandLineDriver.run(args, System.out, System.err);
+        }
+        System.exit(status);
+    }
+
+    /**
+     * @param stateFile The state file of the daemon
+     * @return A connection to the daemon or <code>null</code> if no daemon is running
+     */
+    @Nullable
+    private static Connection connect(@NotNull File stateFile) {
+        DaemonProtocol.State state = DaemonProtocol.readState(stateFile);
+        if (state == null) {
+            return null;
+        }
+        Socket socket = new Socket();
+        try {
+            socket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), state.port));
+            return new Connection(socket, state.token);
+        } catch (IOException e) {
+            // The daemon has been killed without removing its state file
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Run the driver in the daemon, forwarding its output to this process' standard streams
+     * @param stateFile The state file of the daemon
+     * @param args The command line arguments of the driver
+     * @return The exit status or <code>null</code> if no daemon is running
+     */
+    @Nullable
+    private static Integer runInDaemon(@NotNull File stateFile, @NotNull String[] args)
+            throws IOException {
+        try (Connection connection = connect(stateFile)) {
+            if (connection == null) {
+                return null;
+            }
+            connection.out.writeByte(DaemonProtocol.RUN_REQUEST);
+            // Relative paths are resolved by the daemon against the client's working directory
+            DaemonProtocol.writeString(connection.out, System.getProperty("user.dir"));
+            connection.out.writeInt(args.length);
+            for (String arg : args) {
+                DaemonProtocol.writeString(connection.out, arg);
+            }
+            connection.out.flush();
+            return readResponse(connection.in);
+        }
+    }
+
+    /**
+     * Ask the daemon to stop once the runs it is executing have finished
+     * @param stateFile The state file of the daemon
+     * @return <code>false</code> if no daemon is running
+     */
+    static boolean stop(@NotNull File stateFile) throws IOException {
+        try (Connection connection = connect(stateFile)) {
+            if (connection == null) {
+                return false;
+            }
+            connection.out.writeByte(DaemonProtocol.STOP_REQUEST);
+            connection.out.flush();
+            readResponse(connection.in);
+            return true;
+        }
+    }
+
+    /**
+     * Forward the output frames of a response to the standard streams
+     * @return The exit status sent by the daemon
+     */
+    private static int readResponse(@NotNull DataInputStream in) throws IOException {
+        byte[] buffer = new byte[8192];
+        while (true) {
+            byte kind;
+            try {
+                kind = in.readByte();
+            } catch (EOFException e) {
+                throw new IOException("The daemon closed the connection without a result");
+            }
+            if (kind == DaemonProtocol.EXIT_FRAME) {
+                System.out.flush();
+                System.err.flush();
+                return in.readInt();
+            }
+            PrintStream target = kind == DaemonProtocol.ERR_FRAME ? System.err : System.out;
+            int length = in.readInt();
+            while (length > 0) {
+                int read = in.read(buffer, 0, Math.min(buffer.length, length));
+                if (read < 0) {
+                    throw new EOFException("The daemon closed the connection in a frame");
+                }
+                target.write(buffer, 0, read);
+                length -= read;
+            }
+        }
+    }
+}
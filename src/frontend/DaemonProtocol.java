@@ -0,0 +1,162 @@
+package frontend;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+
+/**
+ * The protocol {@link DaemonClient} uses to let a {@link Daemon} run the
+ * {@link CommandLineDriver}.
+ *
+ * <p>
+ * The daemon listens on a port of the loopback interface. It publishes the port and a random
+ * token in a state file that is only readable by the user who started the daemon. Every request
+ * starts with the token, followed by the request kind. A run request carries the client's working
+ * directory and command line arguments. The daemon answers with frames of standard output and
+ * standard error, terminated by a frame containing the exit status.
+ * </p>
+ */
+final class DaemonProtocol {
+
+    /** Run the driver with the given arguments */
+    static final byte RUN_REQUEST = 1;
+    /** Stop the daemon */
+    static final byte STOP_REQUEST = 2;
+
+    /** A frame containing bytes written to standard output */
+    static final byte OUT_FRAME = 1;
+    /** A frame containing bytes written to standard error */
+    static final byte ERR_FRAME = 2;
+    /** The last frame of a response containing the exit status */
+    static final byte EXIT_FRAME = 3;
+
+    private static final String PORT_PROPERTY = "port";
+    private static final String TOKEN_PROPERTY = "token";
+
+    /** The system property that overrides the location of the state file */
+    private static final String STATE_FILE_PROPERTY = "interpreter.daemonStateFile";
+
+    /**
+     * The address of a running daemon
+     */
+    static final class State {
+        final int port;
+        @NotNull final String token;
+
+        State(int port, @NotNull String token) {
+            this.port = port;
+            this.token = token;
+        }
+    }
+
+    /**
+     * Writes everything written to it to the daemon's connection as frames of the given kind.
+     * Multiple frame streams may write to the same connection concurrently
+     */
+    static final class FrameOutputStream extends OutputStream {
+        @NotNull private final DataOutputStream connection;
+        private final byte kind;
+
+        FrameOutputStream(@NotNull DataOutputStream connection, byte kind) {
+            this.connection = connection;
+            this.kind = kind;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte)b}, 0, 1);
+        }
+
+        @Override
+        public void write(@NotNull byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return;
+            }
+            synchronized (connection) {
+                connection.writeByte(kind);
+                connection.writeInt(len);
+                connection.write(b, off, len);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            synchronized (connection) {
+                connection.flush();
+            }
+        }
+    }
+
+    private DaemonProtocol() {}
+
+    /**
+     * @return The state file of the daemon, which may be overridden using the
+     *         <code>interpreter.daemonStateFile</code> system property
+     */
+    @NotNull
+    static File getDefaultStateFile() {
+        String stateFile = System.getProperty(STATE_FILE_PROPERTY);
+        if (stateFile != null) {
+            return new File(stateFile);
+        }
+        return new File(System.getProperty("java.io.tmpdir"),
+                "interpreter-daemon-" + System.getProperty("user.name") + ".properties");
+    }
+
+    /**
+     * @param stateFile The state file of the daemon
+     * @return The state published by the daemon or <code>null</code> if no daemon is running or the
+     *         state file is malformed
+     */
+    @Nullable
+    static State readState(@NotNull File stateFile) {
+        Properties properties = new Properties();
+        try (InputStream in = new FileInputStream(stateFile)) {
+            properties.load(in);
+        } catch (IOException e) {
+            return null;
+        }
+        String port = properties.getProperty(PORT_PROPERTY);
+        String token = properties.getProperty(TOKEN_PROPERTY);
+        if (port == null || token == null) {
+            return null;
+        }
+        try {
+            return new State(Integer.parseInt(port), token);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @param state The state to publish
+     * @param out The stream to write the state to
+     */
+    static void writeState(@NotNull State state, @NotNull OutputStream out) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty(PORT_PROPERTY, Integer.toString(state.port));
+        properties.setProperty(TOKEN_PROPERTY, state.token);
+        properties.store(out, null);
+    }
+
+    static void writeString(@NotNull DataOutputStream out, @NotNull String string)
+            throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    @NotNull
+    static String readString(@NotNull DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > (1 << 20)) {
+            throw new IOException("Malformed daemon request");
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
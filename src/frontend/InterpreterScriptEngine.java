@@ -0,0 +1,282 @@
+package frontend;
+
+import backend.errorHandling.Diagnostics;
+import backend.interpreter.*;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.script.*;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.*;
+
+/**
+ * Evaluates programs through the <code>javax.script</code> API, see
+ * {@link InterpreterScriptEngineFactory}.
+ *
+ * <p>
+ * Attributes of the script context whose values are numbers become input variables of the
+ * script, see {@link CompiledProgram}. Scripts can neither assign input variables nor modify the
+ * bindings. The output of a script is written to the context's writer, its value is the output of
+ * the last <code>out</code> or <code>print</code> statement converted to a {@link Long},
+ * {@link Double}, {@link String} or an unmodifiable {@link List} of those. Errors are reported as
+ * a {@link ScriptException} for the first error.
+ * </p>
+ *
+ * <p>
+ * Scripts are compiled once per set of input variables and the compiled programs of the most
+ * recently evaluated scripts are cached. A {@link CompiledScript} returned by
+ * {@link #compile(String)} has the input variables bound to numbers in the engine's context at
+ * the time it was compiled. They need to be bound to numbers whenever it is evaluated.
+ * </p>
+ */
+public final class InterpreterScriptEngine extends AbstractScriptEngine implements Compilable {
+
+    /** The maximum number of compiled programs cached by {@link #eval(String, ScriptContext)} */
+    private static final int MAX_CACHED_PROGRAMS = 64;
+
+    /**
+     * A compiled program with the input variables it has been compiled with
+     */
+    private final class InterpreterCompiledScript extends CompiledScript {
+        @NotNull private final CompiledProgram program;
+
+        InterpreterCompiledScript(@NotNull CompiledProgram program) {
+            this.program = program;
+        }
+
+        @Override
+        public Object eval(ScriptContext context) throws ScriptException {
+            return run(program, context);
+        }
+
+        @Override
+        public ScriptEngine getEngine() {
+            return InterpreterScriptEngine.this;
+        }
+    }
+
+    /**
+     * The key of a compiled program in the cache
+     */
+    private static final class ProgramKey {
+        @NotNull final String source;
+        @NotNull final Set<String> inputVariables;
+
+        ProgramKey(@NotNull String source, @NotNull Set<String> inputVariables) {
+            this.source = source;
+            this.inputVariables = inputVariables;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof ProgramKey)) {
+                return false;
+            }
+            ProgramKey other = (ProgramKey)obj;
+            return source.equals(other.source) && inputVariables.equals(other.inputVariables);
+        }
+
+        @Override
+        public int hashCode() {
+            return source.hashCode() * 31 + inputVariables.hashCode();
+        }
+    }
+
+    @NotNull private final InterpreterScriptEngineFactory factory;
+    /** The most recently used compiled programs */
+    @NotNull private final Map<ProgramKey, CompiledProgram> compiledPrograms =
+            new LinkedHashMap<ProgramKey, CompiledProgram>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<ProgramKey, CompiledProgram> e) {
+                    return size() > MAX_CACHED_PROGRAMS;
+                }
+            };
+
+    InterpreterScriptEngine(@NotNull InterpreterScriptEngineFactory factory) {
+        this.factory = factory;
+    }
+
+    @Override
+    public Object eval(String script, ScriptContext context) throws ScriptException {
+        return run(getCompiledProgram(script, getInputVariables(context), context), context);
+    }
+
+    @Override
+    public Object eval(Reader reader, ScriptContext context) throws ScriptException {
+        return eval(readFully(reader), context);
+    }
+
+    @Override
+    public Bindings createBindings() {
+        return new SimpleBindings();
+    }
+
+    @Override
+    public ScriptEngineFactory getFactory() {
+        return factory;
+    }
+
+    @Override
+    public CompiledScript compile(String script) throws ScriptException {
+        return new InterpreterCompiledScript(getCompiledProgram(script,
+                getInputVariables(context), context));
+    }
+
+    @Override
+    public CompiledScript compile(Reader script) throws ScriptException {
+        return compile(readFully(script));
+    }
+
+    /**
+     * @param context The script context
+     * @return The names of all attributes of the context whose values are numbers, sorted to make
+     *         the set independent of the order of the bindings
+     */
+    @NotNull
+    private static Set<String> getInputVariables(@NotNull ScriptContext context) {
+        Set<String> inputVariables = new TreeSet<>();
+        for (int scope : context.getScopes()) {
+            Bindings bindings = context.getBindings(scope);
+            if (bindings == null) {
+                continue;
+            }
+            for (Map.Entry<String, Object> binding : bindings.entrySet()) {
+                // Attributes of a lower scope hide those of higher scopes
+                if (context.getAttribute(binding.getKey()) instanceof Number) {
+                    inputVariables.add(binding.getKey());
+                }
+            }
+        }
+        return inputVariables;
+    }
+
+    /**
+     * Look up a compiled program in the cache or compile it
+     * @throws ScriptException If the program contains errors
+     */
+    @NotNull
+    private CompiledProgram getCompiledProgram(@NotNull String script,
+                                               @NotNull Set<String> inputVariables,
+                                               @NotNull ScriptContext context)
+            throws ScriptException {
+        ProgramKey key = new ProgramKey(script, inputVariables);
+        CompiledProgram program;
+        synchronized (compiledPrograms) {
+            program = compiledPrograms.get(key);
+        }
+        if (program == null) {
+            program = CompiledProgram.compile(script, inputVariables);
+            if (!program.getCompileErrors().isEmpty()) {
+                throw createException(program.getCompileErrors().get(0), context);
+            }
+            synchronized (compiledPrograms) {
+                compiledPrograms.put(key, program);
+            }
+        }
+        return program;
+    }
+
+    /**
+     * Run a compiled program with the input variables bound to the attributes of the context and
+     * write its output to the context's writer
+     * @return The value of the last statement producing output
+     */
+    @Nullable
+    private static Object run(@NotNull CompiledProgram program, @NotNull ScriptContext context)
+            throws ScriptException {
+        Map<String, Number> inputValues = new HashMap<>();
+        for (String name : program.getInputVariables()) {
+            Object value = context.getAttribute(name);
+            if (!(value instanceof Number)) {
+                throw new ScriptException("Input variable " + name + " is not bound to a number");
+            }
+            inputValues.put(name, (Number)value);
+        }
+
+        JavaDriver.EvaluationResult result = program.run(inputValues);
+        if (!result.getErrors().isEmpty()) {
+            throw createException(result.getErrors().get(0), context);
+        }
+
+        Value lastOutput = null;
+        Writer writer = context.getWriter();
+        try {
+            for (Value output : result.getOutput().values()) {
+                if (writer != null) {
+                    writer.write(output.toString());
+                    writer.write(System.lineSeparator());
+                }
+                lastOutput = output;
+            }
+            if (writer != null) {
+                writer.flush();
+            }
+        } catch (IOException e) {
+            throw new ScriptException(e);
+        }
+        return lastOutput == null ? null : toJava(lastOutput);
+    }
+
+    /**
+     * @param value A value produced by the interpreter
+     * @return The value as a {@link Long}, {@link Double}, {@link String} or a {@link List} of
+     *         those that converts the elements of sequences when they are accessed
+     */
+    @NotNull
+    private static Object toJava(@NotNull Value value) {
+        if (value instanceof IntValue) {
+            return ((IntValue)value).getValue();
+        } else if (value instanceof FloatValue) {
+            return ((FloatValue)value).getValue();
+        } else if (value instanceof StringValue) {
+            return ((StringValue)value).getValue();
+        } else if (value instanceof SequenceValue) {
+            SequenceValue sequence = (SequenceValue)value;
+            if (sequence.getLength() > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Sequence too large for a list");
+            }
+            return new AbstractList<Object>() {
+                @Override
+                public Object get(int index) {
+                    if (index < 0 || index >= size()) {
+                        throw new IndexOutOfBoundsException("Index: " + index);
+                    }
+                    return toJava(sequence.get(index));
+                }
+
+                @Override
+                public int size() {
+                    return (int)sequence.getLength();
+                }
+            };
+        } else {
+            throw new IllegalStateException("Unknown value: " + value);
+        }
+    }
+
+    @NotNull
+    private static ScriptException createException(@NotNull Diagnostics.Error error,
+                                                   @NotNull ScriptContext context) {
+        Object fileName = context.getAttribute(ScriptEngine.FILENAME);
+        return new ScriptException(error.getMessage(),
+                fileName == null ? null : fileName.toString(),
+                error.getStartLocation().getLine(), error.getStartLocation().getColumn());
+    }
+
+    @NotNull
+    private static String readFully(@NotNull Reader reader) throws ScriptException {
+        StringBuilder sb = new StringBuilder();
+        char[] buffer = new char[8192];
+        try {
+            int read;
+            while ((read = reader.read(buffer)) >= 0) {
+                sb.append(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            throw new ScriptException(e);
+        }
+        return sb.toString();
+    }
+}
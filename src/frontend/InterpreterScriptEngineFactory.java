@@ -0,0 +1,101 @@
+package frontend;
+
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineFactory;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Makes the language available through <code>javax.script</code>, e.g. using
+ * <code>new ScriptEngineManager().getEngineByName("interpreter")</code>. Registered in
+ * <code>META-INF/services/javax.script.ScriptEngineFactory</code>
+ */
+public final class InterpreterScriptEngineFactory implements ScriptEngineFactory {
+
+    private static final String ENGINE_NAME = "Interpreter";
+    private static final String VERSION = "1.0";
+    private static final String LANGUAGE_NAME = "ml";
+
+    @Override
+    public String getEngineName() {
+        return ENGINE_NAME;
+    }
+
+    @Override
+    public String getEngineVersion() {
+        return VERSION;
+    }
+
+    @Override
+    public List<String> getExtensions() {
+        return Collections.singletonList("ml");
+    }
+
+    @Override
+    public List<String> getMimeTypes() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public List<String> getNames() {
+        return Arrays.asList("interpreter", "ml");
+    }
+
+    @Override
+    public String getLanguageName() {
+        return LANGUAGE_NAME;
+    }
+
+    @Override
+    public String getLanguageVersion() {
+        return VERSION;
+    }
+
+    @Override
+    public Object getParameter(String key) {
+        switch (key) {
+            case ScriptEngine.ENGINE:
+                return getEngineName();
+            case ScriptEngine.ENGINE_VERSION:
+                return getEngineVersion();
+            case ScriptEngine.NAME:
+                return getNames().get(0);
+            case ScriptEngine.LANGUAGE:
+                return getLanguageName();
+            case ScriptEngine.LANGUAGE_VERSION:
+                return getLanguageVersion();
+            case "THREADING":
+                // The engine may be used from multiple threads, but whether scripts see each
+                // other's changes to the bindings is not specified
+                return "MULTITHREADED";
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * The language has neither objects nor methods, so there is no syntax to call a method
+     * @throws UnsupportedOperationException Always
+     */
+    @Override
+    public String getMethodCallSyntax(String obj, String m, String... args) {
+        throw new UnsupportedOperationException("The language has no methods");
+    }
+
+    @Override
+    public String getOutputStatement(String toDisplay) {
+        return "print \"" + toDisplay.replace("\\", "\\\\").replace("\"", "\\\"")
+                .replace("\n", "\\n") + "\"";
+    }
+
+    @Override
+    public String getProgram(String... statements) {
+        return String.join("\n", statements) + "\n";
+    }
+
+    @Override
+    public ScriptEngine getScriptEngine() {
+        return new InterpreterScriptEngine(this);
+    }
+}
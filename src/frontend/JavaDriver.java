@@ -1,13 +1,9 @@
 package frontend;
 
-import backend.AST.Stmt;
 import backend.errorHandling.Diagnostics;
-import backend.interpreter.Interpreter;
 import backend.interpreter.Value;
 import backend.parser.Lexer;
-import backend.parser.Parser;
 import backend.parser.Token;
-import backend.typeChecker.TypeChecker;
 import backend.utils.SourceLoc;
 import org.jetbrains.annotations.NotNull;
 
@@ -21,7 +17,8 @@ public class JavaDriver {
         @NotNull private final List<Diagnostics.Error> errors;
         @NotNull private final Map<SourceLoc, Value> output;
 
-        private EvaluationResult(@NotNull List<Diagnostics.Error> errors, @NotNull Map<SourceLoc, Value> output) {
+        EvaluationResult(@NotNull List<Diagnostics.Error> errors,
+                         @NotNull Map<SourceLoc, Value> output) {
             this.errors = errors;
             this.output = output;
         }
@@ -37,25 +34,13 @@ public class JavaDriver {
         }
     }
 
+    /**
+     * Compile and evaluate a program without input variables. Use {@link CompiledProgram} to
+     * evaluate a program multiple times
+     */
     @NotNull
     public static EvaluationResult evaluate(String sourceCode) {
-        Reader reader = new StringReader(sourceCode);
-
-        Diagnostics diagnostics = new Diagnostics();
-
-        Interpreter interpreter = new Interpreter(diagnostics);
-        TypeChecker typeChecker = new TypeChecker(interpreter, diagnostics);
-        Parser parser = new Parser(reader, typeChecker, diagnostics);
-        parser.parse();
-
-        Map<SourceLoc, Value> output = new HashMap<>();
-        for (Map.Entry<Stmt, Value> entry : interpreter.getOutput().entrySet()) {
-            output.put(entry.getKey().getStartLocation(), entry.getValue());
-        }
-
-        List<Diagnostics.Error> errors = diagnostics.getErrors();
-
-        return new EvaluationResult(errors, output);
+        return CompiledProgram.compile(sourceCode).run(Collections.emptyMap());
     }
 
     @NotNull
@@ -0,0 +1,403 @@
+package programGenerator;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates random programs of a controlled shape that are accepted by the parser and the type
+ * checker and evaluate without errors, to benchmark and stress the interpreter with programs
+ * larger than the hand-written tests.
+ *
+ * <p>
+ * The same seed and shape always produce the same program. The shape is given by the number of
+ * statements, the maximum depth of expressions, how deeply lambdas may be nested, the number of
+ * elements of ranges, the fraction of number literals that are floats and how often each
+ * variable may be referenced by later statements. Ranges inside lambdas have at most
+ * {@link #MAX_INNER_RANGE_SIZE} elements so that the work of a program grows linearly with the
+ * range size no matter how deeply its lambdas are nested.
+ * </p>
+ */
+public final class ProgramGenerator {
+
+    /** The maximum number of elements of ranges inside lambdas */
+    private static final int MAX_INNER_RANGE_SIZE = 10;
+    private static final String[] OPERATORS = {"+", "-", "*", "/", "^"};
+
+    /**
+     * A variable declared by a generated statement
+     */
+    private static final class Variable {
+        @NotNull final String name;
+        final boolean isSequence;
+        /** The number of times the variable may still be referenced */
+        int remainingReferences;
+
+        Variable(@NotNull String name, boolean isSequence, int remainingReferences) {
+            this.name = name;
+            this.isSequence = isSequence;
+            this.remainingReferences = remainingReferences;
+        }
+    }
+
+    private long seed = 0;
+    private int statements = 100;
+    private int expressionDepth = 4;
+    private int lambdaNesting = 2;
+    private long rangeSize = 1000;
+    private double floatRatio = 0.3;
+    private int variableFanOut = 2;
+
+    /** The state of the program that is currently being generated */
+    private Random random;
+    private List<Variable> variables;
+    /** The names of the lambda parameters of type number that are in scope */
+    private List<String> lambdaParams;
+
+    /**
+     * @param seed The seed of the random numbers the program is generated from, defaults to 0
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * @param statements The number of statements to generate, defaults to 100
+     */
+    public void setStatements(int statements) {
+        if (statements < 0) {
+            throw new IllegalArgumentException("statements must not be negative");
+        }
+        this.statements = statements;
+    }
+
+    /**
+     * @param expressionDepth The maximum number of nested binary operators, <code>map</code>s and
+     *                        <code>reduce</code>s in an expression, defaults to 4
+     */
+    public void setExpressionDepth(int expressionDepth) {
+        if (expressionDepth < 0) {
+            throw new IllegalArgumentException("expressionDepth must not be negative");
+        }
+        this.expressionDepth = expressionDepth;
+    }
+
+    /**
+     * @param lambdaNesting The maximum number of lambdas nested in each other, 0 generates no
+     *                      <code>map</code>s and <code>reduce</code>s. Defaults to 2
+     */
+    public void setLambdaNesting(int lambdaNesting) {
+        if (lambdaNesting < 0) {
+            throw new IllegalArgumentException("lambdaNesting must not be negative");
+        }
+        this.lambdaNesting = lambdaNesting;
+    }
+
+    /**
+     * @param rangeSize The number of elements of ranges outside of lambdas, defaults to 1000
+     */
+    public void setRangeSize(long rangeSize) {
+        if (rangeSize < 1) {
+            throw new IllegalArgumentException("rangeSize must be positive");
+        }
+        this.rangeSize = rangeSize;
+    }
+
+    /**
+     * @param floatRatio The fraction of number literals that are floats, defaults to 0.3
+     */
+    public void setFloatRatio(double floatRatio) {
+        if (!(floatRatio >= 0 && floatRatio <= 1)) {
+            throw new IllegalArgumentException("floatRatio must be between 0 and 1");
+        }
+        this.floatRatio = floatRatio;
+    }
+
+    /**
+     * @param variableFanOut The maximum number of references to each variable, 0 generates
+     *                       statements that don't depend on each other. Defaults to 2
+     */
+    public void setVariableFanOut(int variableFanOut) {
+        if (variableFanOut < 0) {
+            throw new IllegalArgumentException("variableFanOut must not be negative");
+        }
+        this.variableFanOut = variableFanOut;
+    }
+
+    /**
+     * @return The source code of the program
+     */
+    @NotNull
+    public String generate() {
+        StringBuilder sb = new StringBuilder();
+        try {
+            generate(sb);
+        } catch (IOException e) {
+            // StringBuilder doesn't throw
+            throw new RuntimeException(e);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Generate the program statement by statement
+     * @param out The destination of the program's source code
+     * @throws IOException If writing to <code>out</code> failed
+     */
+    public void generate(@NotNull Appendable out) throws IOException {
+        random = new Random(seed);
+        variables = new ArrayList<>();
+        lambdaParams = new ArrayList<>();
+        StringBuilder stmt = new StringBuilder();
+        for (int i = 0; i < statements; i++) {
+            stmt.setLength(0);
+            generateStmt(i, stmt);
+            out.append(stmt).append('\n');
+        }
+    }
+
+    private void generateStmt(int index, @NotNull StringBuilder sb) {
+        int kind = random.nextInt(10);
+        if (kind < 4) {
+            String name = "s" + index;
+            sb.append("var ").append(name).append(" = ");
+            generateSequence(expressionDepth, 0, sb);
+            variables.add(new Variable(name, true, variableFanOut));
+        } else if (kind < 7) {
+            String name = "n" + index;
+            sb.append("var ").append(name).append(" = ");
+            generateNumber(expressionDepth, 0, sb);
+            variables.add(new Variable(name, false, variableFanOut));
+        } else if (kind < 9) {
+            sb.append("out ");
+            generateNumber(expressionDepth, 0, sb);
+        } else {
+            sb.append("print \"statement ").append(index).append("\\n\"");
+        }
+    }
+
+    /**
+     * Generate an expression of type number
+     * @param depth The remaining depth of the expression
+     * @param nesting The number of lambdas the expression is nested in
+     * @param sb The destination of the expression
+     */
+    private void generateNumber(int depth, int nesting, @NotNull StringBuilder sb) {
+        int kind = depth == 0 ? 0 : random.nextInt(10);
+        if (kind < 2) {
+            generateNumberLeaf(sb);
+        } else if (kind < 3) {
+            sb.append('(');
+            generateBinaryOperator(depth, nesting, sb);
+            sb.append(')');
+        } else if (kind < 5 && nesting < lambdaNesting) {
+            generateReduce(depth, nesting, sb);
+        } else {
+            generateBinaryOperator(depth, nesting, sb);
+        }
+    }
+
+    private void generateNumberLeaf(@NotNull StringBuilder sb) {
+        int kind = random.nextInt(3);
+        if (kind == 0 && !lambdaParams.isEmpty()) {
+            sb.append(lambdaParams.get(random.nextInt(lambdaParams.size())));
+            return;
+        }
+        if (kind == 1) {
+            Variable variable = pickVariable(false);
+            if (variable != null) {
+                sb.append(variable.name);
+                return;
+            }
+        }
+        generateLiteral(sb, 1, 100);
+    }
+
+    /**
+     * Generate an integer or float literal between the given bounds
+     */
+    private void generateLiteral(@NotNull StringBuilder sb, int min, int max) {
+        int value = min + random.nextInt(max - min + 1);
+        if (random.nextDouble() < floatRatio) {
+            sb.append(value).append('.').append(random.nextInt(10));
+        } else {
+            sb.append(value);
+        }
+    }
+
+    private void generateBinaryOperator(int depth, int nesting, @NotNull StringBuilder sb) {
+        String operator = OPERATORS[random.nextInt(OPERATORS.length)];
+        generateNumber(depth - 1, nesting, sb);
+        sb.append(' ').append(operator).append(' ');
+        switch (operator) {
+            case "/":
+                // Never divide by 0
+                generateLiteral(sb, 1, 9);
+                break;
+            case "^":
+                // Keep powers from immediately overflowing
+                generateLiteral(sb, 0, 2);
+                break;
+            default:
+                generateNumber(depth - 1, nesting, sb);
+        }
+    }
+
+    private void generateReduce(int depth, int nesting, @NotNull StringBuilder sb) {
+        sb.append("reduce(");
+        generateSequence(depth - 1, nesting, sb);
+        sb.append(", ");
+        generateLiteral(sb, 0, 1);
+        String accumulator = "a" + nesting;
+        String element = "b" + nesting;
+        sb.append(", ").append(accumulator).append(' ').append(element).append(" -> ");
+        int paramsInScope = lambdaParams.size();
+        lambdaParams.add(accumulator);
+        lambdaParams.add(element);
+        generateNumber(depth - 1, nesting + 1, sb);
+        lambdaParams.subList(paramsInScope, lambdaParams.size()).clear();
+        sb.append(')');
+    }
+
+    /**
+     * Generate an expression of type sequence of numbers
+     * @param depth The remaining depth of the expression
+     * @param nesting The number of lambdas the expression is nested in
+     * @param sb The destination of the expression
+     */
+    private void generateSequence(int depth, int nesting, @NotNull StringBuilder sb) {
+        int kind = depth == 0 || nesting >= lambdaNesting ? 0 : random.nextInt(3);
+        if (kind == 0) {
+            // Referencing sequences inside lambdas would multiply their work by the range size
+            Variable variable = nesting == 0 && random.nextBoolean() ? pickVariable(true) : null;
+            if (variable != null) {
+                sb.append(variable.name);
+            } else {
+                long size = nesting == 0 ? rangeSize : Math.min(rangeSize, MAX_INNER_RANGE_SIZE);
+                long lowerBound = random.nextInt(10);
+                sb.append('{').append(lowerBound).append(", ").append(lowerBound + size - 1)
+                        .append('}');
+            }
+        } else {
+            sb.append("map(");
+            generateSequence(depth - 1, nesting, sb);
+            String param = "x" + nesting;
+            sb.append(", ").append(param).append(" -> ");
+            lambdaParams.add(param);
+            generateNumber(depth - 1, nesting + 1, sb);
+            lambdaParams.remove(lambdaParams.size() - 1);
+            sb.append(')');
+        }
+    }
+
+    /**
+     * @param isSequence Whether to pick a sequence or a number variable
+     * @return A variable that may still be referenced or <code>null</code> if there is none
+     */
+    @Nullable
+    private Variable pickVariable(boolean isSequence) {
+        List<Variable> candidates = new ArrayList<>();
+        for (Variable variable : variables) {
+            if (variable.isSequence == isSequence && variable.remainingReferences > 0) {
+                candidates.add(variable);
+            }
+        }
+        if (candidates.isEmpty()) {
+            return null;
+        }
+        Variable variable = candidates.get(random.nextInt(candidates.size()));
+        variable.remainingReferences--;
+        return variable;
+    }
+
+    public static void main(String[] args) throws IOException {
+        ProgramGenerator generator = new ProgramGenerator();
+        File outputFile = null;
+        try {
+            if (args.length % 2 != 0) {
+                throw new IllegalArgumentException();
+            }
+            for (int i = 0; i < args.length; i += 2) {
+                String value = args[i + 1];
+                switch (args[i]) {
+                    case "-seed":
+                        generator.setSeed(Long.parseLong(value));
+                        break;
+                    case "-statements":
+                        generator.setStatements(Integer.parseInt(value));
+                        break;
+                    case "-expressionDepth":
+                        generator.setExpressionDepth(Integer.parseInt(value));
+                        break;
+                    case "-lambdaNesting":
+                        generator.setLambdaNesting(Integer.parseInt(value));
+                        break;
+                    case "-rangeSize":
+                        generator.setRangeSize(Long.parseLong(value));
+                        break;
+                    case "-floatRatio":
+                        generator.setFloatRatio(Double.parseDouble(value));
+                        break;
+                    case "-variableFanOut":
+                        generator.setVariableFanOut(Integer.parseInt(value));
+                        break;
+                    case "-output":
+                        outputFile = new File(value);
+                        break;
+                    default:
+                        throw new IllegalArgumentException();
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            printUsage();
+            System.exit(1);
+        }
+
+        if (outputFile == null) {
+            Writer out = new BufferedWriter(new OutputStreamWriter(System.out,
+                    StandardCharsets.UTF_8));
+            generator.generate(out);
+            out.flush();
+        } else {
+            File directory = outputFile.getAbsoluteFile().getParentFile();
+            if (directory != null) {
+                directory.mkdirs();
+            }
+            try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                    new FileOutputStream(outputFile), StandardCharsets.UTF_8))) {
+                generator.generate(out);
+            }
+        }
+    }
+
+    private static void printUsage() {
+        System.out.println("Usage: java " + ProgramGenerator.class.getSimpleName() + " [options]");
+        System.out.println("Print a random program that evaluates without errors");
+        System.out.println();
+        System.out.println("options can be:");
+        System.out.println("-seed n     The seed of the random program, defaults to 0");
+        System.out.println("-statements n");
+        System.out.println("            The number of statements, defaults to 100");
+        System.out.println("-expressionDepth n");
+        System.out.println("            The maximum depth of expressions, defaults to 4");
+        System.out.println("-lambdaNesting n");
+        System.out.println("            The maximum number of nested lambdas, defaults to 2");
+        System.out.println("-rangeSize n");
+        System.out.println("            The number of elements of ranges outside of lambdas,");
+        System.out.println("            defaults to 1000");
+        System.out.println("-floatRatio fraction");
+        System.out.println("            The fraction of number literals that are floats,");
+        System.out.println("            defaults to 0.3");
+        System.out.println("-variableFanOut n");
+        System.out.println("            The maximum number of references to each variable,");
+        System.out.println("            defaults to 2");
+        System.out.println("-output file");
+        System.out.println("            Write the program to the given file instead of standard");
+        System.out.println("            output");
+    }
+}
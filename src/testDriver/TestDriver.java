@@ -1,9 +1,15 @@
 package testDriver;
 
+import frontend.CommandLineDriver;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -16,7 +22,12 @@ import java.util.regex.Pattern;
  *
  * In each of these files, the test driver looks for a line containing the <code>RUN:</code> keyword
  * and executes the command specified after applying all substitutions specified in
- * <code>commandSubstitutions</code> and replacing <code>%s</code> by the test file path.
+ * <code>commandSubstitutions</code>, replacing <code>%s</code> by the test file path and
+ * <code>%t</code> by a path for temporary files that is unique to the test file.
+ *
+ * Commands that run {@link CommandLineDriver} are executed in the test driver's JVM to avoid
+ * starting a new JVM for every command, all other commands are executed as subprocesses. Pass
+ * <code>-subprocess</code> to execute every command as a subprocess.
  */
 public class TestDriver {
 
@@ -26,12 +37,16 @@ public class TestDriver {
     private static Set<String> exclude = new HashSet<>();
     /** Substitutions to perform in the RUN command */
     private static Map<String, String> commandSubstitutions = new HashMap<>();
+    /** Whether commands running the command line driver are executed in this JVM */
+    private static boolean inProcess = true;
 
     static {
         // Setup the config parameters
         testFileExtensions.add("ml");
         exclude.add("devtest.ml");
 
+        commandSubstitutions.put("%driver", "java -ea -cp '%binDir' frontend.CommandLineDriver");
+
         commandSubstitutions.put("%lexer", "java -ea -cp '%binDir' frontend.CommandLineDriver -lex");
         commandSubstitutions.put("%verifyLexer", "java -ea -cp '%binDir' frontend.CommandLineDriver -lex -verify '%s'");
 
@@ -54,39 +69,39 @@ public class TestDriver {
     }
 
     public static void main(String[] args) {
-        List<File> testFiles = getTestFiles();
-
-        boolean[] errorOccurred = new boolean[] {false};
-
-        final int numberOfThreads = Runtime.getRuntime().availableProcessors();
-        Thread[] threads = new Thread[numberOfThreads];
-
-        for (int j = 0; j < numberOfThreads; j++) {
-            final int threadId = j;
-            threads[threadId] = new Thread(() -> {
-            for (int i = 0; i < testFiles.size(); i++) {
-                if ((i % numberOfThreads) == threadId) {
-                    File file = testFiles.get(i);
-                    try {
-                        errorOccurred[0] |= testFile(file);
-                    } catch (IOException | InterruptedException e) {
-                        throw new RuntimeException(e);
-                    }
-                }
+        for (String arg : args) {
+            if (arg.equals("-subprocess")) {
+                inProcess = false;
+            } else {
+                System.err.println("Usage: java " + TestDriver.class.getSimpleName() +
+                        " [-subprocess]");
+                System.exit(1);
             }
-            });
-            threads[threadId].start();
         }
+        // The commands pass -ea to the driver's JVM. This only affects classes that have not
+        // been loaded yet, i.e. everything but the test driver
+        TestDriver.class.getClassLoader().setDefaultAssertionStatus(true);
+
+        List<File> testFiles = getTestFiles();
 
-        for (Thread t : threads) {
+        boolean errorOccurred = false;
+
+        ExecutorService executor =
+                Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (File file : testFiles) {
+            results.add(executor.submit(() -> testFile(file)));
+        }
+        for (Future<Boolean> result : results) {
             try {
-                t.join();
-            } catch (InterruptedException e) {
-                throw new RuntimeException();
+                errorOccurred |= result.get();
+            } catch (InterruptedException | ExecutionException e) {
+                throw new RuntimeException(e);
             }
         }
+        executor.shutdown();
 
-        System.exit(errorOccurred[0] ? 1 : 0);
+        System.exit(errorOccurred ? 1 : 0);
     }
 
     /**
@@ -107,26 +122,29 @@ public class TestDriver {
                 String command = matcher.group(1);
                 command = performSubstitutions(command, commandSubstitutions);
                 command = command.replaceAll("%s", file.getAbsolutePath());
+                command = command.replace("%t", getTemporaryPath(file).getAbsolutePath());
 
                 List<String> arguments = splitCommandLineArguments(command);
 
-                Process process = new ProcessBuilder().command(arguments).start();
-
-                if (process.waitFor() != 0) {
-                    BufferedReader stderr = new BufferedReader(
-                            new InputStreamReader(process.getErrorStream()));
-
-                    System.err.println("========================================");
-                    System.err.println("Error in file: " + file.getAbsolutePath());
-                    System.err.println("Executed command: " + command);
-                    System.err.println("");
-
-                    String errLine;
-
-                    while ((errLine = stderr.readLine()) != null) {
-                        System.err.println(errLine);
+                String errorOutput = null;
+                String[] driverArguments = inProcess ? getDriverArguments(arguments) : null;
+                if (driverArguments != null) {
+                    errorOutput = runDriver(driverArguments);
+                } else {
+                    Process process = new ProcessBuilder().command(arguments).start();
+                    if (process.waitFor() != 0) {
+                        errorOutput = readFully(process.getErrorStream());
                     }
+                }
 
+                if (errorOutput != null) {
+                    synchronized (System.err) {
+                        System.err.println("========================================");
+                        System.err.println("Error in file: " + file.getAbsolutePath());
+                        System.err.println("Executed command: " + command);
+                        System.err.println("");
+                        System.err.print(errorOutput);
+                    }
                     return true;
                 }
             }
@@ -134,6 +152,81 @@ public class TestDriver {
         return false;
     }
 
+    /**
+     * @param arguments The arguments of a command
+     * @return The arguments to pass to {@link CommandLineDriver} if the command only runs the
+     *         driver in a JVM with default options, <code>null</code> otherwise
+     */
+    @Nullable
+    private static String[] getDriverArguments(@NotNull List<String> arguments) {
+        if (arguments.isEmpty() || !arguments.get(0).equals("java")) {
+            return null;
+        }
+        for (int i = 1; i < arguments.size(); i++) {
+            switch (arguments.get(i)) {
+                case "-ea":
+                case "-enableassertions":
+                    break;
+                case "-cp":
+                case "-classpath":
+                    // The driver is run from the test driver's class path
+                    i++;
+                    break;
+                case "frontend.CommandLineDriver":
+                    List<String> driverArguments = arguments.subList(i + 1, arguments.size());
+                    return driverArguments.toArray(new String[0]);
+                default:
+                    // Other JVM options can't be applied to this JVM
+                    return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Run the command line driver in this JVM. Its output is discarded like that of subprocesses
+     * @param arguments The arguments to pass to the driver
+     * @return The driver's error output if it failed or <code>null</code> if it succeeded
+     */
+    @Nullable
+    private static String runDriver(@NotNull String[] arguments) {
+        ByteArrayOutputStream errorBytes = new ByteArrayOutputStream();
+        PrintStream err = new PrintStream(errorBytes);
+        int status;
+        try {
+            status = CommandLineDriver.run(arguments,
+                    new PrintStream(new ByteArrayOutputStream()), err);
+        } catch (Throwable t) {
+            t.printStackTrace(err);
+            status = 1;
+        }
+        err.flush();
+        return status == 0 ? null : errorBytes.toString();
+    }
+
+    @NotNull
+    private static String readFully(@NotNull InputStream stream) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(stream));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            sb.append(line).append(System.lineSeparator());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @param testFile The test file
+     * @return A path in the system's temporary directory that the test file may use to store
+     *         temporary files
+     */
+    @NotNull
+    private static File getTemporaryPath(@NotNull File testFile) {
+        File directory = new File(System.getProperty("java.io.tmpdir"), "InterpreterTests");
+        return new File(directory, testFile.getParentFile().getName() + "-" +
+                testFile.getName() + ".tmp");
+    }
+
     /**
      * @return All test files in the current working directory
      */
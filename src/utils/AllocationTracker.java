@@ -0,0 +1,79 @@
+package utils;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures the number of bytes allocated by the threads of this JVM.
+ *
+ * <p>
+ * The JVM only reports the allocations of live threads, so threads that terminate while a
+ * measurement is running, e.g. the stage threads of {@link backend.utils.AsyncASTConsumer}, must
+ * call {@link #recordTerminatingThread()} right before they exit for their allocations to be
+ * counted
+ * </p>
+ */
+public class AllocationTracker {
+
+    /** The bytes allocated by threads that have called {@link #recordTerminatingThread()} */
+    private static final AtomicLong terminatedThreadsAllocatedBytes = new AtomicLong(0);
+
+    /**
+     * @return The bean that measures allocations or <code>null</code> if the JVM doesn't support
+     *         measuring them
+     */
+    @Nullable
+    private static com.sun.management.ThreadMXBean getAllocationBean() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return null;
+        }
+        com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean)bean;
+        if (!allocationBean.isThreadAllocatedMemorySupported() ||
+                !allocationBean.isThreadAllocatedMemoryEnabled()) {
+            return null;
+        }
+        return allocationBean;
+    }
+
+    /**
+     * Add the bytes allocated by the current thread to those reported by
+     * {@link #getAllocatedBytes()} after the thread has terminated. Must be the last thing a
+     * thread does
+     */
+    static public void recordTerminatingThread() {
+        com.sun.management.ThreadMXBean allocationBean = getAllocationBean();
+        if (allocationBean == null) {
+            return;
+        }
+        long allocated = allocationBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+        if (allocated > 0) {
+            terminatedThreadsAllocatedBytes.addAndGet(allocated);
+        }
+    }
+
+    /**
+     * @return The number of bytes allocated by all live threads and all terminated threads that
+     *         called {@link #recordTerminatingThread()}, or <code>-1</code> if the JVM doesn't
+     *         support measuring allocations. Only the difference between two calls is meaningful
+     */
+    static public long getAllocatedBytes() {
+        com.sun.management.ThreadMXBean allocationBean = getAllocationBean();
+        if (allocationBean == null) {
+            return -1;
+        }
+        // Read the terminated threads first so that a thread terminating in between is counted
+        // at most twice, never not at all
+        long total = terminatedThreadsAllocatedBytes.get();
+        for (long allocated :
+                allocationBean.getThreadAllocatedBytes(allocationBean.getAllThreadIds())) {
+            if (allocated > 0) {
+                total += allocated;
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,108 @@
+package utils;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A bounded queue for exactly one producer thread and one consumer thread that does not use locks.
+ * The producer only writes the tail index and the consumer only writes the head index, so
+ * neither needs to synchronize with the other except for publishing these indices
+ * @param <T> The type of the queue's elements
+ */
+public final class RingBuffer<T> {
+
+    /** The number of times a thread spins before it starts parking while waiting */
+    private static final int SPINS_BEFORE_PARKING = 100;
+
+    @NotNull private final Object[] elements;
+    private final int mask;
+    /** The index of the next element to be read. Only written by the consumer */
+    @NotNull private final AtomicLong head = new AtomicLong(0);
+    /** The index of the next element to be written. Only written by the producer */
+    @NotNull private final AtomicLong tail = new AtomicLong(0);
+
+    /**
+     * @param capacity The minimum number of elements the queue can hold. Rounded up to the next
+     *                 power of two
+     */
+    public RingBuffer(int capacity) {
+        if (capacity <= 0 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        int roundedCapacity = Integer.highestOneBit(capacity);
+        if (roundedCapacity < capacity) {
+            roundedCapacity <<= 1;
+        }
+        this.elements = new Object[roundedCapacity];
+        this.mask = roundedCapacity - 1;
+    }
+
+    /**
+     * Add an element to the queue if it is not full. Must only be called by the producer thread
+     * @param element The element to add
+     * @return <code>false</code> if the queue was full
+     */
+    public boolean offer(@NotNull T element) {
+        long currentTail = tail.get();
+        if (currentTail - head.get() == elements.length) {
+            return false;
+        }
+        elements[(int)currentTail & mask] = element;
+        // Publish the element to the consumer
+        tail.lazySet(currentTail + 1);
+        return true;
+    }
+
+    /**
+     * Remove the oldest element from the queue. Must only be called by the consumer thread
+     * @return The removed element or <code>null</code> if the queue was empty
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public T poll() {
+        long currentHead = head.get();
+        if (currentHead == tail.get()) {
+            return null;
+        }
+        int index = (int)currentHead & mask;
+        T element = (T)elements[index];
+        elements[index] = null;
+        // Hand the slot back to the producer
+        head.lazySet(currentHead + 1);
+        return element;
+    }
+
+    /**
+     * Add an element to the queue, waiting until there is space for it
+     * @param element The element to add
+     */
+    public void put(@NotNull T element) {
+        for (int attempt = 0; !offer(element); attempt++) {
+            idle(attempt);
+        }
+    }
+
+    /**
+     * Remove the oldest element from the queue, waiting until there is one
+     * @return The removed element
+     */
+    @NotNull
+    public T take() {
+        T element;
+        for (int attempt = 0; (element = poll()) == null; attempt++) {
+            idle(attempt);
+        }
+        return element;
+    }
+
+    private static void idle(int attempt) {
+        if (attempt < SPINS_BEFORE_PARKING) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(50_000);
+        }
+    }
+}
@@ -1,58 +1,111 @@
 package utils;
 
-import backend.interpreter.Value;
+import org.jetbrains.annotations.NotNull;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.function.Function;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
 
+/**
+ * Manages the pool of worker threads that is shared by all evaluations in this JVM.
+ *
+ * <p>
+ * An evaluation that shall use a different number of threads can be run on a separate pool
+ * created by {@link #newPool(int)}. Tasks submitted by a worker thread of a pool are executed on
+ * that pool, so the evaluation and all tasks it spawns stay on the separate pool while other
+ * evaluations keep using the shared one.
+ * </p>
+ */
 public class ThreadManager {
 
-    @FunctionalInterface
-    public interface Function2<A, B, C, R> {
-        R apply(A a, B b, C c);
+    /**
+     * The worker threads of the pools created by this class
+     */
+    private static final class WorkerThread extends ForkJoinWorkerThread {
+        WorkerThread(@NotNull ForkJoinPool pool) {
+            super(pool);
+        }
     }
 
-    static public <T, S> List<S> runOnMaxNumberOfThreads(T[] executeOn, Function2<T, S, Integer, S> toRun) {
-        final int numberOfThreads = Math.min(Runtime.getRuntime().availableProcessors(), executeOn.length);
-
-        int valuesPerThread = executeOn.length / numberOfThreads;
-
-        ArrayList<S> results = new ArrayList<S>(numberOfThreads);
-        for (int i = 0; i < numberOfThreads; i++) {
-            results.add(null);
-        }
+    @NotNull private static final ForkJoinPool sharedPool =
+            newPool(Runtime.getRuntime().availableProcessors());
+    /** The pool of threads that run a task wrapped by {@link #onCurrentPool(Runnable)} */
+    @NotNull private static final ThreadLocal<ForkJoinPool> inheritedPool = new ThreadLocal<>();
 
-        Thread[] threads = new Thread[numberOfThreads];
-        for (int j = 0; j < numberOfThreads; j++) {
-            final int finalJ = j;
-            threads[j] = new Thread(() -> {
-                int from = finalJ * valuesPerThread;
-                int to;
-                if (finalJ == numberOfThreads - 1) {
-                    to = executeOn.length;
-                } else {
-                    to = from + valuesPerThread;
-                }
-
-                S previousValue = null;
-
-                for (int i = from; i < to; i++) {
-                    previousValue = toRun.apply(executeOn[i], previousValue, i);
-                }
-                results.set(finalJ, previousValue);
-            });
-            threads[j].start();
+    /**
+     * Create a pool whose worker threads submit tasks to the pool itself instead of the shared
+     * pool. The caller is responsible for shutting the pool down
+     * @param numberOfThreads The number of worker threads that execute tasks in parallel
+     * @return The new pool
+     */
+    @NotNull
+    static public ForkJoinPool newPool(int numberOfThreads) {
+        if (numberOfThreads < 1) {
+            throw new IllegalArgumentException("numberOfThreads must be positive");
         }
+        return new ForkJoinPool(numberOfThreads, WorkerThread::new, null, false);
+    }
 
-        for (Thread t : threads) {
+    /**
+     * Wrap a task that is run on a thread not managed by this class so that the tasks it submits
+     * are executed on the pool of the current thread instead of the shared pool
+     * @param task The task to wrap
+     * @return A task that runs <code>task</code> on behalf of the current thread's pool
+     */
+    @NotNull
+    static public Runnable onCurrentPool(@NotNull Runnable task) {
+        ForkJoinPool pool = getPool();
+        return () -> {
+            inheritedPool.set(pool);
             try {
-                t.join();
-            } catch (InterruptedException e) {
-                throw new RuntimeException();
+                task.run();
+            } finally {
+                inheritedPool.remove();
             }
+        };
+    }
+
+    /**
+     * @return The pool of the current thread if it is a worker thread or runs a task wrapped by
+     *         {@link #onCurrentPool(Runnable)}, otherwise the shared pool
+     */
+    @NotNull
+    private static ForkJoinPool getPool() {
+        Thread thread = Thread.currentThread();
+        if (thread instanceof WorkerThread) {
+            return ((WorkerThread)thread).getPool();
         }
+        ForkJoinPool pool = inheritedPool.get();
+        return pool != null ? pool : sharedPool;
+    }
+
+    /**
+     * @return The number of worker threads that execute tasks submitted by the current thread in
+     *         parallel
+     */
+    static public int getNumberOfThreads() {
+        return getPool().getParallelism();
+    }
+
+    /**
+     * Execute a task asynchronously on the worker pool of the current thread, see
+     * {@link #newPool(int)}
+     * @param task The task to execute
+     */
+    static public void execute(@NotNull Runnable task) {
+        getPool().execute(task);
+    }
 
-        return results;
+    /**
+     * Execute a task asynchronously on the worker pool of the current thread, see
+     * {@link #newPool(int)}. Joining the returned task from a worker thread executes pending tasks
+     * instead of blocking the thread, so tasks may wait for tasks they submitted themselves
+     * without starving the pool
+     * @param task The task to execute
+     * @return The submitted task
+     */
+    @NotNull
+    static public ForkJoinTask<?> submit(@NotNull Runnable task) {
+        return getPool().submit(task);
     }
 }
@@ -0,0 +1,22 @@
+# RUN: rm -rf '%t'
+# RUN: %driver -evaluate -cacheDirectory '%t' -verify '%s'
+# RUN: %driver -evaluate -cacheDirectory '%t' -verify '%s'
+# RUN: %driver -evaluate -cacheDirectory '%t' -offHeap -verify '%s'
+# RUN: %driver -evaluate -cacheDirectory '%t' -hashCons -verify '%s'
+# RUN: %driver -evaluate -cacheDirectory '%t' -hashCons -verify '%s'
+
+# The second run of each configuration evaluates the flat AST loaded from the cache
+print "start"
+# CHECK: start
+var n = 4
+var squares = map({1, n}, x -> x * x)
+out squares
+# CHECK: {1, 4, 9, 16}
+out reduce(map(squares, x -> x / 2), 0, acc y -> acc + y)
+# CHECK: 15.0
+out (1 + 2) * 3.5
+# CHECK: 10.5
+
+# Errors during evaluation are still reported
+out 1 / (n - 4) # expectedError@7: Division by 0
+out {n, 1} # expectedError@5: Upper bound of range cannot be smaller than the lower bound
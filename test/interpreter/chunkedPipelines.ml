@@ -0,0 +1,21 @@
+# RUN: %driver -evaluate -chunkSize 3 -verify '%s'
+# RUN: %driver -evaluate -verify '%s'
+# RUN: %driver -evaluate -flatAST -chunkSize 3 -verify '%s'
+# RUN: %driver -evaluate -flatAST -verify '%s'
+
+var s = map({1, 3}, x -> x * 2)
+out reduce(s, 0, a b -> a + b)
+# CHECK: 12
+out s
+# CHECK: {2, 4, 6}
+
+out map(map(map({1, 10}, x -> x + 1), x -> x * x), x -> x - 1)
+# CHECK: {3, 8, 15, 24, 35, 48, 63, 80, 99, 120}
+
+out reduce(map(({1, 100000}), x -> x * 2), 0, a b -> a + b)
+# CHECK: 10000100000
+
+out reduce(map({1, 10}, x -> x * 2), 1, a b -> a * b)
+# CHECK: 3715891200
+
+out map({1, 10}, x -> 1 / (x - 7)) # expectedError@25: Division by 0
@@ -0,0 +1,27 @@
+# RUN: %driver -evaluate -flatAST -verify '%s'
+# RUN: %driver -evaluate -flatAST -offHeap -verify '%s'
+# RUN: %driver -evaluate -verify '%s'
+
+print "start"
+# CHECK: start
+var n = 5
+var squares = map({1, n}, x -> x * x)
+out squares
+# CHECK: {1, 4, 9, 16, 25}
+out reduce(map(squares, x -> x / 2), 0, acc y -> acc + y)
+# CHECK: 27.5
+
+# Lambda parameters with the same name in different lambdas are different variables
+var x = 10
+out map(map({1, 3}, x -> x + 1), x -> x * x) + x # expectedError@46: Arithmetic operator '+' can only be used on number types and not on 'Sequence<Number>' and 'Number'
+out map({1, 3}, y -> map({1, y}, x -> x + y))
+# CHECK: {{2}, {3, 4}, {4, 5, 6}}
+out reduce({1, 3}, x, x y -> x - y)
+# CHECK: 14
+
+out map({1, 10}, x -> 1 / (x - 7)) # expectedError@25: Division by 0
+out 2 ^ -1 + (-3.5)
+# CHECK: -3.0
+var r = {3, 1} # expectedError@9: Upper bound of range cannot be smaller than the lower bound
+print "end"
+# CHECK: end
@@ -0,0 +1,8 @@
+# RUN: java -cp '%binDir' programGenerator.ProgramGenerator -seed 1 -output '%t'
+# RUN: %driver -evaluate -verify '%t'
+# RUN: %driver -evaluate -pipeline -verify '%t'
+# RUN: java -cp '%binDir' programGenerator.ProgramGenerator -seed 2 -statements 50 -expressionDepth 6 -lambdaNesting 3 -rangeSize 100 -floatRatio 0.5 -output '%t'
+# RUN: %driver -evaluate -parallelStatements -verify '%t'
+# RUN: %driver -evaluate -flatAST -verify '%t'
+
+# Programs created by the program generator evaluate without errors
@@ -0,0 +1,26 @@
+# RUN: %driver -evaluate -hashCons -verify '%s'
+# RUN: %driver -evaluate -hashCons -parallelStatements -verify '%s'
+# RUN: %driver -evaluate -hashCons -flatAST -verify '%s'
+
+var a = (2 ^ 10) * 3 + 1
+var b = map({1, 3}, x -> x + (2 ^ 10) * 3 + 1)
+out a
+# CHECK: 3073
+out b
+# CHECK: {3074, 3075, 3076}
+out reduce(map({1, 4}, x -> 2 ^ 10), (2 ^ 10) * 3 + 1, x y -> x + y)
+# CHECK: 7169
+out 0.5 * 0.5 + 0.5 * 0.5
+# CHECK: 0.5
+out -0.0 + 0.0
+# CHECK: 0.0
+
+# Divisions are never shared, so their errors are reported where they occur
+var c = (1 / 0) + 1 # expectedError@12: Division by 0
+var d = (1 / 0) + 1 # expectedError@12: Division by 0
+
+# Expressions at which errors are reported keep their own location
+var e = {1.5, 3} # expectedError@10: Lower bound of a range must be an integer and not 'Float'
+var f = {1, 1.5} # expectedError@13: Upper bound of a range must be an integer and not 'Float'
+var g = {1, (1.5)} # expectedError@13: Upper bound of a range must be an integer and not 'Float'
+var h = map(0.5 * 0.5, x -> x) # expectedError@17: Argument for 'map' must be a sequence, 'Number' given
@@ -0,0 +1,32 @@
+# RUN: %driver -evaluate -verify '%s'
+# RUN: %driver -evaluate -chunkSize 7 -verify '%s'
+# RUN: %driver -evaluate -chunkSize 100 -parallelStatements -verify '%s'
+
+# The results of map lambdas are reused for repeated elements
+var twos = map({1, 5000}, x -> x * 0 + 2)
+out reduce(map(twos, x -> x ^ 10), 0, a b -> a + b)
+# CHECK: 5120000
+
+# Integers and floats with the same value are different arguments
+var mixed = map({1, 4}, x -> x / 2 * 2 - x + 1)
+out mixed
+# CHECK: {1.0, 1, 1.0, 1}
+out map(mixed, y -> y * 3)
+# CHECK: {3.0, 3, 3.0, 3}
+out map(map({-2, 2}, x -> x * 0.0), y -> 1 / (y + 1))
+# CHECK: {1.0, 1.0, 1.0, 1.0, 1.0}
+
+# Lambdas may depend on the parameters of enclosing lambdas
+out map({1, 3}, x -> reduce(map(map({1, 3}, z -> z * 0), y -> x + y), x, a b -> a + b))
+# CHECK: {4, 8, 12}
+
+# Errors are reported even if the result is reused
+out map(map({1, 3000}, x -> x * 0), y -> 1 / y) # expectedError@44: Division by 0
+out reduce(map(twos, x -> x - 2), 1, a b -> a + b)
+# CHECK: 1
+
+# The memo turns itself on again if elements start repeating after it has been turned off
+var capped = map({1, 40000}, x -> (x + 2000 - ((x - 2000) ^ 2) ^ 0.5) / 2)
+out reduce(map(capped, y -> y * 2), 0, a b -> a + b)
+# CHECK: 1.56002E8
+out reduce(map(capped, y -> 1 / (y - 2000)), 1, a b -> a + b) # expectedError@31: Division by 0
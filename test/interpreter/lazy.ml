@@ -0,0 +1,28 @@
+# RUN: %driver -evaluate -lazy -verify '%s'
+# RUN: %driver -evaluate -lazy -offHeap -verify '%s'
+
+# Never needed by an out statement and thus never evaluated
+var unused = 1 / 0
+var unusedSequence = map({1, 3}, x -> x / 0)
+
+var a = {1, 5}
+var b = map(a, x -> x * x)
+var c = reduce(b, 0, x y -> x + y)
+out c
+# CHECK: 55
+out b
+# CHECK: {1, 4, 9, 16, 25}
+
+var d = map({1, 3}, x -> c + x)
+var e = map(d, x -> x - c)
+out e
+# CHECK: {1, 2, 3}
+
+# Variables referenced only from inside nested lambdas are captured as well
+var g = map({1, 2}, x -> reduce(b, x, y z -> y + z + c))
+out g
+# CHECK: {331, 332}
+
+var f = 2 / 0 # expectedError@11: Division by 0
+out f + 1
+# CHECK: <error>
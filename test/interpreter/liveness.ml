@@ -0,0 +1,32 @@
+# RUN: %driver -evaluate -offHeap -verify '%s'
+# RUN: %driver -evaluate -offHeap -memoryBudget 1k -verify '%s'
+# RUN: %driver -evaluate -offHeap -parallelStatements -verify '%s'
+
+var unused = map({1, 1000}, x -> x * 2)
+
+var a = map({1, 1000}, x -> x * 3)
+out reduce(a, 0, x y -> x + y)
+# CHECK: 1501500
+var b = map(a, x -> x + 1)
+out reduce(map(b, x -> x - 1), 0, x y -> x + y)
+# CHECK: 1501500
+
+var c = map({1, 4}, x -> x * 2)
+var d = (c)
+out reduce(c, 0, x y -> x + y)
+# CHECK: 20
+out d
+# CHECK: {2, 4, 6, 8}
+
+var e = map({1, 3}, x -> x)
+var nested = map({1, 2}, i -> e)
+out reduce(e, 0, x y -> x + y)
+# CHECK: 6
+out nested
+# CHECK: {{1, 2, 3}, {1, 2, 3}}
+
+var f = map({1, 3}, x -> x + 10)
+out f
+out reduce(f, 0, x y -> x + y)
+# CHECK: {11, 12, 13}
+# CHECK: 36
@@ -0,0 +1,16 @@
+# RUN: %verifyInterpreter
+
+out 2 ^ 40
+# CHECK: 1099511627776
+
+out 3000000000 * 2
+# CHECK: 6000000000
+
+out {4000000000, 4000000003}
+# CHECK: {4000000000, 4000000001, 4000000002, 4000000003}
+
+out reduce({2147483640, 2147483650}, 0, a b -> a + b)
+# CHECK: 23622320095
+
+var tooLarge = 99999999999999999999 # expectedError@16: Integer literal '99999999999999999999' does not fit into 64 bits
+var hugeRange = {-9223372036854775807, 9223372036854775807} # expectedError@17: A range cannot contain more than 9223372036854775807 elements
@@ -0,0 +1,17 @@
+# RUN: %driver -evaluate -memoryBudget 1k -verify '%s'
+# RUN: %driver -evaluate -offHeap -memoryBudget 1m -verify '%s'
+
+var small = {1, 5}
+out small
+# CHECK: {1, 2, 3, 4, 5}
+
+var large = map({1, 140000}, x -> x - 70000)
+out reduce(large, 0, a b -> a + b)
+# CHECK: 70000
+
+out map(map({1, 5}, x -> x * 2), x -> x / 4)
+# CHECK: {0.5, 1, 1.5, 2, 2.5}
+
+var nested = map({1, 3}, x -> {1, x})
+out nested
+# CHECK: {{1}, {1, 2}, {1, 2, 3}}
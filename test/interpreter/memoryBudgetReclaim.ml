@@ -0,0 +1,15 @@
+# RUN: rm -rf '%t'
+# RUN: %driver -evaluate -memoryBudget 4m -chunkSize 4 -spillDirectory '%t' -verify '%s'
+# RUN: %driver -evaluate -memoryBudget 4m -chunkSize 4 -spillDirectory '%t' -parallelStatements -verify '%s'
+
+# The spill directory does not exist, so spilling a sequence fails. Every lambda invocation
+# creates a sequence of 1000 numbers that is dropped after it has been reduced. Together they
+# exceed the budget many times over, yet each of them fits into it once the dropped ones have
+# been collected
+
+out reduce(map(map({1, 1000}, i -> map({1, 1000}, x -> x + i)), s -> reduce(s, 0, a b -> a + b)), 0, a b -> a + b)
+# CHECK: 1001000000
+
+var sums = map(map({1, 1000}, i -> map({1, 1000}, x -> x * i)), s -> reduce(s, 0, a b -> a + b))
+out reduce(sums, 0, a b -> a + b)
+# CHECK: 250500250000
@@ -1,4 +1,6 @@
 # RUN: %verifyInterpreter
+# RUN: %driver -evaluate -flatAST -verify '%s'
+# RUN: %driver -evaluate -parallelParse 1 -verify '%s'
 
 var s = { 1.2, 5 } # expectedError@11: Lower bound of a range must be an integer and not 'Float'
 var t = { 1, 1.2 } # expectedError@14: Upper bound of a range must be an integer and not 'Float'
@@ -0,0 +1,17 @@
+# RUN: %driver -evaluate -chunkSize 3 -verify '%s'
+# RUN: %driver -evaluate -chunkSize 3 -parallelStatements -verify '%s'
+# RUN: %driver -evaluate -chunkSize 3 -flatAST -verify '%s'
+# RUN: %driver -evaluate -chunkSize 3 -flatAST -offHeap -verify '%s'
+
+# reduce folds every chunk starting with its first element and then combines the chunks' results
+# with the base in order. Both interpreters split sequences into the same chunks, so they agree
+# even if the lambda is not associative
+
+out reduce({1, 10}, 0, a b -> a - b)
+# CHECK: 11
+out reduce(map({1, 7}, x -> x * 0.5), 100, a b -> a / 2 + b)
+# CHECK: 18.90625
+out reduce({4, 4}, 1, a b -> a - b)
+# CHECK: -3
+out reduce({1, 10}, 0, a b -> a + 1 / (b - 8)) # expectedError@37: Division by 0
+# CHECK: <error>
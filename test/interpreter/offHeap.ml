@@ -0,0 +1,17 @@
+# RUN: %driver -evaluate -offHeap -verify '%s'
+
+out map({1, 5}, x -> x / 2)
+# CHECK: {0.5, 1, 1.5, 2, 2.5}
+
+var large = map({1, 70000}, x -> x - 35000)
+out reduce(large, 0, a b -> a + b)
+# CHECK: 35000
+
+out reduce(map(large, x -> x * 0.5), 0, a b -> a + b)
+# CHECK: 17500.0
+
+var nested = map({1, 3}, x -> {1, x})
+out nested
+# CHECK: {{1}, {1, 2}, {1, 2, 3}}
+
+var x = map({1, 5}, x -> 1 / (x - 3)) # expectedError@28: Division by 0
@@ -0,0 +1,35 @@
+# RUN: %driver -evaluate -parallelParse 1 -verify '%s'
+# RUN: %driver -evaluate -parallelParse 1 -hashCons -verify '%s'
+# RUN: %driver -evaluate -parallelParse 1 -flatAST -verify '%s'
+
+var n = 4
+out n
+# CHECK: 4
+var squares = map({1, n}, x -> x * x)
+out squares
+# CHECK: {1, 4, 9, 16}
+print "first"
+# CHECK: first
+
+# Errors reported after parsing are expected in the chunk that contains them
+out squares + 1 # expectedError@13: Arithmetic operator '+' can only be used on number types and not on 'Sequence<Number>' and 'Number'
+out reduce(squares, 0, acc x -> acc + x)
+# CHECK: 30
+
+# A statement may continue on a line that starts with a keyword
+var out = 2
+var sum = 1 +
+out
+out sum
+# CHECK: 3
+print "second"
+# CHECK: second
+out reduce(map({1, 3}, x -> x / 2), 0, acc x -> acc + x) + 1.5 * 2
+# CHECK: 6.0
+
+# Chunks after a syntax error are parsed sequentially
+var a = 2 + * # expectedError@13: Expected an expression but found '*'
+out 7
+# CHECK: 7
+print "third"
+# CHECK: third
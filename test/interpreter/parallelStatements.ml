@@ -0,0 +1,26 @@
+# RUN: %driver -evaluate -parallelStatements -verify '%s'
+# RUN: %driver -evaluate -parallelStatements -offHeap -lazy -verify '%s'
+
+print "start"
+var a = reduce(map({1, 200000}, x -> x * 2), 0, x y -> x + y)
+var b = reduce(map({1, 100000}, x -> x * 3), 0, x y -> x + y)
+var c = map({1, 5}, x -> x * x)
+out a
+out b
+print "middle"
+out c
+out a + b
+var d = reduce(c, 0, x y -> x + y)
+out map(c, x -> x + d)
+out 1 / 0 # expectedError@7: Division by 0
+print "end"
+
+# CHECK: start
+# CHECK: 40000200000
+# CHECK: 15000150000
+# CHECK: middle
+# CHECK: {1, 4, 9, 16, 25}
+# CHECK: 55000350000
+# CHECK: {56, 59, 64, 71, 80}
+# CHECK: <error>
+# CHECK: end
@@ -0,0 +1,17 @@
+# RUN: %driver -evaluate -pipeline -verify '%s'
+# RUN: %driver -evaluate -pipeline -parallelStatements -verify '%s'
+
+print "first"
+var a = map({1, 5}, x -> x * x)
+out a
+# CHECK: first
+# CHECK: {1, 4, 9, 16, 25}
+
+var b = a + 1 # expectedError@11: Arithmetic operator '+' can only be used on number types and not on 'Sequence<Number>' and 'Number'
+var c = 1 / 0 # expectedError@11: Division by 0
+1 # expectedError@1: Unexpected start of statements. Statements must start with 'var', 'out' or 'print' but found '1'
+
+out reduce(a, 0, x y -> x + y)
+# CHECK: 55
+print "last"
+# CHECK: last
@@ -0,0 +1,46 @@
+# RUN: rm -rf '%t'
+# RUN: %driver -evaluate -resultCache '%t' -verify '%s'
+# RUN: %driver -evaluate -resultCache '%t' -verify '%s'
+# RUN: %driver -evaluate -resultCache '%t' -offHeap -verify '%s'
+# RUN: %driver -evaluate -resultCache '%t' -parallelStatements -verify '%s'
+# RUN: %driver -evaluate -resultCache '%t' -lazy -verify '%s'
+# RUN: %driver -evaluate -resultCache '%t' -resultCacheSize 1k -verify '%s'
+# RUN: %driver -evaluate -resultCache '%t' -resultCacheSize 1k -verify '%s'
+
+# Later runs load the results of statements from the cache
+print "start"
+# CHECK: start
+var n = 4
+var squares = map({1, n}, x -> x * x)
+out squares
+# CHECK: {1, 4, 9, 16}
+var halves = map(squares, x -> x / 2)
+out halves
+# CHECK: {0.5, 2, 4.5, 8}
+out reduce(halves, 0, acc y -> acc + y)
+# CHECK: 15.0
+out map({1, n}, x -> {x, n})
+# CHECK: {{1, 2, 3, 4}, {2, 3, 4}, {3, 4}, {4}}
+# Ranges are cached by their bounds, not their elements
+var r = {1, 1000000000}
+var ranges = map({1, 3}, x -> {x, 1000000000 + x})
+out reduce(map(ranges, s -> 1), 0, a b -> a + b)
+# CHECK: 3
+out (1 + 2) * 3.5
+# CHECK: 10.5
+# Results larger than the cache are not stored
+var hundreds = map({1, 200}, x -> x * 100)
+out reduce(hundreds, 0, a b -> a + b)
+# CHECK: 2010000
+
+# Statements that are identical up to variable names and parentheses share their result
+var m = 4
+out map({1, m}, y -> (y * y))
+# CHECK: {1, 4, 9, 16}
+
+# Errors are reported in every run since their results are not cached
+var zero = n - 4
+out 1 / zero # expectedError@7: Division by 0
+out {n, 1} # expectedError@5: Upper bound of range cannot be smaller than the lower bound
+out 1 + n
+# CHECK: 5
@@ -0,0 +1,12 @@
+# RUN: rm -rf '%t'
+# RUN: %driver -evaluate -resultCache '%t' '%s'
+# RUN: %driver -evaluate -resultCache '%t' -chunkSize 3 -verify '%s'
+# RUN: %driver -evaluate -resultCache '%t' -chunkSize 3 -verify '%s'
+
+# The result of a reduce whose lambda is not associative depends on the chunk size, so results
+# computed with the default chunk size must not be used with a different one
+out reduce({1, 10}, 0, a b -> a - b)
+# CHECK: 11
+var halves = map({1, 7}, x -> x * 0.5)
+out reduce(halves, 100, a b -> a / 2 + b)
+# CHECK: 18.90625
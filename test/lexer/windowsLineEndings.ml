@@ -0,0 +1,9 @@
+# RUN: %verifyLexer
+
+var a = 1
+# CHECK: INT_LITERAL(1)
+# expectedError@+1:1: '?' is an invalid character at this position
+?
+
+# expectedError@+1:5: '$' is an invalid character at this position
+out $
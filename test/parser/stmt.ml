@@ -1,4 +1,5 @@
 # RUN: %verifyParser
+# RUN: %driver -parse -parallelParse 1 -verify '%s'
 
 1.2 # expectedError@1: Unexpected start of statements. Statements must start with 'var', 'out' or 'print' but found '1.2'
 a # expectedError@1: Unexpected start of statements. Statements must start with 'var', 'out' or 'print' but found 'a'
@@ -18,4 +19,5 @@ out 1
 # CHECK: )
 
 # expectedError@+1:7: Unexpected start of statements. Statements must start with 'var', 'out' or 'print' but found '('
-print ( #expectedError@7: Expected a string literal after 'print' but got '('
\ No newline at end of file
+print ( #expectedError@7: Expected a string literal after 'print' but got '('
+out "a\"b\\c\td" # expectedError@5: Expected an expression but found '"a\"b\\c\td"'